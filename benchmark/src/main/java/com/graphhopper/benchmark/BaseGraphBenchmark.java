@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates the edges of the {@link BaseGraph}, which is what all routing algorithms spend most of their time on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BaseGraphBenchmark {
+    private BaseGraph graph;
+    private EdgeExplorer explorer;
+    private DecimalEncodedValue speedEnc;
+    private int[] randomEdges;
+
+    @Setup
+    public void setup() {
+        graph = BenchmarkGraph.get().getBaseGraph();
+        explorer = graph.createEdgeExplorer();
+        speedEnc = BenchmarkGraph.get().getEncodingManager().getDecimalEncodedValue(VehicleSpeed.key("car"));
+        Random rnd = new Random(123);
+        randomEdges = new int[10_000];
+        for (int i = 0; i < randomEdges.length; i++)
+            randomEdges[i] = rnd.nextInt(graph.getEdges());
+    }
+
+    @Benchmark
+    public double exploreAllNodes() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                sum += iter.getDistance() + iter.getAdjNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double exploreAllNodesWithSpeed() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                sum += iter.get(speedEnc) + iter.getReverse(speedEnc);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double allEdges() {
+        double sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            sum += iter.getDistance() + iter.getBaseNode();
+        return sum;
+    }
+
+    @Benchmark
+    public double randomEdgeAccess() {
+        double sum = 0;
+        for (int edge : randomEdges)
+            sum += graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).getDistance();
+        return sum;
+    }
+}
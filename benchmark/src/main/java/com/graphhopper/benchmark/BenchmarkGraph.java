@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Imports the OSM file used by the benchmarks, or loads it if it was imported before. By default this is the small
+ * Andorra file bundled with the core module, use -Dgh.benchmark.osm_file=... to use a different file and
+ * -Dgh.benchmark.graph_location=... to change the graph folder. Remove the graph folder after changing the OSM file.
+ */
+final class BenchmarkGraph {
+    static final String PROFILE = "car";
+    private static GraphHopper hopper;
+
+    private BenchmarkGraph() {
+    }
+
+    static synchronized GraphHopper get() {
+        if (hopper == null) {
+            GraphHopperConfig config = new GraphHopperConfig();
+            config.putObject("datareader.file", getOSMFile());
+            config.putObject("graph.location", System.getProperty("gh.benchmark.graph_location", "target/benchmark-gh"));
+            config.putObject("graph.encoded_values", "car_access, car_average_speed, road_access, road_class");
+            config.putObject("import.osm.ignored_highways", "footway,cycleway,path,pedestrian,steps");
+            config.setProfiles(List.of(new Profile(PROFILE).setCustomModel(GHUtility.loadCustomModelFromJar("car.json"))));
+            config.setCHProfiles(List.of(new CHProfile(PROFILE)));
+            config.setLMProfiles(List.of(new LMProfile(PROFILE)));
+            hopper = new GraphHopper().init(config);
+            hopper.importOrLoad();
+        }
+        return hopper;
+    }
+
+    static String getOSMFile() {
+        String file = System.getProperty("gh.benchmark.osm_file");
+        if (file != null)
+            return file;
+        // we usually run either from the root folder or from the benchmark folder
+        for (String candidate : new String[]{"core/files/andorra.osm.pbf", "../core/files/andorra.osm.pbf"}) {
+            if (new File(candidate).exists())
+                return candidate;
+        }
+        throw new IllegalStateException("Cannot find andorra.osm.pbf, use -Dgh.benchmark.osm_file=<file>");
+    }
+
+    static GHPoint[] createRandomPoints(BBox bounds, int count, long seed) {
+        Random rnd = new Random(seed);
+        GHPoint[] points = new GHPoint[count];
+        for (int i = 0; i < count; i++)
+            points[i] = new GHPoint(
+                    bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon));
+        return points;
+    }
+
+    /**
+     * @return the coordinates of random nodes, unlike random points within the bounds these can always be snapped
+     */
+    static GHPoint[] createRandomNodePoints(BaseGraph graph, int count, long seed) {
+        Random rnd = new Random(seed);
+        NodeAccess na = graph.getNodeAccess();
+        GHPoint[] points = new GHPoint[count];
+        for (int i = 0; i < count; i++) {
+            int node = rnd.nextInt(graph.getNodes());
+            points[i] = new GHPoint(na.getLat(node), na.getLon(node));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.util.Constants;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this module. It accepts the usual JMH options (see -h), e.g. a regular expression to
+ * select the benchmarks:
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar RoutingBenchmark -p mode=ch
+ * </pre>
+ * Unlike the plain JMH runner the gc profiler is enabled by default, so the allocation rate per operation is
+ * reported as well, and the results are written as JSON to jmh-result-&lt;version&gt;.json. These files can be
+ * compared between releases. Use -prof, -rf and -rff to change these defaults.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!cmdOptions.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if (!cmdOptions.getResult().hasValue())
+            options.result("jmh-result-" + Constants.VERSION + ".json");
+        new Runner(options.build()).run();
+    }
+}
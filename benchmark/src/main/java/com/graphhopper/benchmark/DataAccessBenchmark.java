@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads from a {@link DataAccess} of every {@link DAType} that can load an existing file, i.e. all but RAM and RAM_INT.
+ * The file is written once per trial, so for the memory mapped types it is usually in the page cache and we measure
+ * the access overhead only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+    // DAType.fromString does not know RAM_INT_STORE, so we look the types up here
+    private static final Map<String, DAType> TYPES = Map.of("RAM_STORE", DAType.RAM_STORE, "RAM_INT_STORE", DAType.RAM_INT_STORE,
+            "MMAP", DAType.MMAP, "MMAP_RO", DAType.MMAP_RO, "MMAP_FULL", DAType.MMAP_FULL);
+
+    @Param({"RAM_STORE", "RAM_INT_STORE", "MMAP", "MMAP_RO", "MMAP_FULL"})
+    public String type;
+
+    @Param({"4000000"})
+    public int ints;
+
+    private File folder;
+    private DataAccess da;
+    private long[] randomPositions;
+    private boolean byteAccess;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("gh-da-benchmark").toFile();
+        DataAccess writer = new GHDirectory(folder.getAbsolutePath(), DAType.RAM_STORE).create("benchmark");
+        writer.create(4L * ints);
+        for (int i = 0; i < ints; i++)
+            writer.setInt(4L * i, i);
+        writer.flush();
+        writer.close();
+
+        da = new GHDirectory(folder.getAbsolutePath(), TYPES.get(type)).create("benchmark");
+        if (!da.loadExisting())
+            throw new IllegalStateException("Cannot load " + type + " from " + folder);
+        byteAccess = !type.equals("RAM_INT_STORE");
+        Random rnd = new Random(123);
+        randomPositions = new long[100_000];
+        for (int i = 0; i < randomPositions.length; i++)
+            randomPositions[i] = 4L * rnd.nextInt(ints);
+    }
+
+    @TearDown
+    public void tearDown() {
+        da.close();
+        Helper.removeDir(folder);
+    }
+
+    @Benchmark
+    public long sequentialInts() {
+        long sum = 0;
+        for (int i = 0; i < ints; i++)
+            sum += da.getInt(4L * i);
+        return sum;
+    }
+
+    @Benchmark
+    public long randomInts() {
+        long sum = 0;
+        for (long pos : randomPositions)
+            sum += da.getInt(pos);
+        return sum;
+    }
+
+    @Benchmark
+    public long randomShortsAndBytes() {
+        long sum = 0;
+        for (long pos : randomPositions)
+            // RAM_INT_STORE does not support byte access, so for this type we only read the shorts
+            sum += da.getShort(pos) + (byteAccess ? da.getByte(pos + 2) : 0);
+        return sum;
+    }
+}
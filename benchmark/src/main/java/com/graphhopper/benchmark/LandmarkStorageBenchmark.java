@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LMConfig;
+import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the uncompressed and the compressed landmark weights, see {@link LMConfig#isCompressedWeights()}. The
+ * memory usage of both layouts is logged after the preparation, the benchmarks measure the raw weight lookups of
+ * {@link LMApproximator} and complete bidirectional A* queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LandmarkStorageBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LandmarkStorageBenchmark.class);
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private BaseGraph graph;
+    private Weighting weighting;
+    private LandmarkStorage lms;
+    private LMApproximator approximator;
+    private int[] nodes;
+    private int[] pairs;
+    private int next;
+    private int nextPair;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        graph = hopper.getBaseGraph();
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap(), true);
+        // small segments, so the capacity is close to the actual size of the landmark data
+        RAMDirectory dir = new RAMDirectory() {
+            @Override
+            public DataAccess create(String name) {
+                return create(name, 1 << 14);
+            }
+        };
+        PrepareLandmarks prepare = new PrepareLandmarks(dir, graph, hopper.getEncodingManager(),
+                new LMConfig(BenchmarkGraph.PROFILE, weighting, compressed), 16);
+        prepare.doWork();
+        lms = prepare.getLandmarkStorage();
+        LOGGER.info("landmark storage with compressed=" + compressed + " uses " + lms.getCapacity() + " bytes for "
+                + graph.getNodes() + " nodes");
+
+        Random rnd = new Random(123);
+        nodes = new int[10_000];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = rnd.nextInt(graph.getNodes());
+        approximator = LMApproximator.forLandmarks(graph, weighting, lms, 8);
+        approximator.setTo(nodes[0]);
+
+        // only keep the pairs within the same subnetwork
+        pairs = new int[2_000];
+        int count = 0;
+        while (count < pairs.length) {
+            int from = rnd.nextInt(graph.getNodes()), to = rnd.nextInt(graph.getNodes());
+            try {
+                if (!createAlgo().calcPath(from, to).isFound())
+                    continue;
+            } catch (ConnectionNotFoundException ex) {
+                continue;
+            }
+            pairs[count++] = from;
+            pairs[count++] = to;
+        }
+    }
+
+    @Benchmark
+    public double approximate() {
+        return approximator.approximate(nextNode());
+    }
+
+    @Benchmark
+    public double route() {
+        if (nextPair == pairs.length)
+            nextPair = 0;
+        int from = pairs[nextPair++];
+        int to = pairs[nextPair++];
+        return createAlgo().calcPath(from, to).getWeight();
+    }
+
+    private RoutingAlgorithm createAlgo() {
+        return new LMRoutingAlgorithmFactory(lms).createAlgo(graph, weighting, new AlgorithmOptions().
+                setAlgorithm(Parameters.Algorithms.ASTAR_BI).setTraversalMode(TraversalMode.NODE_BASED));
+    }
+
+    private int nextNode() {
+        if (next == nodes.length)
+            next = 0;
+        return nodes[next++];
+    }
+}
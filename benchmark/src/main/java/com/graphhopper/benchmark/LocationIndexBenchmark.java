@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private LocationIndexTree index;
+    private EdgeFilter snapFilter;
+    private GHPoint[] points;
+    private int next;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        index = (LocationIndexTree) hopper.getLocationIndex();
+        snapFilter = new DefaultSnapFilter(hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap()),
+                hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(BenchmarkGraph.PROFILE)));
+        points = BenchmarkGraph.createRandomPoints(hopper.getBaseGraph().getBounds(), 10_000, 123);
+    }
+
+    @Benchmark
+    public Snap findClosest() {
+        GHPoint point = nextPoint();
+        return index.findClosest(point.lat, point.lon, snapFilter);
+    }
+
+    @Benchmark
+    public Snap findClosestAllEdges() {
+        GHPoint point = nextPoint();
+        return index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+    }
+
+    private GHPoint nextPoint() {
+        if (next == points.length)
+            next = 0;
+        return points[next++];
+    }
+}
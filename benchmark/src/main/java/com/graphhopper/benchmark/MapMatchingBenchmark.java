@@ -0,0 +1,77 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches one long trace, which is created by concatenating the routes between random points. The observations are
+ * the points of these routes, so the trace length is given as the number of observations. With the default Andorra
+ * file 10_000 observations correspond to a drive of several hours.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MapMatchingBenchmark {
+    @Param({"1000", "10000"})
+    public int observations;
+
+    private MapMatching mapMatching;
+    private List<Observation> trace;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", BenchmarkGraph.PROFILE));
+        GHPoint[] points = BenchmarkGraph.createRandomNodePoints(hopper.getBaseGraph(), 10_000, 123);
+        trace = new ArrayList<>(observations);
+        for (int i = 1; i < points.length && trace.size() < observations; i++) {
+            GHRequest request = new GHRequest(points[i - 1], points[i]).setProfile(BenchmarkGraph.PROFILE);
+            request.putHint(Parameters.Routing.INSTRUCTIONS, false);
+            GHResponse response = hopper.route(request);
+            if (response.hasErrors())
+                continue;
+            PointList route = response.getBest().getPoints();
+            for (int j = 0; j < route.size() && trace.size() < observations; j++)
+                trace.add(new Observation(new GHPoint(route.getLat(j), route.getLon(j))));
+        }
+    }
+
+    @Benchmark
+    public double match() {
+        MatchResult result = mapMatching.match(trace);
+        return result.getMatchLength();
+    }
+}
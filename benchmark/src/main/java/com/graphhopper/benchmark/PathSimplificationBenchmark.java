@@ -0,0 +1,86 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.PathSimplification;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.RamerDouglasPeucker;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simplifies the points of a long route with path details, like it is done for every route response. The points
+ * and details are copied for every call, because the simplification modifies them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathSimplificationBenchmark {
+    private ResponsePath route;
+    private RamerDouglasPeucker ramerDouglasPeucker;
+
+    @Setup
+    public void setup() {
+        // from the east of Andorra to the south
+        GHRequest request = new GHRequest(new GHPoint(42.5426, 1.7300), new GHPoint(42.4637, 1.4912)).
+                setProfile(BenchmarkGraph.PROFILE).
+                setPathDetails(List.of("road_class", "edge_id", "time", "distance"));
+        request.putHint(Parameters.Routing.INSTRUCTIONS, false);
+        // we simplify the points ourselves
+        request.putHint(Parameters.Routing.WAY_POINT_MAX_DISTANCE, 0);
+        GHResponse response = BenchmarkGraph.get().route(request);
+        if (response.hasErrors())
+            throw new IllegalStateException("Cannot calculate the route " + response.getErrors());
+        route = response.getBest();
+        ramerDouglasPeucker = new RamerDouglasPeucker().setMaxDistance(1);
+    }
+
+    @Benchmark
+    public PointList simplify() {
+        ResponsePath path = new ResponsePath();
+        path.setPoints(route.getPoints().copy(0, route.getPoints().size()));
+        path.setWaypointIndices(route.getWaypointIndices());
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        for (Map.Entry<String, List<PathDetail>> entry : route.getPathDetails().entrySet()) {
+            List<PathDetail> copies = new ArrayList<>(entry.getValue().size());
+            for (PathDetail detail : entry.getValue()) {
+                PathDetail copy = new PathDetail(detail.getValue());
+                copy.setFirst(detail.getFirst());
+                copy.setLast(detail.getLast());
+                copies.add(copy);
+            }
+            details.put(entry.getKey(), copies);
+        }
+        path.addPathDetails(details);
+        return PathSimplification.simplify(path, ramerDouglasPeucker, false);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.SkipOptions;
+import com.graphhopper.reader.osm.pbf.PbfBlobDecoder;
+import com.graphhopper.reader.osm.pbf.PbfBlobDecoderListener;
+import com.graphhopper.reader.osm.pbf.PbfRawBlob;
+import com.graphhopper.reader.osm.pbf.PbfStreamSplitter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes all blobs of the OSM file. The blobs are read into memory first, so this does not include any I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PbfBlobDecoderBenchmark {
+    @Param({"none", "skip_nodes"})
+    public String skip;
+
+    private final List<PbfRawBlob> blobs = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        PbfStreamSplitter splitter = new PbfStreamSplitter(new DataInputStream(new BufferedInputStream(new FileInputStream(BenchmarkGraph.getOSMFile()))));
+        try {
+            while (splitter.hasNext())
+                blobs.add(splitter.next());
+        } finally {
+            splitter.release();
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        SkipOptions skipOptions = skip.equals("none") ? SkipOptions.none() : new SkipOptions(true, false, false);
+        PbfBlobDecoderListener listener = new PbfBlobDecoderListener() {
+            @Override
+            public void complete(List<ReaderElement> decodedEntities) {
+                blackhole.consume(decodedEntities);
+            }
+
+            @Override
+            public void error(Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        };
+        for (PbfRawBlob blob : blobs)
+            new PbfBlobDecoder(blob.getType(), blob.getData(), listener, skipOptions).run();
+    }
+}
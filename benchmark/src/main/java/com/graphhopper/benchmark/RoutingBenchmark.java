@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes between random points with speed mode (ch), hybrid mode (lm) and flexible mode (flex) via
+ * {@link GraphHopper#route}, i.e. including the snapping and the path extraction, but without instructions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"ch", "lm", "flex"})
+    public String mode;
+
+    private GraphHopper hopper;
+    private GHPoint[] points;
+    private int next;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.get();
+        points = BenchmarkGraph.createRandomNodePoints(hopper.getBaseGraph(), 10_000, 123);
+    }
+
+    @Benchmark
+    public GHResponse route() {
+        GHRequest request = new GHRequest(nextPoint(), nextPoint()).
+                setProfile(BenchmarkGraph.PROFILE);
+        request.putHint(Parameters.Routing.INSTRUCTIONS, false);
+        request.putHint(Parameters.CH.DISABLE, !mode.equals("ch"));
+        request.putHint(Parameters.Landmark.DISABLE, !mode.equals("lm"));
+        return hopper.route(request);
+    }
+
+    private GHPoint nextPoint() {
+        if (next == points.length)
+            next = 0;
+        return points[next++];
+    }
+}
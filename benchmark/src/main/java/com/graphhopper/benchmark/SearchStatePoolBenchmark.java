@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.SearchStatePool;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency percentiles and the allocation rate (use the gc profiler, -prof gc) of a bidirectional Dijkstra
+ * with and without reusing the search collections via {@link SearchStatePool}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchStatePoolBenchmark {
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    private BaseGraph graph;
+    private Weighting weighting;
+    private int[] nodes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        graph = hopper.getBaseGraph();
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+        Random rnd = new Random(123);
+        nodes = new int[10_000];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = rnd.nextInt(graph.getNodes());
+    }
+
+    @Benchmark
+    public double calcPath() {
+        int from = nextNode();
+        int to = nextNode();
+        if (!pooled)
+            return new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+        try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+            Path path = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            return path.getWeight();
+        }
+    }
+
+    private int nextNode() {
+        if (next == nodes.length)
+            next = 0;
+        return nodes[next++];
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC;
+import com.graphhopper.routing.subnetwork.ParallelEdgeBasedSCC;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sequential {@link EdgeBasedTarjanSCC} with {@link ParallelEdgeBasedSCC} on the same graph, using the
+ * edge transition filter of the subnetwork preparation. The parallel version is used for any graph size here, while
+ * the preparation only uses it for large graphs, so use a bigger file via -Dgh.benchmark.osm_file=... to get
+ * meaningful numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SubnetworkBenchmark {
+    @Param({"0", "4", "8"})
+    public int threads;
+
+    private BaseGraph graph;
+    private EdgeBasedTarjanSCC.EdgeTransitionFilter filter;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        graph = hopper.getBaseGraph();
+        Weighting weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap(), false);
+        filter = (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev));
+    }
+
+    /**
+     * threads=0 runs Tarjan's algorithm
+     */
+    @Benchmark
+    public int findComponents() {
+        EdgeBasedTarjanSCC.ConnectedComponents components = threads == 0
+                ? EdgeBasedTarjanSCC.findComponents(graph, filter, false)
+                : new ParallelEdgeBasedSCC(graph, filter, threads).findComponents(false);
+        return components.getTotalComponents();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up turn costs in a grid where the majority of the turns at every junction has an entry, i.e. a region that is
+ * much more restriction-heavy than real OSM data. Compares the linked lists of the turn cost entries with the sorted
+ * entries created by {@link TurnCostStorage#sortNodes()}. Most lookups in edge-based algorithms are misses, so both
+ * hits and misses are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TurnCostStorageBenchmark {
+    @Param({"false", "true"})
+    public boolean sorted;
+
+    private TurnCostStorage turnCostStorage;
+    private DecimalEncodedValue turnCostEnc;
+    private int[] lookups;
+    private int next;
+
+    @Setup
+    public void setup() {
+        turnCostEnc = TurnCost.create("car", 15);
+        EncodingManager em = EncodingManager.start().addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        int size = 300;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                graph.getNodeAccess().setNode(node, row * 0.001, col * 0.001);
+                if (col + 1 < size)
+                    graph.edge(node, node + 1).setDistance(100);
+                if (row + 1 < size)
+                    graph.edge(node, node + size).setDistance(100);
+            }
+        }
+
+        Random rnd = new Random(123);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntArrayList edges = new IntArrayList();
+        IntArrayList turns = new IntArrayList();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            edges.clear();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                edges.add(iter.getEdge());
+            for (int i = 0; i < edges.size(); i++) {
+                for (int j = 0; j < edges.size(); j++) {
+                    turns.add(edges.get(i), node, edges.get(j));
+                }
+            }
+        }
+        int[] order = createShuffledOrder(turns.size() / 3, rnd);
+        // the OSM restrictions are not ordered by node, so we add the turn costs in random order as well
+        turnCostStorage = graph.getTurnCostStorage();
+        for (int i : order) {
+            if (rnd.nextDouble() < 0.7)
+                turnCostStorage.set(turnCostEnc, turns.get(3 * i), turns.get(3 * i + 1), turns.get(3 * i + 2), 1 + rnd.nextInt(10));
+        }
+        if (sorted)
+            turnCostStorage.sortNodes();
+
+        order = createShuffledOrder(turns.size() / 3, rnd);
+        lookups = new int[turns.size()];
+        for (int i = 0; i < order.length; i++) {
+            lookups[3 * i] = turns.get(3 * order[i]);
+            lookups[3 * i + 1] = turns.get(3 * order[i] + 1);
+            lookups[3 * i + 2] = turns.get(3 * order[i] + 2);
+        }
+    }
+
+    private static int[] createShuffledOrder(int count, Random rnd) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+        for (int i = count - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    @Benchmark
+    public double get() {
+        if (next == lookups.length)
+            next = 0;
+        double cost = turnCostStorage.get(turnCostEnc, lookups[next], lookups[next + 1], lookups[next + 2]);
+        next += 3;
+        return cost;
+    }
+}
@@ -32,6 +32,8 @@ import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.CustomizableContractionHierarchies;
+import com.graphhopper.routing.ch.NodeOrderingProvider;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
@@ -68,6 +70,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -104,6 +108,7 @@ public class GraphHopper {
     private String ghLocation = "";
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
+    private int mmapPreloadThreads = 1;
     private boolean sortGraph = true;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
@@ -112,6 +117,7 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private ExecutorService batchExecutor;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
@@ -130,6 +136,9 @@ public class GraphHopper {
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private boolean cchEnabled = false;
+    private int cchCacheSize = 10;
+    private CustomizableContractionHierarchies cch;
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -361,6 +370,17 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to load the memory mapped files into physical memory after the graph was loaded,
+     * see graph.dataaccess.mmap.preload.* and {@link GHDirectory#loadMMap(int)}.
+     */
+    public GraphHopper setMMapPreloadThreads(int mmapPreloadThreads) {
+        if (mmapPreloadThreads < 1)
+            throw new IllegalArgumentException("graph.dataaccess.mmap.preload_threads must be at least 1, was: " + mmapPreloadThreads);
+        this.mmapPreloadThreads = mmapPreloadThreads;
+        return this;
+    }
+
     public GraphHopper setSortGraph(boolean sortGraph) {
         this.sortGraph = sortGraph;
         return this;
@@ -395,6 +415,22 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * Enables speed mode for requests with a custom model, see {@link CustomizableContractionHierarchies}
+     */
+    public GraphHopper setCCHEnabled(boolean cchEnabled) {
+        ensureNotLoaded();
+        this.cchEnabled = cchEnabled;
+        return this;
+    }
+
+    /**
+     * @return the customizable contraction hierarchies or null if they are not enabled
+     */
+    public CustomizableContractionHierarchies getCustomizableCH() {
+        return cch;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -513,6 +549,7 @@ public class GraphHopper {
             if (entry.getKey().startsWith("graph.dataaccess.mmap.preload."))
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.mmap.".length()), entry.getValue().toString());
         }
+        setMMapPreloadThreads(ghConfig.getInt("graph.dataaccess.mmap.preload_threads", mmapPreloadThreads));
 
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
@@ -554,6 +591,7 @@ public class GraphHopper {
         osmReaderConfig.setElevationSmoothingRamerMax(ghConfig.getInt("graph.elevation.edge_smoothing.ramer.max_elevation", osmReaderConfig.getElevationSmoothingRamerMax()));
         osmReaderConfig.setLongEdgeSamplingDistance(ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", osmReaderConfig.getLongEdgeSamplingDistance()));
         osmReaderConfig.setElevationMaxWayPointDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", osmReaderConfig.getElevationMaxWayPointDistance()));
+        osmReaderConfig.setElevationThreads(ghConfig.getInt("graph.elevation.threads", osmReaderConfig.getElevationThreads()));
         routerConfig.setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", routerConfig.getElevationWayPointMaxDistance()));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
@@ -567,6 +605,8 @@ public class GraphHopper {
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
+        cchEnabled = ghConfig.getBool("prepare.cch.enabled", cchEnabled);
+        cchCacheSize = ghConfig.getInt("routing.cch.cache_size", cchCacheSize);
         lmPreparationHandler.init(ghConfig);
 
         // osm import
@@ -586,6 +626,8 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setParseThreads(ghConfig.getInt("datareader.parse_threads", osmReaderConfig.getParseThreads()));
+        osmReaderConfig.setOffHeapNodeIds(ghConfig.getBool("datareader.off_heap_node_ids", osmReaderConfig.isOffHeapNodeIds()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
@@ -604,6 +646,8 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setBatchThreads(ghConfig.getInt("routing.batch.threads", routerConfig.getBatchThreads()));
+        routerConfig.setMaxBatchSize(ghConfig.getInt("routing.batch.max_size", routerConfig.getMaxBatchSize()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -754,7 +798,8 @@ public class GraphHopper {
             provider
                     .setAutoRemoveTemporaryFiles(removeTempElevationFiles)
                     .setInterpolate(interpolate)
-                    .setDAType(elevationDAType);
+                    .setDAType(elevationDAType)
+                    .setMaxOpenTiles(ghConfig.getInt("graph.elevation.max_open_tiles", 0));
             if (!baseURL.isEmpty())
                 provider.setBaseURL(baseURL);
         }
@@ -845,6 +890,8 @@ public class GraphHopper {
             importOSM();
             postImportOSM();
             cleanUp();
+            if (cchEnabled)
+                prepareCCH();
 
             properties.put("profiles", getProfilesString());
             writeEncodingManagerToProperties();
@@ -1162,7 +1209,7 @@ public class GraphHopper {
                         + "\nChange configuration to match the graph or delete " + baseGraph.getDirectory().getLocation());
 
             postProcessing(false);
-            directory.loadMMap();
+            directory.loadMMap(mmapPreloadThreads);
             setFullyLoaded();
             return true;
         } finally {
@@ -1264,7 +1311,7 @@ public class GraphHopper {
             // Running the preparation without turn costs is also useful to allow e.g. changing the u_turn_costs per
             // request (we have to use the minimum weight settings (= no turn costs) for the preparation)
             Weighting weighting = createWeighting(profile, new PMap(), true);
-            lmConfigs.add(new LMConfig(profile.getName(), weighting));
+            lmConfigs.add(new LMConfig(profile.getName(), weighting, lmProfile.isCompressedWeights()));
         }
         return lmConfigs;
     }
@@ -1296,6 +1343,9 @@ public class GraphHopper {
 
         if (chPreparationHandler.isEnabled())
             loadOrPrepareCH(closeEarly);
+
+        if (cchEnabled && cch == null)
+            loadCCH();
     }
 
     protected void importPublicTransit() {
@@ -1334,6 +1384,24 @@ public class GraphHopper {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the routes for all the given requests at once, see {@link Router#routeBatch}. The routes are
+     * calculated using up to routing.batch.threads threads that are shared by all batches.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> requests) {
+        return createRouter().setBatchExecutor(getBatchExecutor()).routeBatch(requests);
+    }
+
+    private synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null && routerConfig.getBatchThreads() > 1)
+            batchExecutor = Executors.newFixedThreadPool(routerConfig.getBatchThreads(), r -> {
+                Thread thread = new Thread(r, "route-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return batchExecutor;
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1342,8 +1410,11 @@ public class GraphHopper {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
-        return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
+        Router router = doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
                 trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+        if (cch != null)
+            router.setCustomizableCH(cch);
+        return router;
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
@@ -1451,6 +1522,33 @@ public class GraphHopper {
         }
     }
 
+    /**
+     * Calculates and stores the weighting-independent node ordering during the import and builds the topology that is
+     * used to customize the graph for requests with a custom model, see {@link CustomizableContractionHierarchies}.
+     */
+    protected void prepareCCH() {
+        ensureWriteAccess();
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        BaseGraph graph = baseGraph.getBaseGraph();
+        cch = new CustomizableContractionHierarchies(graph, CustomizableContractionHierarchies.createNodeOrdering(graph), cchCacheSize);
+    }
+
+    /**
+     * Builds the CCH topology from the node ordering that was stored during the import. Nothing is written to the
+     * graph directory, so this also works for read-only graphs.
+     */
+    protected void loadCCH() {
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        BaseGraph graph = baseGraph.getBaseGraph();
+        NodeOrderingProvider nodeOrdering = CustomizableContractionHierarchies.loadNodeOrdering(graph);
+        if (nodeOrdering == null)
+            throw new IllegalStateException("The CCH node ordering was not found in " + graph.getDirectory().getLocation()
+                    + ". It is calculated during the import, so you need to re-import the graph with prepare.cch.enabled: true");
+        cch = new CustomizableContractionHierarchies(graph, nodeOrdering, cchCacheSize);
+    }
+
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
         if (!configsToPrepare.isEmpty())
             ensureWriteAccess();
@@ -1541,11 +1639,18 @@ public class GraphHopper {
             properties.close();
 
         chGraphs.values().forEach(RoutingCHGraph::close);
+        if (cch != null)
+            cch.close();
         landmarks.values().forEach(LandmarkStorage::close);
 
         if (locationIndex != null)
             locationIndex.close();
 
+        synchronized (this) {
+            if (batchExecutor != null)
+                batchExecutor.shutdownNow();
+        }
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
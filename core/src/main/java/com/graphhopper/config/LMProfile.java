@@ -32,6 +32,7 @@ public class LMProfile {
     private String profile = "";
     private String preparationProfile = "this";
     private double maximumLMWeight = -1;
+    private boolean compressedWeights = false;
 
     private LMProfile() {
         // default constructor needed for jackson
@@ -41,6 +42,7 @@ public class LMProfile {
         this.profile = profile.profile;
         this.preparationProfile = profile.preparationProfile;
         this.maximumLMWeight = profile.maximumLMWeight;
+        this.compressedWeights = profile.compressedWeights;
     }
 
     public LMProfile(String profile) {
@@ -68,6 +70,8 @@ public class LMProfile {
         validateProfileName(preparationProfile);
         if (maximumLMWeight >= 0)
             throw new IllegalArgumentException("Using non-default maximum_lm_weight and preparation_profile at the same time is not allowed");
+        if (compressedWeights)
+            throw new IllegalArgumentException("Using compressed_weights and preparation_profile at the same time is not allowed");
         this.preparationProfile = preparationProfile;
         return this;
     }
@@ -84,8 +88,25 @@ public class LMProfile {
         return this;
     }
 
+    public boolean isCompressedWeights() {
+        return compressedWeights;
+    }
+
+    /**
+     * Stores the landmark weights as 8 bit deltas against a per-tile base value, which needs roughly 40% less memory
+     * but makes the weight approximation slightly less precise.
+     */
+    @JsonProperty("compressed_weights")
+    public LMProfile setCompressedWeights(boolean compressedWeights) {
+        if (usesOtherPreparation())
+            throw new IllegalArgumentException("Using compressed_weights and preparation_profile at the same time is not allowed");
+        this.compressedWeights = compressedWeights;
+        return this;
+    }
+
     @Override
     public String toString() {
-        return profile + "|preparation_profile=" + preparationProfile + "|maximum_lm_weight=" + maximumLMWeight;
+        return profile + "|preparation_profile=" + preparationProfile + "|maximum_lm_weight=" + maximumLMWeight
+                + "|compressed_weights=" + compressedWeights;
     }
 }
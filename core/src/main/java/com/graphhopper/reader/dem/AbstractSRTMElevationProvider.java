@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
@@ -38,8 +37,6 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int MAX_LAT;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -58,18 +55,6 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         return (down(lat) + 90) * 1000 + down(lon) + 180;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
-    }
-
     int down(double val) {
         int intVal = (int) val;
         if (val >= 0 || intVal - val < invPrecision)
@@ -87,55 +72,51 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
         int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
+        double tileLat = lat, tileLon = lon;
+        return getEle(intKey, lat, lon, () -> loadTile(intKey, tileLat, tileLon));
+    }
 
-            int minLat = down(lat);
-            int minLon = down(lon);
+    private HeightTile loadTile(int intKey, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
-                return 0;
+        int minLat = down(lat);
+        int minLon = down(lon);
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
-            }
+        String fileName = getFileName(lat, lon);
+        if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
+            return null;
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.create(10)
-                            .flush();
-                    return 0;
-                }
-            }
-
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+        DataAccess heights = getDirectory().create("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
+        }
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setInterpolate(interpolate);
-            demProvider.setHeights(heights);
+        if (!loadExisting) {
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                HeightTile tile = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                tile.setHeights(heights);
+                tile.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.create(10)
+                        .flush();
+                return tile;
+            }
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
 
-        return demProvider.getHeight(lat, lon);
+        HeightTile tile = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        tile.setInterpolate(interpolate);
+        tile.setHeights(heights);
+        return tile;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
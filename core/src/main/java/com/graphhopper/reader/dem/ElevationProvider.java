@@ -40,6 +40,8 @@ public interface ElevationProvider {
     };
 
     /**
+     * This method is called from multiple threads if graph.elevation.threads is larger than one.
+     *
      * @return returns the height in meters or Double.NaN if invalid
      */
     double getEle(double lat, double lon);
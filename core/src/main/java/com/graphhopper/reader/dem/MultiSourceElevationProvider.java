@@ -95,6 +95,13 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         globalProvider.release();
     }
 
+    @Override
+    public MultiSourceElevationProvider setMaxOpenTiles(int maxOpenTiles) {
+        srtmProvider.setMaxOpenTiles(maxOpenTiles);
+        globalProvider.setMaxOpenTiles(maxOpenTiles);
+        return this;
+    }
+
     @Override
     public MultiSourceElevationProvider setAutoRemoveTemporaryFiles(boolean autoRemoveTemporary) {
         srtmProvider.setAutoRemoveTemporaryFiles(autoRemoveTemporary);
@@ -21,11 +21,19 @@ import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
+import com.graphhopper.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider using tiles from files.
@@ -42,6 +50,16 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    int maxOpenTiles = 0;
+    // the open tiles in access order. a tile is loaded only once, even if several threads need it at the same time
+    private final Map<Object, FutureTask<HeightTile>> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, FutureTask<HeightTile>> eldest) {
+            return closeEldestTile(eldest.getValue());
+        }
+    };
+    // the tiles that were closed because of maxOpenTiles, their files are not known to the directory anymore
+    private final Set<String> closedTiles = new HashSet<>();
 
     protected TileBasedElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -103,6 +121,19 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Limits the number of tiles that are kept open. If more tiles are needed the least recently used tile is closed.
+     * Its data stays in the cache directory (unless the DAType is not storing), so using it again later only requires
+     * loading the already decoded file, not reading the original file again. The default is 0, i.e. no limit, which
+     * is fine for the default MMAP DAType, because then the tiles are not stored on the heap.
+     */
+    public TileBasedElevationProvider setMaxOpenTiles(int maxOpenTiles) {
+        if (maxOpenTiles < 0)
+            throw new IllegalArgumentException("graph.elevation.max_open_tiles must not be negative, was: " + maxOpenTiles);
+        this.maxOpenTiles = maxOpenTiles;
+        return this;
+    }
+
     public TileBasedElevationProvider setDownloader(Downloader downloader) {
         this.downloader = downloader;
         return this;
@@ -112,7 +143,7 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return cacheDir;
     }
 
-    protected Directory getDirectory() {
+    protected synchronized Directory getDirectory() {
         if (dir != null)
             return dir;
 
@@ -121,4 +152,102 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
+    /**
+     * Returns the elevation at the given point from the tile with the given key. If the tile is not open it is
+     * created via the loader, which returns null if there is no data for this tile. This method can be called from
+     * multiple threads, see graph.elevation.threads.
+     */
+    double getEle(Object key, double lat, double lon, Supplier<HeightTile> loader) {
+        while (true) {
+            FutureTask<HeightTile> task = getTile(key, loader);
+            HeightTile tile = getLoadedTile(key, task);
+            if (maxOpenTiles <= 0)
+                return getHeight(tile, lat, lon);
+            // opening a tile can close another one, so we read the tile while no other tile can be opened, and only if
+            // it was not closed since we got it
+            synchronized (tiles) {
+                if (tiles.get(key) == task)
+                    return getHeight(tile, lat, lon);
+            }
+        }
+    }
+
+    private static double getHeight(HeightTile tile, double lat, double lon) {
+        if (tile == null || tile.isSeaLevel())
+            return 0;
+        return tile.getHeight(lat, lon);
+    }
+
+    private FutureTask<HeightTile> getTile(Object key, Supplier<HeightTile> loader) {
+        FutureTask<HeightTile> task;
+        boolean load = false;
+        synchronized (tiles) {
+            task = tiles.get(key);
+            if (task == null) {
+                task = new FutureTask<>(loader::get);
+                tiles.put(key, task);
+                load = true;
+            }
+        }
+        // other threads waiting for the same tile block in get, all other tiles can be loaded at the same time
+        if (load)
+            task.run();
+        return task;
+    }
+
+    private HeightTile getLoadedTile(Object key, FutureTask<HeightTile> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            synchronized (tiles) {
+                tiles.remove(key, task);
+            }
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Closes the least recently used tile if there are more than maxOpenTiles.
+     */
+    private boolean closeEldestTile(FutureTask<HeightTile> eldest) {
+        if (maxOpenTiles <= 0 || tiles.size() <= maxOpenTiles || !eldest.isDone())
+            return false;
+        HeightTile tile;
+        try {
+            tile = eldest.get();
+        } catch (Exception ex) {
+            // the tile could not be loaded and is removed by the thread that tried to load it
+            return false;
+        }
+        if (tile != null) {
+            String name = tile.getHeights().getName();
+            // the data was flushed after the tile was created, so there is nothing to write here
+            dir.close(name);
+            closedTiles.add(name);
+        }
+        return true;
+    }
+
+    @Override
+    public void release() {
+        synchronized (tiles) {
+            tiles.clear();
+        }
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary) {
+                dir.clear();
+                for (String name : closedTiles)
+                    Helper.removeDir(new File(dir.getLocation(), name));
+            } else
+                dir.close();
+        }
+        closedTiles.clear();
+    }
+
 }
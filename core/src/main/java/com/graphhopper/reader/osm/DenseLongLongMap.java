@@ -0,0 +1,270 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.LongLongMap;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A {@link LongLongMap} for OSM node ids that keeps most of its data outside the Java heap. OSM node ids are not
+ * random: nodes are usually created in bulk, e.g. when a way is drawn, so the node ids used by the ways of an OSM file
+ * form dense clusters. We therefore split the key space into blocks of {@link #BLOCK_SIZE} consecutive keys. As long as
+ * a block contains only a few entries they are stored as a small sorted array on the heap. Once a block contains
+ * {@link #DENSE_THRESHOLD} entries it is moved into a {@link DataAccess} where every key of the block gets a fixed slot
+ * of five bytes, so no keys need to be stored at all. Keys that are negative or very large (like the artificial ids we
+ * create for barrier nodes) are kept in a {@link GHLongLongBTree}.
+ * <p>
+ * The values are limited to five bytes (signed), just like for the b-tree we use by default.
+ */
+class DenseLongLongMap implements LongLongMap {
+    private static final int BLOCK_BITS = 10;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    // the blocks are grouped into chunks that are only allocated when they are needed
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // with five bytes per slot a dense block needs less memory than a sparse one with eight bytes per entry (plus
+    // overhead) once a quarter of its slots are used
+    private static final int DENSE_THRESHOLD = BLOCK_SIZE / 4;
+    // larger keys do not fit into our block arrays. the largest OSM node id is currently around 1.3e10
+    private static final long MAX_KEY = 1L << 36;
+    private static final long VALUE_MASK = (1L << 40) - 1;
+    private static final long MAX_VALUE = (1L << 39) - 1;
+    private static final long MIN_VALUE = -(1L << 39);
+
+    private final Directory dir;
+    private final String name;
+    private final DAType type;
+    private final long emptyValue;
+    private final GHLongLongBTree overflow;
+    // stores the lowest four bytes of the dense slots
+    private DataAccess ints;
+    // stores the highest byte of the dense slots
+    private DataAccess bytes;
+    private Chunk[] chunks;
+    private int chunkCount;
+    private int denseBlockCount;
+    private long sparseEntries;
+    private long size;
+
+    /**
+     * @param dir        the directory used to create the temporary storage for the dense blocks
+     * @param name       the prefix for the names of the temporary storage
+     * @param type       the DAType of the temporary storage, use {@link DAType#MMAP} to keep the data off-heap
+     * @param emptyValue the value returned for keys that were not added. It must not be used as a value.
+     */
+    DenseLongLongMap(Directory dir, String name, DAType type, long emptyValue) {
+        if (emptyValue > MAX_VALUE || emptyValue < MIN_VALUE)
+            throw new IllegalArgumentException("empty value must be in [" + MIN_VALUE + ", " + MAX_VALUE + "], but was: " + emptyValue);
+        this.dir = dir;
+        this.name = name;
+        this.type = type;
+        this.emptyValue = emptyValue;
+        overflow = new GHLongLongBTree(200, 5, emptyValue);
+        clear();
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > MAX_VALUE || value < MIN_VALUE)
+            throw new IllegalArgumentException("Value " + value + " must be in [" + MIN_VALUE + ", " + MAX_VALUE + "]");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (key < 0 || key >= MAX_KEY) {
+            long old = overflow.put(key, value);
+            if (old == emptyValue)
+                size++;
+            return old;
+        }
+
+        Chunk chunk = chunks[(int) (key >>> (BLOCK_BITS + CHUNK_BITS))];
+        if (chunk == null) {
+            chunk = chunks[(int) (key >>> (BLOCK_BITS + CHUNK_BITS))] = new Chunk();
+            chunkCount++;
+        }
+        int block = (int) (key >>> BLOCK_BITS) & CHUNK_MASK;
+        int offset = (int) (key & BLOCK_MASK);
+        if (chunk.denseBlocks[block] == 0) {
+            long[] entries = chunk.sparseBlocks[block];
+            int count = chunk.sparseSizes[block];
+            int index = search(entries, count, offset);
+            if (index >= 0) {
+                long old = decode(entries[index]);
+                entries[index] = encode(offset, value);
+                return old;
+            }
+            if (count < DENSE_THRESHOLD) {
+                index = ~index;
+                if (entries == null)
+                    entries = chunk.sparseBlocks[block] = new long[4];
+                else if (count == entries.length)
+                    entries = chunk.sparseBlocks[block] = Arrays.copyOf(entries, Math.min(DENSE_THRESHOLD, 2 * count));
+                System.arraycopy(entries, index, entries, index + 1, count - index);
+                entries[index] = encode(offset, value);
+                chunk.sparseSizes[block]++;
+                sparseEntries++;
+                size++;
+                return emptyValue;
+            }
+            makeDense(chunk, block);
+        }
+
+        long slot = ((long) (chunk.denseBlocks[block] - 1) << BLOCK_BITS) + offset;
+        long old = getSlot(slot);
+        setSlot(slot, value);
+        if (old == emptyValue)
+            size++;
+        return old;
+    }
+
+    @Override
+    public long get(long key) {
+        if (key < 0 || key >= MAX_KEY)
+            return overflow.get(key);
+
+        Chunk chunk = chunks[(int) (key >>> (BLOCK_BITS + CHUNK_BITS))];
+        if (chunk == null)
+            return emptyValue;
+        int block = (int) (key >>> BLOCK_BITS) & CHUNK_MASK;
+        int offset = (int) (key & BLOCK_MASK);
+        int denseBlock = chunk.denseBlocks[block];
+        if (denseBlock > 0)
+            return getSlot(((long) (denseBlock - 1) << BLOCK_BITS) + offset);
+        int index = search(chunk.sparseBlocks[block], chunk.sparseSizes[block], offset);
+        return index < 0 ? emptyValue : decode(chunk.sparseBlocks[block][index]);
+    }
+
+    private void makeDense(Chunk chunk, int block) {
+        if (ints == null) {
+            ints = dir.create(name + "_ints", type).create(4L * BLOCK_SIZE);
+            bytes = dir.create(name + "_bytes", type).create(BLOCK_SIZE);
+        }
+        long firstSlot = (long) denseBlockCount << BLOCK_BITS;
+        ints.ensureCapacity(4 * (firstSlot + BLOCK_SIZE));
+        bytes.ensureCapacity(firstSlot + BLOCK_SIZE);
+        denseBlockCount++;
+        chunk.denseBlocks[block] = denseBlockCount;
+
+        long[] entries = chunk.sparseBlocks[block];
+        for (int i = 0; i < chunk.sparseSizes[block]; i++)
+            setSlot(firstSlot + (entries[i] >>> 40), decode(entries[i]));
+        sparseEntries -= chunk.sparseSizes[block];
+        chunk.sparseBlocks[block] = null;
+        chunk.sparseSizes[block] = 0;
+    }
+
+    /**
+     * We store value ^ emptyValue, which is zero for the empty value. This way a new dense block (filled with zeros)
+     * does not need to be initialized.
+     */
+    private long getSlot(long slot) {
+        long stored = ((long) bytes.getByte(slot) << 32) | (ints.getInt(4 * slot) & 0xFFFF_FFFFL);
+        return stored ^ emptyValue;
+    }
+
+    private void setSlot(long slot, long value) {
+        long stored = value ^ emptyValue;
+        ints.setInt(4 * slot, (int) stored);
+        bytes.setByte(slot, (byte) (stored >> 32));
+    }
+
+    private static long encode(int offset, long value) {
+        return ((long) offset << 40) | (value & VALUE_MASK);
+    }
+
+    private static long decode(long entry) {
+        // restore the sign of the value
+        return (entry << 24) >> 24;
+    }
+
+    private static int search(long[] entries, int count, int offset) {
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midOffset = entries[mid] >>> 40;
+            if (midOffset < offset)
+                low = mid + 1;
+            else if (midOffset > offset)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return ~low;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public long getMaxValue() {
+        return MAX_VALUE;
+    }
+
+    @Override
+    public void optimize() {
+        // nothing to do
+    }
+
+    /**
+     * @return memory usage in MB, including the off-heap part
+     */
+    @Override
+    public int getMemoryUsage() {
+        long bytesUsed = 10L * CHUNK_SIZE * chunkCount + 8L * sparseEntries + 5L * BLOCK_SIZE * denseBlockCount;
+        return Math.round(bytesUsed / Helper.MB) + overflow.getMemoryUsage();
+    }
+
+    @Override
+    public void clear() {
+        if (ints != null) {
+            dir.remove(ints.getName());
+            dir.remove(bytes.getName());
+            ints = null;
+            bytes = null;
+        }
+        overflow.clear();
+        chunks = new Chunk[(int) (MAX_KEY >>> (BLOCK_BITS + CHUNK_BITS))];
+        chunkCount = 0;
+        denseBlockCount = 0;
+        sparseEntries = 0;
+        size = 0;
+    }
+
+    private static class Chunk {
+        // for each block: 0 if the block is sparse, otherwise the index of the dense block + 1
+        final int[] denseBlocks = new int[CHUNK_SIZE];
+        // for each sparse block: the entries sorted by key, each entry contains the block offset and the value
+        final long[][] sparseBlocks = new long[CHUNK_SIZE][];
+        final short[] sparseSizes = new short[CHUNK_SIZE];
+    }
+
+    @Override
+    public String toString() {
+        return "size: " + size + ", dense blocks: " + denseBlockCount + ", sparse entries: " + sparseEntries
+                + ", overflow: " + overflow.getSize();
+    }
+}
@@ -24,6 +24,7 @@ import com.graphhopper.coll.GHLongLongBTree;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -80,10 +81,20 @@ class OSMNodeData {
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
+        this(nodeAccess, directory, false);
+    }
+
+    /**
+     * @param offHeapNodeIds true if the node id mapping shall be stored in a memory mapped file instead of the heap,
+     *                       see {@link DenseLongLongMap}
+     */
+    public OSMNodeData(PointAccess nodeAccess, Directory directory, boolean offHeapNodeIds) {
         // We use a b-tree that can store as many entries as there are longs. A tree is also more
         // memory efficient, because there is no waste for empty entries, and it also avoids
         // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        idsByOsmNodeIds = offHeapNodeIds
+                ? new DenseLongLongMap(directory, "tmp_osm_node_ids", DAType.MMAP, EMPTY_NODE)
+                : new GHLongLongBTree(200, 5, EMPTY_NODE);
         towerNodes = nodeAccess;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
@@ -184,6 +195,18 @@ class OSMNodeData {
         return id;
     }
 
+    /**
+     * Overwrites the coordinates of the given tower or pillar node, e.g. to set the elevation after it was looked up
+     */
+    public void setCoordinates(long id, double lat, double lon, double ele) {
+        if (isTowerNode(id))
+            towerNodes.setNode(idToTowerNode(id), lat, lon, ele);
+        else if (isPillarNode(id))
+            pillarNodes.setNode(idToPillarNode(id), lat, lon, ele);
+        else
+            throw new IllegalArgumentException("Invalid node id: " + id);
+    }
+
     /**
      * Creates a copy of the coordinates stored for the given node ID
      *
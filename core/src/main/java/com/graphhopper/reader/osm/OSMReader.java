@@ -31,6 +31,7 @@ import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.ev.State;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
@@ -53,6 +54,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -90,10 +95,13 @@ public class OSMReader {
     private CountryRuleFactory countryRuleFactory = null;
     private File osmFile;
     private final RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker();
-    private int bugCounter = 0;
+    private final AtomicInteger bugCounter = new AtomicInteger();
     private final IntsRef tempRelFlags;
     private Date osmDataDate;
-    private long zeroCounter = 0;
+    private final AtomicLong zeroCounter = new AtomicLong();
+    private ExecutorService parseExecutor;
+    private int edgeBatchSize = 10_000;
+    private final List<PendingEdge> pendingEdges = new ArrayList<>();
 
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
@@ -149,6 +157,15 @@ public class OSMReader {
         return this;
     }
 
+    /**
+     * Sets the number of edges whose tags are parsed concurrently before they are added to the graph. This is only
+     * used if {@link OSMReaderConfig#getParseThreads()} is larger than one.
+     */
+    OSMReader setEdgeBatchSize(int edgeBatchSize) {
+        this.edgeBatchSize = edgeBatchSize;
+        return this;
+    }
+
     public void readGraph() throws IOException {
         if (osmParsers == null)
             throw new IllegalStateException("Tag parsers were not set.");
@@ -162,7 +179,7 @@ public class OSMReader {
         if (!baseGraph.isInitialized())
             throw new IllegalStateException("BaseGraph must be initialize before we can read OSM");
 
-        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
+        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory(), config.isOffHeapNodeIds())
                 .setElevationProvider(this::getElevation)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
@@ -171,8 +188,20 @@ public class OSMReader {
                 .setRelationProcessor(this::processRelation)
                 .setEdgeHandler(this::addEdge)
                 .setWorkerThreads(config.getWorkerThreads())
+                .setElevationThreads(config.getElevationThreads())
                 .build();
-        waySegmentParser.readOSM(osmFile);
+        if (config.getParseThreads() > 1)
+            parseExecutor = Executors.newFixedThreadPool(config.getParseThreads());
+        try {
+            waySegmentParser.readOSM(osmFile);
+            // the last batch of edges has not been added yet
+            flushPendingEdges();
+        } finally {
+            if (parseExecutor != null) {
+                parseExecutor.shutdown();
+                parseExecutor = null;
+            }
+        }
         osmDataDate = waySegmentParser.getTimestamp();
         if (baseGraph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty");
@@ -180,7 +209,7 @@ public class OSMReader {
         addRestrictionsToGraph();
         releaseRestrictionData();
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
-                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter.get()));
     }
 
     /**
@@ -329,11 +358,35 @@ public class OSMReader {
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
         // go together
 
-        if (pointList.is3D()) {
-            // sample points along long edges
-            if (config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
-                pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+        // sample points along long edges. the elevation provider is not thread-safe so this cannot be done in parallel
+        if (pointList.is3D() && config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
+            pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
 
+        if (parseExecutor != null) {
+            // the way is modified for every edge, so every pending edge needs its own copy
+            pendingEdges.add(new PendingEdge(fromIndex, toIndex, pointList, copyWay(way), nodeTags,
+                    IntsRef.deepCopyOf(getRelFlagsMap(way.getId())), baseGraph.createEdgeFlags()));
+            if (pendingEdges.size() >= edgeBatchSize)
+                flushPendingEdges();
+            return;
+        }
+
+        double distance = prepareEdge(pointList, way, nodeTags);
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
+        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        finishEdge(edge, fromIndex, toIndex, pointList, way);
+    }
+
+    /**
+     * Smooths and simplifies the given point list, calculates the edge distance and sets the artificial way tags. This
+     * does not access the graph and is called concurrently when {@link OSMReaderConfig#getParseThreads()} is larger
+     * than one.
+     *
+     * @return the distance of the edge
+     */
+    private double prepareEdge(PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+        if (pointList.is3D()) {
             // smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
             if (config.getElevationSmoothing().equals("ramer"))
                 EdgeElevationSmoothingRamer.smooth(pointList, config.getElevationSmoothingRamerMax());
@@ -351,13 +404,13 @@ public class OSMReader {
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
             // but end up in two very close points.
-            zeroCounter++;
+            zeroCounter.incrementAndGet();
             distance = 0.001;
         }
 
         double maxDistance = (Integer.MAX_VALUE - 1) / 1000d;
         if (Double.isNaN(distance)) {
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
             distance = 1;
         }
 
@@ -365,17 +418,18 @@ public class OSMReader {
             // Too large is very rare and often the wrong tagging. See #435
             // so we can avoid the complexity of splitting the way for now (new towernodes would be required, splitting up geometry etc)
             // For example this happens here: https://www.openstreetmap.org/way/672506453 (Cape Town - Tristan da Cunha ferry)
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
             distance = maxDistance;
         }
 
-        if (bugCounter > 30)
-            throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter);
+        if (bugCounter.get() > 30)
+            throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter.get());
 
         setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        return distance;
+    }
+
+    private void finishEdge(EdgeIteratorState edge, int fromIndex, int toIndex, PointList pointList, ReaderWay way) {
         Map<String, KValue> map = way.getTag("key_values", Collections.emptyMap());
         if (!map.isEmpty())
             edge.setKeyValues(map);
@@ -393,6 +447,39 @@ public class OSMReader {
         restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
     }
 
+    /**
+     * Parses the tags of all pending edges using the parse threads and then adds the edges to the graph in the order
+     * they were received. Since the edges are added in order we know their edge IDs before they are created, so the
+     * tag parsers can write the edge flags into a temporary buffer that is copied into the graph afterwards.
+     */
+    private void flushPendingEdges() {
+        if (pendingEdges.isEmpty())
+            return;
+        final int firstEdge = baseGraph.getEdges();
+        final int count = pendingEdges.size();
+        GHUtility.runInParallel(parseExecutor, config.getParseThreads(), count, (worker, i) -> {
+            PendingEdge pending = pendingEdges.get(i);
+            pending.distance = prepareEdge(pending.pointList, pending.way, pending.nodeTags);
+            osmParsers.handleWayTags(firstEdge + i, new IntsRefEdgeIntAccess(pending.edgeFlags), pending.way, pending.relationFlags);
+        });
+
+        for (int i = 0; i < count; i++) {
+            PendingEdge pending = pendingEdges.get(i);
+            EdgeIteratorState edge = baseGraph.edge(pending.fromIndex, pending.toIndex).setDistance(pending.distance).setFlags(pending.edgeFlags);
+            if (edge.getEdge() != firstEdge + i)
+                throw new IllegalStateException("Unexpected edge ID " + edge.getEdge() + ", expected: " + (firstEdge + i));
+            finishEdge(edge, pending.fromIndex, pending.toIndex, pending.pointList, pending.way);
+        }
+        pendingEdges.clear();
+    }
+
+    private static ReaderWay copyWay(ReaderWay way) {
+        ReaderWay copy = new ReaderWay(way.getId());
+        copy.setTags(way.getTags());
+        copy.getNodes().addAll(way.getNodes());
+        return copy;
+    }
+
     private void checkCoordinates(int nodeIndex, GHPoint point) {
         final double tolerance = 1.e-6;
         if (Math.abs(nodeAccess.getLat(nodeIndex) - point.getLat()) > tolerance || Math.abs(nodeAccess.getLon(nodeIndex) - point.getLon()) > tolerance)
@@ -690,4 +777,26 @@ public class OSMReader {
         return getClass().getSimpleName();
     }
 
+    private static class PendingEdge {
+        final int fromIndex;
+        final int toIndex;
+        final PointList pointList;
+        final ReaderWay way;
+        final List<Map<String, Object>> nodeTags;
+        final IntsRef relationFlags;
+        final IntsRef edgeFlags;
+        double distance;
+
+        PendingEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags,
+                    IntsRef relationFlags, IntsRef edgeFlags) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.pointList = pointList;
+            this.way = way;
+            this.nodeTags = nodeTags;
+            this.relationFlags = relationFlags;
+            this.edgeFlags = edgeFlags;
+        }
+    }
+
 }
@@ -18,12 +18,14 @@
 
 package com.graphhopper.reader.osm;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -37,6 +39,8 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.*;
 
 import static com.graphhopper.reader.osm.OSMNodeData.*;
@@ -60,6 +64,7 @@ import static com.graphhopper.util.Helper.nf;
  */
 public class WaySegmentParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(WaySegmentParser.class);
+    private static final int ELEVATION_BATCH_SIZE = 100_000;
     private static final Set<String> INCLUDE_IF_NODE_TAGS = new HashSet<>(Arrays.asList("barrier", "highway", "railway", "crossing", "ford"));
 
     private ToDoubleFunction<ReaderNode> elevationProvider = node -> 0d;
@@ -74,6 +79,7 @@ public class WaySegmentParser {
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
     private int workerThreads = 2;
+    private int elevationThreads = 1;
 
     private final OSMNodeData nodeData;
     private Date timestamp;
@@ -101,7 +107,14 @@ public class WaySegmentParser {
 
         LOGGER.info("pass2 - start");
         StopWatch sw2 = new StopWatch().start();
-        readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
+        // the elevation is looked up in batches and all batches share the same threads
+        ExecutorService elevationExecutor = elevationThreads > 1 && nodeData.is3D() ? Executors.newFixedThreadPool(elevationThreads) : null;
+        try {
+            readOSM(osmFile, new Pass2Handler(elevationExecutor), SkipOptions.none());
+        } finally {
+            if (elevationExecutor != null)
+                elevationExecutor.shutdown();
+        }
         LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
 
         nodeData.release();
@@ -187,6 +200,14 @@ public class WaySegmentParser {
         private long acceptedNodes = 0;
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
+        // nodes whose elevation is looked up in the next batch, only used if there is an elevation executor
+        private final ExecutorService elevationExecutor;
+        private final List<ReaderNode> elevationNodes = new ArrayList<>();
+        private final LongArrayList elevationNodeIds = new LongArrayList();
+
+        Pass2Handler(ExecutorService elevationExecutor) {
+            this.elevationExecutor = elevationExecutor;
+        }
 
         @Override
         public void handleNode(ReaderNode node) {
@@ -203,10 +224,19 @@ public class WaySegmentParser {
                 LOGGER.info("pass2 - processed nodes: " + nf(nodeCounter) + ", accepted nodes: " + nf(acceptedNodes) +
                         ", " + Helper.getMemInfo());
 
-            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> elevationProvider.applyAsDouble(node));
+            boolean batchElevation = elevationExecutor != null;
+            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(),
+                    batchElevation ? () -> 0 : () -> elevationProvider.applyAsDouble(node));
             if (nodeType == EMPTY_NODE)
                 return;
 
+            if (batchElevation) {
+                elevationNodes.add(node);
+                elevationNodeIds.add(nodeData.getId(node.getId()));
+                if (elevationNodes.size() == ELEVATION_BATCH_SIZE)
+                    setElevations();
+            }
+
             acceptedNodes++;
 
             // remember which nodes we want to split
@@ -232,11 +262,34 @@ public class WaySegmentParser {
             }
         }
 
+        /**
+         * Looks up the elevation of the collected nodes using elevationThreads threads. Every thread handles a
+         * contiguous range of nodes, so it will mostly need the same elevation tiles for all of them. The results are
+         * stored sequentially afterwards.
+         */
+        private void setElevations() {
+            if (elevationNodes.isEmpty())
+                return;
+            double[] elevations = new double[elevationNodes.size()];
+            int chunkSize = (elevations.length + elevationThreads - 1) / elevationThreads;
+            GHUtility.runInParallel(elevationExecutor, elevationThreads, elevationThreads, (worker, t) -> {
+                for (int i = t * chunkSize; i < Math.min(elevations.length, (t + 1) * chunkSize); i++)
+                    elevations[i] = elevationProvider.applyAsDouble(elevationNodes.get(i));
+            });
+            for (int i = 0; i < elevations.length; i++) {
+                ReaderNode node = elevationNodes.get(i);
+                nodeData.setCoordinates(elevationNodeIds.get(i), node.getLat(), node.getLon(), elevations[i]);
+            }
+            elevationNodes.clear();
+            elevationNodeIds.clear();
+        }
+
         @Override
         public void handleWay(ReaderWay way) {
             if (!handledWays) {
                 LOGGER.info("pass2 - start reading OSM ways");
                 handledWays = true;
+                setElevations();
             }
             if (handledRelations)
                 throw new IllegalStateException("OSM way elements must be located before relation elements in OSM file");
@@ -372,6 +425,7 @@ public class WaySegmentParser {
             if (!handledRelations) {
                 LOGGER.info("pass2 - start reading OSM relations");
                 handledRelations = true;
+                setElevations();
             }
 
             relationProcessor.processRelation(relation, this::getInternalNodeIdOfOSMNode);
@@ -379,6 +433,7 @@ public class WaySegmentParser {
 
         @Override
         public void onFinish() {
+            setElevations();
             LOGGER.info("pass2 - finished, processed ways: {}, way nodes: {}, nodes with tags: {}, node tag capacity: {}, ignored barriers at junctions: {}",
                     nf(wayCounter), nf(acceptedNodes), nf(nodeData.getTaggedNodeCount()), nf(nodeData.getNodeTagCapacity()), nf(ignoredSplitNodes));
         }
@@ -416,7 +471,17 @@ public class WaySegmentParser {
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            this(pointAccess, directory, false);
+        }
+
+        /**
+         * @param pointAccess    used to store tower node coordinates while parsing the ways
+         * @param directory      the directory to be used to store temporary data
+         * @param offHeapNodeIds true if the mapping between OSM node ids and our internal node ids shall be kept in a
+         *                       memory mapped file rather than on the heap
+         */
+        public Builder(PointAccess pointAccess, Directory directory, boolean offHeapNodeIds) {
+            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory, offHeapNodeIds));
         }
 
         /**
@@ -483,6 +548,17 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param elevationThreads the number of threads used to look up the elevation of the OSM nodes. With more
+         *                         than one thread the elevation provider must be thread-safe.
+         */
+        public Builder setElevationThreads(int elevationThreads) {
+            if (elevationThreads < 1)
+                throw new IllegalArgumentException("elevation threads must be at least 1, but was: " + elevationThreads);
+            waySegmentParser.elevationThreads = elevationThreads;
+            return this;
+        }
+
         public WaySegmentParser build() {
             return waySegmentParser;
         }
@@ -67,8 +67,8 @@ public class AStar extends AbstractRoutingAlgorithm implements EdgeToEdgeRouting
     }
 
     protected void initCollections(int size) {
-        fromMap = new GHIntObjectHashMap<>();
-        fromHeap = new PriorityQueue<>(size);
+        fromMap = SearchStatePool.createMap(size);
+        fromHeap = SearchStatePool.createQueue(size);
     }
 
     @Override
@@ -44,8 +44,11 @@ public class CHPathCalculator implements PathCalculator {
     public List<Path> calcPaths(int from, int to, EdgeRestrictions edgeRestrictions) {
         if (!edgeRestrictions.getUnfavoredEdges().isEmpty())
             throw new IllegalArgumentException("Using unfavored edges is currently not supported for CH");
-        EdgeToEdgeRoutingAlgorithm algo = createAlgo();
-        return calcPaths(from, to, edgeRestrictions, algo);
+        // the algorithm is not used after this method, so it can use the collections of previous queries
+        try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+            EdgeToEdgeRoutingAlgorithm algo = createAlgo();
+            return calcPaths(from, to, edgeRestrictions, algo);
+        }
     }
 
     private EdgeToEdgeRoutingAlgorithm createAlgo() {
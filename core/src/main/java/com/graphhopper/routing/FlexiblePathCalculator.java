@@ -47,8 +47,11 @@ public class FlexiblePathCalculator implements PathCalculator {
 
     @Override
     public List<Path> calcPaths(int from, int to, EdgeRestrictions edgeRestrictions) {
-        RoutingAlgorithm algo = createAlgo();
-        return calcPaths(from, to, edgeRestrictions, algo);
+        // the algorithm is not used after this method, so it can use the collections of previous queries
+        try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+            RoutingAlgorithm algo = createAlgo();
+            return calcPaths(from, to, edgeRestrictions, algo);
+        }
     }
 
     private RoutingAlgorithm createAlgo() {
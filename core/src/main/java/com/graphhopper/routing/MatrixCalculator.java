@@ -0,0 +1,275 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.*;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates many-to-many weight (and optionally time and distance) matrices on a node-based CH graph using the bucket
+ * algorithm (Knopp et al., 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies'): First we run one backward
+ * upward search per target and store the weights of all settled nodes in a 'bucket' at the respective node. Then we run
+ * one forward upward search per source and scan the buckets of every settled node. This way a n x m matrix requires
+ * n + m searches instead of n * m.
+ * <p>
+ * Both searches use the same simple stall-on-demand as {@link DijkstraBidirectionCH}. The given graph can also be a
+ * {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph}.
+ */
+public class MatrixCalculator {
+    private final RoutingCHGraph graph;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final int maxNodes;
+    private boolean calcTimes = true;
+    private boolean calcDistances = true;
+    private int visitedNodes;
+
+    // the buckets are stored as linked lists of entries: for every node we store the index of the first entry and for
+    // every entry the index of the next entry
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntArrayList bucketTargets = new IntArrayList();
+    private final List<SPTEntry> bucketEntries = new ArrayList<>();
+
+    // time and distance of the original edges packed into a CH edge, keyed by CH edge and adjacent node
+    private final LongLongHashMap fwdTimes = new LongLongHashMap();
+    private final LongDoubleHashMap fwdDistances = new LongDoubleHashMap();
+    private final LongLongHashMap bwdTimes = new LongLongHashMap();
+    private final LongDoubleHashMap bwdDistances = new LongDoubleHashMap();
+    private final ShortcutUnpacker shortcutUnpacker;
+    private long unpackedTime;
+    private double unpackedDistance;
+
+    public MatrixCalculator(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Matrix calculation is currently only supported for node-based CH profiles, i.e. profiles without turn costs");
+        this.graph = graph;
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedTime += graph.getWeighting().calcEdgeMillis(edge, reverse);
+            unpackedDistance += edge.getDistance();
+        }, false);
+    }
+
+    public MatrixCalculator setCalcTimes(boolean calcTimes) {
+        this.calcTimes = calcTimes;
+        return this;
+    }
+
+    public MatrixCalculator setCalcDistances(boolean calcDistances) {
+        this.calcDistances = calcDistances;
+        return this;
+    }
+
+    /**
+     * @param fromNodes the source nodes, negative values are interpreted as invalid points and their row will be
+     *                  filled with infinite weights
+     * @param toNodes   the target nodes, negative values are interpreted as invalid points and their column will be
+     *                  filled with infinite weights
+     */
+    public Result calcMatrix(int[] fromNodes, int[] toNodes) {
+        Result result = new Result(fromNodes.length, toNodes.length, calcTimes, calcDistances);
+        bucketHeads.clear();
+        bucketNext.clear();
+        bucketTargets.clear();
+        bucketEntries.clear();
+        visitedNodes = 0;
+
+        for (int j = 0; j < toNodes.length; j++) {
+            if (toNodes[j] < 0)
+                continue;
+            final int target = j;
+            search(toNodes[j], true, entry -> addToBucket(entry, target));
+        }
+
+        SPTEntry[] bestFwdEntries = new SPTEntry[toNodes.length];
+        SPTEntry[] bestBwdEntries = new SPTEntry[toNodes.length];
+        for (int i = 0; i < fromNodes.length; i++) {
+            if (fromNodes[i] < 0)
+                continue;
+            final double[] weights = result.weights[i];
+            Arrays.fill(bestFwdEntries, null);
+            Arrays.fill(bestBwdEntries, null);
+            search(fromNodes[i], false, entry -> {
+                int index = bucketHeads.getOrDefault(entry.adjNode, -1);
+                while (index >= 0) {
+                    int target = bucketTargets.get(index);
+                    SPTEntry bwdEntry = bucketEntries.get(index);
+                    double weight = entry.weight + bwdEntry.weight;
+                    if (weight < weights[target]) {
+                        weights[target] = weight;
+                        bestFwdEntries[target] = entry;
+                        bestBwdEntries[target] = bwdEntry;
+                    }
+                    index = bucketNext.get(index);
+                }
+            });
+            if (calcTimes || calcDistances)
+                for (int j = 0; j < toNodes.length; j++) {
+                    if (bestFwdEntries[j] == null)
+                        continue;
+                    unpackedTime = 0;
+                    unpackedDistance = 0;
+                    addTimeAndDistance(bestFwdEntries[j], false);
+                    addTimeAndDistance(bestBwdEntries[j], true);
+                    if (calcTimes)
+                        result.times[i][j] = unpackedTime;
+                    if (calcDistances)
+                        result.distances[i][j] = unpackedDistance;
+                }
+        }
+        result.visitedNodes = visitedNodes;
+        return result;
+    }
+
+    private void addToBucket(SPTEntry entry, int target) {
+        int index = bucketTargets.size();
+        bucketTargets.add(target);
+        bucketEntries.add(entry);
+        bucketNext.add(bucketHeads.getOrDefault(entry.adjNode, -1));
+        bucketHeads.put(entry.adjNode, index);
+    }
+
+    /**
+     * Runs a Dijkstra search that only follows edges leading to higher level nodes and calls the given consumer for
+     * every node that is settled and cannot be stalled.
+     */
+    private void search(int node, boolean reverse, Consumer<SPTEntry> settledEntryConsumer) {
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        RoutingCHEdgeExplorer stallExplorer = reverse ? outEdgeExplorer : inEdgeExplorer;
+        IntObjectMap<SPTEntry> bestWeightMap = new GHIntObjectHashMap<>();
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        SPTEntry root = new SPTEntry(node, 0);
+        bestWeightMap.put(node, root);
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            SPTEntry curr = queue.poll();
+            if (curr.isDeleted())
+                continue;
+            visitedNodes++;
+            if (isStallable(curr, bestWeightMap, stallExplorer, reverse))
+                continue;
+            settledEntryConsumer.accept(curr);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (iter.getEdge() == curr.edge || !acceptLevel(iter))
+                    continue;
+                double weight = curr.weight + iter.getWeight(reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                SPTEntry entry = bestWeightMap.get(iter.getAdjNode());
+                if (entry == null || entry.weight > weight) {
+                    if (entry != null)
+                        entry.setDeleted();
+                    entry = new SPTEntry(iter.getEdge(), iter.getAdjNode(), weight, curr);
+                    bestWeightMap.put(iter.getAdjNode(), entry);
+                    queue.add(entry);
+                }
+            }
+        }
+    }
+
+    private boolean isStallable(SPTEntry entry, IntObjectMap<SPTEntry> bestWeightMap, RoutingCHEdgeExplorer stallExplorer, boolean reverse) {
+        RoutingCHEdgeIterator iter = stallExplorer.setBaseNode(entry.adjNode);
+        while (iter.next()) {
+            if (iter.getEdge() == entry.edge)
+                continue;
+            SPTEntry adjEntry = bestWeightMap.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            if (adjEntry != null && adjEntry.weight + iter.getWeight(!reverse) - entry.weight < -0.001)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean acceptLevel(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private void addTimeAndDistance(SPTEntry entry, boolean reverse) {
+        LongLongHashMap times = reverse ? bwdTimes : fwdTimes;
+        LongDoubleHashMap distances = reverse ? bwdDistances : fwdDistances;
+        while (entry.parent != null) {
+            long key = ((long) entry.edge << 32) | (entry.adjNode & 0xFFFF_FFFFL);
+            int index = times.indexOf(key);
+            if (times.indexExists(index)) {
+                unpackedTime += times.indexGet(index);
+                unpackedDistance += distances.get(key);
+            } else {
+                long prevTime = unpackedTime;
+                double prevDistance = unpackedDistance;
+                if (reverse)
+                    shortcutUnpacker.visitOriginalEdgesBwd(entry.edge, entry.adjNode, false, NO_EDGE);
+                else
+                    shortcutUnpacker.visitOriginalEdgesFwd(entry.edge, entry.adjNode, false, NO_EDGE);
+                times.put(key, unpackedTime - prevTime);
+                distances.put(key, unpackedDistance - prevDistance);
+            }
+            entry = entry.parent;
+        }
+    }
+
+    public static class Result {
+        /**
+         * the weights of the shortest paths between each source (first index) and target (second index), or
+         * {@link Double#POSITIVE_INFINITY} if no path could be found
+         */
+        public final double[][] weights;
+        /**
+         * the times in milliseconds or null if times were not calculated
+         */
+        public final long[][] times;
+        /**
+         * the distances in meters or null if distances were not calculated
+         */
+        public final double[][] distances;
+        public int visitedNodes;
+
+        Result(int sources, int targets, boolean withTimes, boolean withDistances) {
+            weights = new double[sources][targets];
+            for (double[] row : weights)
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+            times = withTimes ? new long[sources][targets] : null;
+            distances = withDistances ? new double[sources][targets] : null;
+        }
+
+        public boolean isConnected(int source, int target) {
+            return Double.isFinite(weights[source][target]);
+        }
+    }
+}
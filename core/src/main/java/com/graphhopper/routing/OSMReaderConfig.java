@@ -33,6 +33,9 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int parseThreads = 1;
+    private int elevationThreads = 1;
+    private boolean offHeapNodeIds = false;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +160,55 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * Sets the number of threads used to parse the tags of the OSM ways. With more than one thread the edges are
+     * collected in batches and their tags are parsed concurrently before they are added to the graph in their original
+     * order, so the resulting graph does not depend on this setting. The tag parsers are then called from several
+     * threads at once. The built-in parsers support this, but custom tag parsers must not modify shared state
+     * without synchronization.
+     */
+    public OSMReaderConfig setParseThreads(int parseThreads) {
+        if (parseThreads < 1)
+            throw new IllegalArgumentException("parse threads must be at least 1, but was: " + parseThreads);
+        this.parseThreads = parseThreads;
+        return this;
+    }
+
+    public int getElevationThreads() {
+        return elevationThreads;
+    }
+
+    /**
+     * Sets the number of threads used to look up the elevation of the OSM nodes. With more than one thread the nodes
+     * are collected in batches and their elevation is looked up concurrently, so different elevation tiles can be
+     * loaded at the same time. The resulting graph does not depend on this setting.
+     */
+    public OSMReaderConfig setElevationThreads(int elevationThreads) {
+        if (elevationThreads < 1)
+            throw new IllegalArgumentException("elevation threads must be at least 1, but was: " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
+    public boolean isOffHeapNodeIds() {
+        return offHeapNodeIds;
+    }
+
+    /**
+     * Sets whether the mapping between OSM node ids and our internal node ids that is needed during the import shall
+     * be stored in a memory mapped file instead of on the heap. This mapping is the biggest data structure on the heap
+     * when importing large areas. The node ids of the ways in an OSM file are mostly clustered, so we can store the
+     * mapping for most of them densely, without storing the OSM node ids themselves.
+     */
+    public OSMReaderConfig setOffHeapNodeIds(boolean offHeapNodeIds) {
+        this.offHeapNodeIds = offHeapNodeIds;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
@@ -51,6 +51,7 @@ public class Path {
     private List<String> description;
     private boolean found;
     private String debugInfo = "";
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.graph = graph;
@@ -186,6 +187,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree(s) of the routing algorithm
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -19,11 +19,15 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.CustomizableContractionHierarchies;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -48,6 +52,9 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
 import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
@@ -56,6 +63,18 @@ import static com.graphhopper.util.Parameters.Routing.*;
 import static com.graphhopper.util.TurnCostsConfig.INFINITE_U_TURN_COSTS;
 
 public class Router {
+    /**
+     * The stages of the route calculation, see {@link GHResponse#getTimings()}. The search does not include the
+     * extraction of the paths and the path merge does not include the calculation of instructions and path details.
+     */
+    public static final String STAGE_SNAP = "snap";
+    public static final String STAGE_QUERY_GRAPH = "query_graph";
+    public static final String STAGE_SEARCH = "search";
+    public static final String STAGE_PATH_EXTRACTION = "path_extraction";
+    public static final String STAGE_INSTRUCTIONS = "instructions";
+    public static final String STAGE_PATH_DETAILS = "path_details";
+    public static final String STAGE_PATH_MERGE = "path_merge";
+
     protected final BaseGraph graph;
     protected final EncodingManager encodingManager;
     protected final LocationIndex locationIndex;
@@ -68,6 +87,8 @@ public class Router {
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    protected CustomizableContractionHierarchies cch;
+    protected ExecutorService batchExecutor;
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -94,43 +115,213 @@ public class Router {
         }
     }
 
+    /**
+     * Enables speed mode for requests with a custom model for all profiles without turn costs. The graph is customized
+     * for every distinct custom model and the results are cached.
+     */
+    public Router setCustomizableCH(CustomizableContractionHierarchies cch) {
+        this.cch = cch;
+        return this;
+    }
+
+    /**
+     * Sets the executor used to calculate the routes of {@link #routeBatch}. At most
+     * {@link RouterConfig#getBatchThreads()} tasks are submitted per batch. Without an executor the batch is
+     * calculated in the calling thread.
+     */
+    public Router setBatchExecutor(ExecutorService batchExecutor) {
+        this.batchExecutor = batchExecutor;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
         try {
-            checkNoLegacyParameters(request);
-            checkAtLeastOnePoint(request);
-            checkIfPointsAreInBoundsAndNotNull(request.getPoints());
-            checkHeadings(request);
-            checkPointHints(request);
-            checkCurbsides(request);
-            checkNoBlockArea(request);
-            checkCustomModel(request);
-
-            Solver solver = createSolver(request);
-            solver.checkRequest();
-            solver.init();
+            Solver solver = createCheckedSolver(request);
+            try {
+                return addTimingsHint(request, route(request, solver));
+            } finally {
+                solver.close();
+            }
+        } catch (MultiplePointsNotFoundException | IllegalArgumentException ex) {
+            return createErrorResponse(request, ex);
+        }
+    }
 
-            if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
-                if (!(solver instanceof FlexSolver))
-                    throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
-                return routeRoundTrip(request, (FlexSolver) solver);
-            } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, solver);
-            } else {
-                return routeVia(request, solver);
+    private GHResponse route(GHRequest request, Solver solver) {
+        if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
+            if (!(solver instanceof FlexSolver))
+                throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
+            return routeRoundTrip(request, (FlexSolver) solver);
+        } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
+            return routeAlt(request, solver);
+        } else {
+            return routeVia(request, solver);
+        }
+    }
+
+    /**
+     * Calculates the routes for several requests at once. The points of all requests are snapped first and then a
+     * single {@link QueryGraph} is created for the whole batch, which is shared by all route calculations. For CH the
+     * graph that combines the query graph with the CH graph is also shared. Requests using LM, headings, pass_through
+     * or curbsides get their own query graph, and round trip and alternative route requests are calculated
+     * separately, just like in {@link #route(GHRequest)}.
+     *
+     * @return the responses in the same order as the requests. The 'took' hint of every response contains the
+     * milliseconds spent on the request, not including the time needed to create the query graph.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> requests) {
+        if (requests.size() > routerConfig.getMaxBatchSize())
+            throw new IllegalArgumentException("The number of requests must not exceed " + routerConfig.getMaxBatchSize() + ", but was: " + requests.size());
+        final int count = requests.size();
+        final GHResponse[] responses = new GHResponse[count];
+        final BatchItem[] items = new BatchItem[count];
+        final long[] nanos = new long[count];
+        try {
+            calcBatch(requests, responses, items, nanos);
+        } finally {
+            // the solvers of the items are closed after their paths were calculated, but if a request failed with an
+            // unexpected exception the remaining items were not calculated and their solvers must be closed here
+            for (BatchItem item : items)
+                if (item != null)
+                    item.solver.close();
+        }
+        for (int i = 0; i < count; i++) {
+            responses[i].getHints().putObject("took", nanos[i] / 1e6);
+            addTimingsHint(requests.get(i), responses[i]);
+        }
+        return Arrays.asList(responses);
+    }
+
+    private void calcBatch(List<GHRequest> requests, GHResponse[] responses, BatchItem[] items, long[] nanos) {
+        final int count = requests.size();
+        runBatch(count, i -> {
+            StopWatch sw = new StopWatch().start();
+            GHRequest request = requests.get(i);
+            Solver solver = null;
+            try {
+                solver = createCheckedSolver(request);
+                if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
+                    responses[i] = route(request, solver);
+                } else {
+                    long start = System.nanoTime();
+                    DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
+                    List<Snap> requestSnaps = lookupVia(request, solver, directedEdgeFilter);
+                    items[i] = new BatchItem(solver, directedEdgeFilter, requestSnaps, System.nanoTime() - start);
+                }
+            } catch (MultiplePointsNotFoundException | IllegalArgumentException ex) {
+                responses[i] = createErrorResponse(request, ex);
+            } finally {
+                // solvers of the items are closed once the paths were calculated
+                if (solver != null && items[i] == null)
+                    solver.close();
             }
-        } catch (MultiplePointsNotFoundException ex) {
-            GHResponse ghRsp = new GHResponse();
-            for (IntCursor p : ex.getPointsNotFound()) {
+            nanos[i] = sw.stop().getNanos();
+        });
+
+        List<Snap> snaps = new ArrayList<>();
+        for (BatchItem item : items)
+            if (item != null && item.solver.canShareQueryGraph())
+                snaps.addAll(item.snaps);
+        long queryGraphStart = System.nanoTime();
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        long queryGraphNanos = System.nanoTime() - queryGraphStart;
+        Map<RoutingCHGraph, CHRoutingAlgorithmFactory> chFactories = new ConcurrentHashMap<>();
+        runBatch(count, i -> {
+            if (items[i] == null)
+                return;
+            StopWatch sw = new StopWatch().start();
+            GHRequest request = requests.get(i);
+            BatchItem item = items[i];
+            try {
+                GHResponse ghRsp = new GHResponse();
+                ghRsp.addTiming(STAGE_SNAP, item.snapNanos);
+                if (item.solver.canShareQueryGraph()) {
+                    // the shared query graph is created for the whole batch, but we report its creation time anyway
+                    ghRsp.addTiming(STAGE_QUERY_GRAPH, queryGraphNanos);
+                    PathCalculator pathCalculator = item.solver.createPathCalculator(queryGraph, chFactories);
+                    calcViaPaths(ghRsp, request, item.solver, queryGraph, pathCalculator, item.snaps, item.directedEdgeFilter);
+                } else {
+                    long start = System.nanoTime();
+                    QueryGraph ownQueryGraph = QueryGraph.create(graph, item.snaps);
+                    ghRsp.addTiming(STAGE_QUERY_GRAPH, System.nanoTime() - start);
+                    PathCalculator pathCalculator = item.solver.createPathCalculator(ownQueryGraph);
+                    calcViaPaths(ghRsp, request, item.solver, ownQueryGraph, pathCalculator, item.snaps, item.directedEdgeFilter);
+                }
+                responses[i] = ghRsp;
+            } catch (IllegalArgumentException ex) {
+                responses[i] = createErrorResponse(request, ex);
+            } finally {
+                items[i] = null;
+                item.solver.close();
+            }
+            nanos[i] += sw.stop().getNanos();
+        });
+    }
+
+    private void runBatch(int count, IntConsumer task) {
+        int threads = Math.min(routerConfig.getBatchThreads(), count);
+        if (batchExecutor == null || threads <= 1) {
+            for (int i = 0; i < count; i++)
+                task.accept(i);
+            return;
+        }
+        GHUtility.runInParallel(batchExecutor, threads, count, (worker, i) -> task.accept(i));
+    }
+
+    private Solver createCheckedSolver(GHRequest request) {
+        checkNoLegacyParameters(request);
+        checkAtLeastOnePoint(request);
+        checkIfPointsAreInBoundsAndNotNull(request.getPoints());
+        checkHeadings(request);
+        checkPointHints(request);
+        checkCurbsides(request);
+        checkNoBlockArea(request);
+        checkCustomModel(request);
+
+        Solver solver = createSolver(request);
+        solver.checkRequest();
+        solver.init();
+        return solver;
+    }
+
+    private static GHResponse createErrorResponse(GHRequest request, RuntimeException ex) {
+        GHResponse ghRsp = new GHResponse();
+        if (ex instanceof MultiplePointsNotFoundException) {
+            for (IntCursor p : ((MultiplePointsNotFoundException) ex).getPointsNotFound()) {
                 ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
             }
-            return ghRsp;
-        } catch (IllegalArgumentException ex) {
-            GHResponse ghRsp = new GHResponse();
+        } else {
             ghRsp.addError(ex);
-            return ghRsp;
+        }
+        return ghRsp;
+    }
+
+    private static class BatchItem {
+        final Solver solver;
+        final DirectedEdgeFilter directedEdgeFilter;
+        final List<Snap> snaps;
+        final long snapNanos;
+
+        BatchItem(Solver solver, DirectedEdgeFilter directedEdgeFilter, List<Snap> snaps, long snapNanos) {
+            this.solver = solver;
+            this.directedEdgeFilter = directedEdgeFilter;
+            this.snaps = snaps;
+            this.snapNanos = snapNanos;
         }
     }
 
+    /**
+     * Adds the timings of the response in milliseconds to its hints, if the request asks for them
+     */
+    private static GHResponse addTimingsHint(GHRequest request, GHResponse ghRsp) {
+        if (!request.getHints().getBool(TIMINGS, false) || ghRsp.getTimings().isEmpty())
+            return ghRsp;
+        Map<String, Double> timings = new LinkedHashMap<>();
+        ghRsp.getTimings().forEach((stage, nanos) -> timings.put(stage, nanos / 1e6));
+        ghRsp.getHints().putObject(TIMINGS, timings);
+        return ghRsp;
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -190,7 +381,9 @@ public class Router {
     protected Solver createSolver(GHRequest request) {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
-        if (chEnabled && !disableCH) {
+        if (cch != null && !disableCH && request.getCustomModel() != null && supportsCCH(request.getProfile())) {
+            return createCCHSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, cch);
+        } else if (chEnabled && !disableCH) {
             return createCHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
         } else if (lmEnabled && !disableLM) {
             return createLMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
@@ -204,6 +397,17 @@ public class Router {
         return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
     }
 
+    protected Solver createCCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
+                                     EncodingManager encodingManager, WeightingFactory weightingFactory, CustomizableContractionHierarchies cch) {
+        return new CCHSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, cch);
+    }
+
+    private boolean supportsCCH(String profileName) {
+        // for unknown profiles we fall through to the other solvers, which report the error
+        Profile profile = profilesByName.get(profileName);
+        return profile != null && !profile.hasTurnCosts();
+    }
+
     protected Solver createLMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
                                     EncodingManager encodingManager, WeightingFactory weightingFactory, BaseGraph baseGraph,
                                     LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks) {
@@ -223,15 +427,20 @@ public class Router {
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
         List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        ghRsp.addTiming(STAGE_SNAP, sw.getNanos());
 
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryGraph queryGraph = createQueryGraph(ghRsp, snaps);
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
+        long start = System.nanoTime();
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        long extractionNanos = result.paths.stream().mapToLong(Path::getExtractionNanos).sum();
+        ghRsp.addTiming(STAGE_SEARCH, System.nanoTime() - start - extractionNanos);
+        ghRsp.addTiming(STAGE_PATH_EXTRACTION, extractionNanos);
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
-        ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, result.wayPoints);
+        ResponsePath responsePath = concatenatePaths(ghRsp, request, solver.weighting, queryGraph, result.paths, result.wayPoints);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
@@ -247,7 +456,8 @@ public class Router {
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        ghRsp.addTiming(STAGE_SNAP, sw.getNanos());
+        QueryGraph queryGraph = createQueryGraph(ghRsp, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
@@ -260,14 +470,18 @@ public class Router {
                 pathCalculator, request.getCurbsides(), curbsideStrictness, request.getHeadings(), passThrough);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
+        ghRsp.addTiming(STAGE_SEARCH, result.searchNanos);
+        ghRsp.addTiming(STAGE_PATH_EXTRACTION, result.extractionNanos);
 
         // each path represents a different alternative and we do the path merging for each of them
+        long start = System.nanoTime();
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        addPathMergeTimings(ghRsp, pathMerger, System.nanoTime() - start);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
         return ghRsp;
@@ -277,13 +491,24 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+        List<Snap> snaps = lookupVia(request, solver, directedEdgeFilter);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        ghRsp.addTiming(STAGE_SNAP, sw.getNanos());
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryGraph queryGraph = createQueryGraph(ghRsp, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        calcViaPaths(ghRsp, request, solver, queryGraph, pathCalculator, snaps, directedEdgeFilter);
+        return ghRsp;
+    }
+
+    private List<Snap> lookupVia(GHRequest request, Solver solver, DirectedEdgeFilter directedEdgeFilter) {
+        return ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+    }
+
+    private void calcViaPaths(GHResponse ghRsp, GHRequest request, Solver solver, QueryGraph queryGraph, PathCalculator pathCalculator,
+                              List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter) {
         boolean passThrough = getPassThrough(request.getHints());
         String curbsideStrictness = getCurbsideStrictness(request.getHints());
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
@@ -291,14 +516,15 @@ public class Router {
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
+        ghRsp.addTiming(STAGE_SEARCH, result.searchNanos);
+        ghRsp.addTiming(STAGE_PATH_EXTRACTION, result.extractionNanos);
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
-        ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
+        ResponsePath responsePath = concatenatePaths(ghRsp, request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
-        return ghRsp;
     }
 
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
@@ -322,9 +548,25 @@ public class Router {
         return pathMerger;
     }
 
-    private ResponsePath concatenatePaths(GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Path> paths, PointList waypoints) {
+    private ResponsePath concatenatePaths(GHResponse ghRsp, GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Path> paths, PointList waypoints) {
+        long start = System.nanoTime();
         PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
-        return pathMerger.doWork(waypoints, paths, encodingManager, translationMap.getWithFallBack(request.getLocale()));
+        ResponsePath responsePath = pathMerger.doWork(waypoints, paths, encodingManager, translationMap.getWithFallBack(request.getLocale()));
+        addPathMergeTimings(ghRsp, pathMerger, System.nanoTime() - start);
+        return responsePath;
+    }
+
+    private static void addPathMergeTimings(GHResponse ghRsp, PathMerger pathMerger, long nanos) {
+        ghRsp.addTiming(STAGE_INSTRUCTIONS, pathMerger.getInstructionsNanos());
+        ghRsp.addTiming(STAGE_PATH_DETAILS, pathMerger.getPathDetailsNanos());
+        ghRsp.addTiming(STAGE_PATH_MERGE, nanos - pathMerger.getInstructionsNanos() - pathMerger.getPathDetailsNanos());
+    }
+
+    private QueryGraph createQueryGraph(GHResponse ghRsp, List<Snap> snaps) {
+        long start = System.nanoTime();
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        ghRsp.addTiming(STAGE_QUERY_GRAPH, System.nanoTime() - start);
+        return queryGraph;
     }
 
     private PointList getWaypoints(List<Snap> snaps) {
@@ -424,6 +666,28 @@ public class Router {
 
         protected abstract PathCalculator createPathCalculator(QueryGraph queryGraph);
 
+        /**
+         * @return true if the paths can be calculated on a query graph that also contains the virtual nodes of other
+         * requests, see {@link Router#routeBatch}
+         */
+        protected boolean canShareQueryGraph() {
+            return true;
+        }
+
+        /**
+         * Called once the paths of the request were calculated to release the resources that were acquired for it.
+         */
+        protected void close() {
+        }
+
+        /**
+         * Creates the PathCalculator for a request of a batch, where the query graph is shared by all requests. CH
+         * solvers use the given map to share the (expensive to create) CH algorithm factory for the query graph.
+         */
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph, Map<RoutingCHGraph, CHRoutingAlgorithmFactory> chFactories) {
+            return createPathCalculator(queryGraph);
+        }
+
         private List<String> getTurnCostProfiles() {
             List<String> turnCostProfiles = new ArrayList<>();
             for (Profile p : profilesByName.values()) {
@@ -462,13 +726,17 @@ public class Router {
             if (getPassThrough(request.getHints()))
                 throw new IllegalArgumentException("The '" + Parameters.Routing.PASS_THROUGH + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`. See issue #1765");
 
-            if (request.getCustomModel() != null)
+            if (request.getCustomModel() != null && !isCustomModelSupported())
                 throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
         }
 
+        protected boolean isCustomModelSupported() {
+            return false;
+        }
+
         @Override
         protected Weighting createWeighting() {
             // todo: do not allow things like short_fastest.distance_factor or u_turn_costs unless CH is disabled
@@ -482,14 +750,25 @@ public class Router {
 
         @Override
         protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), createCHOpts());
+        }
+
+        @Override
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph, Map<RoutingCHGraph, CHRoutingAlgorithmFactory> chFactories) {
+            CHRoutingAlgorithmFactory algoFactory = chFactories.computeIfAbsent(getRoutingCHGraph(profile.getName()),
+                    chGraph -> new CHRoutingAlgorithmFactory(chGraph, queryGraph));
+            return new CHPathCalculator(algoFactory, createCHOpts());
+        }
+
+        private PMap createCHOpts() {
             PMap opts = new PMap(request.getHints());
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            return opts;
         }
 
-        private RoutingCHGraph getRoutingCHGraph(String profileName) {
+        protected RoutingCHGraph getRoutingCHGraph(String profileName) {
             RoutingCHGraph chGraph = chGraphs.get(profileName);
             if (chGraph == null)
                 throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
@@ -499,6 +778,55 @@ public class Router {
         }
     }
 
+    private static class CCHSolver extends CHSolver {
+        private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+        private final WeightingFactory weightingFactory;
+        private final CustomizableContractionHierarchies cch;
+        private RoutingCHGraph chGraph;
+
+        CCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                  WeightingFactory weightingFactory, CustomizableContractionHierarchies cch) {
+            super(request, profilesByName, routerConfig, lookup, Collections.emptyMap());
+            this.weightingFactory = weightingFactory;
+            this.cch = cch;
+        }
+
+        @Override
+        protected boolean isCustomModelSupported() {
+            return true;
+        }
+
+        @Override
+        protected Weighting createWeighting() {
+            PMap requestHints = new PMap(request.getHints());
+            requestHints.putObject(CustomModel.KEY, request.getCustomModel());
+            return weightingFactory.createWeighting(profile, requestHints, false);
+        }
+
+        @Override
+        protected RoutingCHGraph getRoutingCHGraph(String profileName) {
+            if (chGraph == null) {
+                // the weighting only depends on the profile and the custom model of the request, so we can use them to
+                // look up a previous customization. unlike CustomModel#toString the JSON also contains the areas.
+                String key;
+                try {
+                    key = profileName + "|" + request.getHints().getString("cm_version", "") + "|" + MAPPER.writeValueAsString(request.getCustomModel());
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Could not serialize the custom model", e);
+                }
+                chGraph = cch.acquire(key, () -> weighting);
+            }
+            return chGraph;
+        }
+
+        @Override
+        protected void close() {
+            if (chGraph != null)
+                cch.release(chGraph);
+            chGraph = null;
+        }
+    }
+
     public static class FlexSolver extends Solver {
         protected final RouterConfig routerConfig;
         private final WeightingFactory weightingFactory;
@@ -527,6 +855,13 @@ public class Router {
             return weightingFactory.createWeighting(profile, requestHints, false);
         }
 
+        @Override
+        protected boolean canShareQueryGraph() {
+            // for headings, pass_through and curbsides the FlexiblePathCalculator marks virtual edges as unfavored on
+            // the query graph while calculating the paths, so requests calculated concurrently would affect each other
+            return request.getHeadings().isEmpty() && !getPassThrough(request.getHints()) && request.getCurbsides().isEmpty();
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
@@ -579,6 +914,14 @@ public class Router {
             this.landmarks = landmarks;
         }
 
+        @Override
+        protected boolean canShareQueryGraph() {
+            // the LM approximation is zero for all virtual nodes. this is fine for the virtual nodes close to the start
+            // and destination, but virtual nodes of other requests would make the approximation inconsistent and
+            // lead to sub-optimal paths
+            return false;
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             // for now do not allow mixing CH&LM #1082,#1889
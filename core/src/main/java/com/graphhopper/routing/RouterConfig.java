@@ -31,6 +31,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int batchThreads = 1;
+    private int maxBatchSize = 1000;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -119,4 +121,29 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads used to calculate the routes of a single batch of requests, see
+     * {@link Router#routeBatch}.
+     */
+    public void setBatchThreads(int batchThreads) {
+        if (batchThreads < 1)
+            throw new IllegalArgumentException("batch threads must be at least 1, but was: " + batchThreads);
+        this.batchThreads = batchThreads;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Limits the number of requests that can be routed at once using {@link Router#routeBatch}.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the shortest path tree maps and priority queues of the routing algorithms, so they can be reused by the
+ * following queries of the same thread instead of allocating new collections for every query. Reuse has to be enabled
+ * explicitly by opening a scope:
+ * <pre>
+ * try (SearchStatePool.Scope scope = SearchStatePool.open()) {
+ *     // create and run the routing algorithms
+ * }
+ * </pre>
+ * All algorithms created within the scope take their collections from the pool of the current thread and the
+ * collections are returned when the (outermost) scope is closed. Therefore, the algorithms must not be used after the
+ * scope was closed. Outside a scope the algorithms allocate their collections as usual.
+ * <p>
+ * Only the collections are reused, the entries of the shortest path trees are still allocated for every query. See
+ * SearchStatePoolBenchmark in the benchmark module for the effect on allocations and latency.
+ */
+public final class SearchStatePool {
+    // collections that were used for larger searches are not kept, because they would occupy a lot of memory for
+    // every thread. for such searches the allocation costs are small compared to the search itself anyway. a
+    // bidirectional search needs two maps and two queues, the LM approximator needs another small search.
+    static final int MAX_POOLED_SIZE = 1 << 14;
+    static final int MAX_POOLED = 4;
+    private static final ThreadLocal<SearchStatePool> POOL = ThreadLocal.withInitial(SearchStatePool::new);
+
+    private final ArrayDeque<GHIntObjectHashMap<?>> freeMaps = new ArrayDeque<>();
+    private final ArrayDeque<PeakTrackingQueue<?>> freeQueues = new ArrayDeque<>();
+    private final List<GHIntObjectHashMap<?>> usedMaps = new ArrayList<>();
+    private final List<PeakTrackingQueue<?>> usedQueues = new ArrayList<>();
+    private final Scope scope = new Scope();
+    private int openScopes;
+    private long reused;
+
+    private SearchStatePool() {
+    }
+
+    /**
+     * Enables the reuse of the collections for the algorithms that are created in the current thread until the
+     * returned scope is closed. Scopes can be nested.
+     */
+    public static Scope open() {
+        SearchStatePool pool = POOL.get();
+        pool.openScopes++;
+        return pool.scope;
+    }
+
+    static <T> GHIntObjectHashMap<T> createMap(int size) {
+        return POOL.get().getMap(size);
+    }
+
+    static <T> PriorityQueue<T> createQueue(int size) {
+        return POOL.get().getQueue(size);
+    }
+
+    /**
+     * @return the number of collections taken from the pool of the current thread so far
+     */
+    static long getReusedCount() {
+        return POOL.get().reused;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> GHIntObjectHashMap<T> getMap(int size) {
+        if (openScopes == 0)
+            return new GHIntObjectHashMap<>(size);
+        GHIntObjectHashMap<T> map = (GHIntObjectHashMap<T>) freeMaps.poll();
+        if (map == null)
+            // the map grows if needed, but we do not want to allocate a big one that cannot be pooled afterwards
+            map = new GHIntObjectHashMap<>(Math.min(size, MAX_POOLED_SIZE));
+        else
+            reused++;
+        usedMaps.add(map);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> PriorityQueue<T> getQueue(int size) {
+        if (openScopes == 0)
+            return new PriorityQueue<>(size);
+        PeakTrackingQueue<T> queue = (PeakTrackingQueue<T>) freeQueues.poll();
+        if (queue == null)
+            queue = new PeakTrackingQueue<>(Math.min(size, MAX_POOLED_SIZE));
+        else
+            reused++;
+        usedQueues.add(queue);
+        return queue;
+    }
+
+    private void release() {
+        for (GHIntObjectHashMap<?> map : usedMaps) {
+            // the algorithms never remove entries from the maps, so the size is also the maximum size of the map
+            if (freeMaps.size() < MAX_POOLED && map.size() <= MAX_POOLED_SIZE) {
+                map.clear();
+                freeMaps.add(map);
+            }
+        }
+        usedMaps.clear();
+        for (PeakTrackingQueue<?> queue : usedQueues) {
+            // the array of a PriorityQueue never shrinks, so we have to look at the maximum size it ever had
+            if (freeQueues.size() < MAX_POOLED && queue.peakSize <= MAX_POOLED_SIZE) {
+                queue.clear();
+                freeQueues.add(queue);
+            }
+        }
+        usedQueues.clear();
+    }
+
+    private static class PeakTrackingQueue<T> extends PriorityQueue<T> {
+        // the initial capacity counts as well, because it determines the size of the array
+        private int peakSize;
+
+        PeakTrackingQueue(int initialCapacity) {
+            super(initialCapacity);
+            peakSize = initialCapacity;
+        }
+
+        @Override
+        public boolean offer(T t) {
+            boolean result = super.offer(t);
+            peakSize = Math.max(peakSize, size());
+            return result;
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+        private Scope() {
+        }
+
+        @Override
+        public void close() {
+            if (openScopes <= 0)
+                throw new IllegalStateException("Scope was already closed");
+            openScopes--;
+            if (openScopes == 0)
+                release();
+        }
+    }
+}
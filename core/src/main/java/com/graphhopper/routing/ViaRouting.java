@@ -137,7 +137,9 @@ public class ViaRouting {
             edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, curbsideStrictness));
 
             // calculate paths
+            long start = System.nanoTime();
             List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+            result.searchNanos += System.nanoTime() - start;
             result.debug += pathCalculator.getDebugString();
 
             // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
@@ -150,6 +152,9 @@ public class ViaRouting {
 
                 result.paths.add(path);
                 result.debug += ", " + path.getDebugInfo();
+                // the path extraction is part of the calcPaths call
+                result.searchNanos -= path.getExtractionNanos();
+                result.extractionNanos += path.getExtractionNanos();
             }
 
             result.visitedNodes += pathCalculator.getVisitedNodes();
@@ -163,6 +168,9 @@ public class ViaRouting {
         public List<Path> paths;
         public long visitedNodes;
         public String debug = "";
+        // the time spent on the shortest path searches, not including the path extraction
+        public long searchNanos;
+        public long extractionNanos;
 
         Result(int legs) {
             paths = new ArrayList<>(legs);
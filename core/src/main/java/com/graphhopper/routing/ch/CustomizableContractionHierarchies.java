@@ -0,0 +1,387 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.graphhopper.util.Helper.getMemInfo;
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Customizable contraction hierarchies (CCH), see 'Customizable Contraction Hierarchies' by Dibbelt, Strasser and
+ * Wagner. The graph is contracted once using a node ordering that does not depend on the weighting (usually a
+ * {@link NestedDissectionOrdering}) and without witness searches, i.e. for every contracted node all pairs of its
+ * (higher level) neighbors are connected. The resulting shortcut topology can then be 'customized' for any node-based
+ * {@link Weighting} in a single pass over the nodes, which is much faster than running
+ * {@link PrepareContractionHierarchies}. The customized graph can be queried with the usual CH algorithms.
+ * <p>
+ * The node ordering is calculated during the import and stored in the graph directory, see
+ * {@link #createNodeOrdering} and {@link #loadNodeOrdering}. The shortcut topology itself is only kept in memory and
+ * rebuilt from the node ordering.
+ */
+public class CustomizableContractionHierarchies {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomizableContractionHierarchies.class);
+    private static final String ORDER_NAME = "cch_order";
+    private final BaseGraph graph;
+    private final int nodes;
+    // the level of every node
+    private final int[] ranks;
+    private final int[] nodesByRank;
+    // the upward arcs of every node in compressed row format, for every node the arcs are sorted by the adjacent node
+    private final int[] firstArcs;
+    private final int[] arcHeads;
+    private final Map<String, Customization> cache;
+    // all customizations that were not closed yet, including the ones that were evicted but are still in use
+    private final Map<RoutingCHGraph, Customization> customizations = new IdentityHashMap<>();
+
+    public CustomizableContractionHierarchies(BaseGraph graph, NodeOrderingProvider nodeOrdering, int cacheSize) {
+        if (nodeOrdering.getNumNodes() != graph.getNodes())
+            throw new IllegalArgumentException("contraction order size (" + nodeOrdering.getNumNodes() + ")" +
+                    " must be equal to number of nodes in graph (" + graph.getNodes() + ").");
+        this.graph = graph;
+        this.nodes = graph.getNodes();
+        this.ranks = new int[nodes];
+        this.nodesByRank = new int[nodes];
+        Arrays.fill(ranks, -1);
+        for (int level = 0; level < nodes; level++) {
+            int node = nodeOrdering.getNodeIdForLevel(level);
+            if (ranks[node] >= 0)
+                throw new IllegalArgumentException("Node " + node + " appears more than once in the node ordering");
+            ranks[node] = level;
+            nodesByRank[level] = node;
+        }
+        StopWatch sw = new StopWatch().start();
+        this.firstArcs = new int[nodes + 1];
+        this.arcHeads = buildArcs();
+        LOGGER.info("Built CCH topology, arcs: {}, took: {}s, {}", nf(arcHeads.length), sw.stop().getSeconds(), getMemInfo());
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Customization> eldest) {
+                if (size() <= cacheSize)
+                    return false;
+                eldest.getValue().evicted = true;
+                closeIfUnused(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Calculates the node ordering using {@link NestedDissectionOrdering} and stores it in the graph directory. This
+     * is done during the import, a loaded graph directory might not be writable.
+     */
+    public static NodeOrderingProvider createNodeOrdering(BaseGraph graph) {
+        StopWatch sw = new StopWatch().start();
+        int[] nodesByLevel = new NestedDissectionOrdering(graph).calcNodeOrdering();
+        LOGGER.info("Calculated CCH node ordering, took: {}s", sw.stop().getSeconds());
+        DataAccess da = graph.getDirectory().create(ORDER_NAME);
+        da.create(4L * nodesByLevel.length);
+        for (int level = 0; level < nodesByLevel.length; level++)
+            da.setInt(4L * level, nodesByLevel[level]);
+        da.setHeader(0, Constants.VERSION_CCH_ORDER);
+        da.setHeader(4, nodesByLevel.length);
+        da.flush();
+        graph.getDirectory().close(ORDER_NAME);
+        return NodeOrderingProvider.fromArray(nodesByLevel);
+    }
+
+    /**
+     * Loads the node ordering that was stored by {@link #createNodeOrdering} from the graph directory.
+     *
+     * @return the node ordering or null if it was not stored
+     */
+    public static NodeOrderingProvider loadNodeOrdering(BaseGraph graph) {
+        DataAccess da = graph.getDirectory().create(ORDER_NAME);
+        try {
+            if (!da.loadExisting())
+                return null;
+            GHUtility.checkDAVersion(da.getName(), Constants.VERSION_CCH_ORDER, da.getHeader(0));
+            if (da.getHeader(4) != graph.getNodes())
+                throw new IllegalStateException("The stored CCH node ordering does not match the graph, nodes: " + da.getHeader(4) + " vs. " + graph.getNodes());
+            int[] nodesByLevel = new int[da.getHeader(4)];
+            for (int level = 0; level < nodesByLevel.length; level++)
+                nodesByLevel[level] = da.getInt(4L * level);
+            return NodeOrderingProvider.fromArray(nodesByLevel);
+        } finally {
+            graph.getDirectory().close(ORDER_NAME);
+        }
+    }
+
+    /**
+     * Runs the 'elimination game' for the given node ordering: when a node is contracted all its remaining neighbors
+     * are connected with each other. It is enough to connect the remaining neighbors with the lowest ranked neighbor,
+     * because the latter will connect them when it is contracted itself.
+     */
+    private int[] buildArcs() {
+        IntHashSet[] upwardNeighbors = new IntHashSet[nodes];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        int arcs = 0;
+        for (int rank = 0; rank < nodes; rank++) {
+            int node = nodesByRank[rank];
+            IntHashSet neighbors = upwardNeighbors[node];
+            if (neighbors == null)
+                neighbors = new IntHashSet();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (ranks[iter.getAdjNode()] > rank)
+                    neighbors.add(iter.getAdjNode());
+            int lowest = -1;
+            for (IntCursor c : neighbors)
+                if (lowest < 0 || ranks[c.value] < ranks[lowest])
+                    lowest = c.value;
+            if (lowest >= 0) {
+                if (upwardNeighbors[lowest] == null)
+                    upwardNeighbors[lowest] = new IntHashSet();
+                for (IntCursor c : neighbors)
+                    if (c.value != lowest)
+                        upwardNeighbors[lowest].add(c.value);
+            }
+            upwardNeighbors[node] = neighbors;
+            arcs += neighbors.size();
+        }
+        int[] heads = new int[arcs];
+        int arc = 0;
+        for (int node = 0; node < nodes; node++) {
+            firstArcs[node] = arc;
+            int[] sorted = upwardNeighbors[node].toArray();
+            Arrays.sort(sorted);
+            System.arraycopy(sorted, 0, heads, arc, sorted.length);
+            arc += sorted.length;
+            upwardNeighbors[node] = null;
+        }
+        firstArcs[nodes] = arc;
+        return heads;
+    }
+
+    public int getArcs() {
+        return arcHeads.length;
+    }
+
+    /**
+     * Returns the graph customized for the given key from the cache or customizes a new one for the weighting returned
+     * by the given supplier. The graph must be handed back using {@link #release} once it is no longer used, because
+     * evicted graphs are only closed when they are not in use anymore.
+     */
+    public RoutingCHGraph acquire(String key, Supplier<Weighting> weightingSupplier) {
+        synchronized (cache) {
+            Customization customization = cache.get(key);
+            if (customization != null) {
+                customization.leases++;
+                return customization.chGraph;
+            }
+        }
+        // we do not hold the lock while customizing, so concurrent requests do not need to wait for each other
+        Customization created = createCustomization(weightingSupplier.get());
+        synchronized (cache) {
+            Customization customization = cache.get(key);
+            if (customization != null) {
+                // another request customized the graph for the same key in the meantime
+                created.chStore.close();
+                customization.leases++;
+                return customization.chGraph;
+            }
+            customizations.put(created.chGraph, created);
+            // lease before adding it to the cache, so it is not closed even if it is evicted immediately
+            created.leases++;
+            cache.put(key, created);
+            return created.chGraph;
+        }
+    }
+
+    /**
+     * Hands back a graph that was returned by {@link #acquire}.
+     */
+    public void release(RoutingCHGraph chGraph) {
+        synchronized (cache) {
+            Customization customization = customizations.get(chGraph);
+            if (customization == null)
+                throw new IllegalArgumentException("The graph was not acquired from this CCH or was closed already");
+            customization.leases--;
+            closeIfUnused(customization);
+        }
+    }
+
+    private void closeIfUnused(Customization customization) {
+        if (customization.evicted && customization.leases == 0) {
+            // we only close the shortcuts, the base graph is still in use
+            customization.chStore.close();
+            customizations.remove(customization.chGraph);
+        }
+    }
+
+    /**
+     * Calculates the shortcut weights for the given weighting and returns a CH graph that can be used for routing.
+     * The shortcuts are stored in memory.
+     */
+    public RoutingCHGraph customize(Weighting weighting) {
+        return createCustomization(weighting).chGraph;
+    }
+
+    private Customization createCustomization(Weighting weighting) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable contraction hierarchies only support node-based weightings, i.e. weightings without turn costs");
+        StopWatch sw = new StopWatch().start();
+        final int arcs = arcHeads.length;
+        final int edges = graph.getEdges();
+        // the best weights and CH edges for every arc, up means from the lower to the higher ranked node
+        double[] upWeights = new double[arcs];
+        double[] downWeights = new double[arcs];
+        int[] upEdges = new int[arcs];
+        int[] downEdges = new int[arcs];
+        Arrays.fill(upWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(downWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(upEdges, EdgeIterator.NO_EDGE);
+        Arrays.fill(downEdges, EdgeIterator.NO_EDGE);
+        // the weights and skipped edges of the shortcuts, skipped edge 1 is always the one adjacent to the lower node
+        double[] scUpWeights = new double[arcs];
+        double[] scDownWeights = new double[arcs];
+        int[] scUpSkipped = new int[2 * arcs];
+        int[] scDownSkipped = new int[2 * arcs];
+        Arrays.fill(scUpWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(scDownWeights, Double.POSITIVE_INFINITY);
+
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (ranks[iter.getAdjNode()] < ranks[node])
+                    continue;
+                int arc = findArc(node, iter.getAdjNode());
+                double up = weighting.calcEdgeWeight(iter, false);
+                if (up < upWeights[arc]) {
+                    upWeights[arc] = up;
+                    upEdges[arc] = iter.getEdge();
+                }
+                double down = weighting.calcEdgeWeight(iter, true);
+                if (down < downWeights[arc]) {
+                    downWeights[arc] = down;
+                    downEdges[arc] = iter.getEdge();
+                }
+            }
+        }
+
+        CHStorage chStore = new CHStorage(new RAMDirectory(), "cch", graph.getSegmentSize(), false);
+        chStore.create(nodes, arcs);
+        CHStorageBuilder chBuilder = new CHStorageBuilder(chStore);
+        for (int node = 0; node < nodes; node++)
+            chBuilder.setLevel(node, ranks[node]);
+        for (int rank = 0; rank < nodes; rank++) {
+            int node = nodesByRank[rank];
+            int first = firstArcs[node], last = firstArcs[node + 1];
+            // all lower triangles of the arcs of this node have been processed already, so we can add their shortcuts
+            for (int arc = first; arc < last; arc++) {
+                boolean up = Double.isFinite(scUpWeights[arc]);
+                boolean down = Double.isFinite(scDownWeights[arc]);
+                if (up && down && Double.doubleToLongBits(scUpWeights[arc]) == Double.doubleToLongBits(scDownWeights[arc])
+                        && scUpSkipped[2 * arc] == scDownSkipped[2 * arc] && scUpSkipped[2 * arc + 1] == scDownSkipped[2 * arc + 1]) {
+                    int shortcut = edges + chBuilder.addShortcutNodeBased(node, arcHeads[arc], PrepareEncoder.getScDirMask(),
+                            scUpWeights[arc], scUpSkipped[2 * arc], scUpSkipped[2 * arc + 1]);
+                    if (scUpWeights[arc] < upWeights[arc]) {
+                        upWeights[arc] = scUpWeights[arc];
+                        upEdges[arc] = shortcut;
+                    }
+                    if (scDownWeights[arc] < downWeights[arc]) {
+                        downWeights[arc] = scDownWeights[arc];
+                        downEdges[arc] = shortcut;
+                    }
+                    continue;
+                }
+                if (up && scUpWeights[arc] < upWeights[arc]) {
+                    upWeights[arc] = scUpWeights[arc];
+                    upEdges[arc] = edges + chBuilder.addShortcutNodeBased(node, arcHeads[arc], PrepareEncoder.getScFwdDir(),
+                            scUpWeights[arc], scUpSkipped[2 * arc], scUpSkipped[2 * arc + 1]);
+                }
+                if (down && scDownWeights[arc] < downWeights[arc]) {
+                    downWeights[arc] = scDownWeights[arc];
+                    downEdges[arc] = edges + chBuilder.addShortcutNodeBased(node, arcHeads[arc], PrepareEncoder.getScBwdDir(),
+                            scDownWeights[arc], scDownSkipped[2 * arc], scDownSkipped[2 * arc + 1]);
+                }
+            }
+            // relax all upper triangles, i.e. the paths x-node-y for all pairs of upward neighbors x and y
+            for (int arcX = first; arcX < last; arcX++) {
+                int x = arcHeads[arcX];
+                for (int arcY = first; arcY < last; arcY++) {
+                    int y = arcHeads[arcY];
+                    if (ranks[x] >= ranks[y])
+                        continue;
+                    int arc = findArc(x, y);
+                    // x->node->y
+                    double weight = downWeights[arcX] + upWeights[arcY];
+                    if (weight < scUpWeights[arc]) {
+                        scUpWeights[arc] = weight;
+                        scUpSkipped[2 * arc] = downEdges[arcX];
+                        scUpSkipped[2 * arc + 1] = upEdges[arcY];
+                    }
+                    // y->node->x
+                    weight = downWeights[arcY] + upWeights[arcX];
+                    if (weight < scDownWeights[arc]) {
+                        scDownWeights[arc] = weight;
+                        scDownSkipped[2 * arc] = upEdges[arcX];
+                        scDownSkipped[2 * arc + 1] = downEdges[arcY];
+                    }
+                }
+            }
+        }
+        LOGGER.info("Customized CCH for {}, shortcuts: {}, took: {}s", weighting, nf(chStore.getShortcuts()), sw.stop().getSeconds());
+        return new Customization(chStore, RoutingCHGraphImpl.fromGraph(graph, chStore, CHConfig.nodeBased("cch", weighting)));
+    }
+
+    private int findArc(int lowerNode, int higherNode) {
+        int arc = Arrays.binarySearch(arcHeads, firstArcs[lowerNode], firstArcs[lowerNode + 1], higherNode);
+        if (arc < 0)
+            throw new IllegalStateException("Missing arc " + lowerNode + "->" + higherNode);
+        return arc;
+    }
+
+    public void close() {
+        synchronized (cache) {
+            for (Customization customization : customizations.values())
+                customization.chStore.close();
+            customizations.clear();
+            cache.clear();
+        }
+    }
+
+    private static class Customization {
+        final CHStorage chStore;
+        final RoutingCHGraph chGraph;
+        int leases;
+        boolean evicted;
+
+        Customization(CHStorage chStore, RoutingCHGraph chGraph) {
+            this.chStore = chStore;
+            this.chGraph = chGraph;
+        }
+    }
+}
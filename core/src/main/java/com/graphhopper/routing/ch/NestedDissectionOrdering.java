@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Calculates a node ordering that does not depend on any weighting using a simple geometric nested dissection: The
+ * nodes are recursively split into two halves along the longer side of their bounding box and the nodes on the
+ * smaller side of the cut are used as separator. The separator nodes are put at the end of the ordering (they are
+ * contracted last) and the two remaining halves are ordered recursively. See 'Customizable Contraction Hierarchies'
+ * by Dibbelt, Strasser and Wagner.
+ */
+public class NestedDissectionOrdering {
+    private final BaseGraph graph;
+    private final NodeAccess nodeAccess;
+    private final EdgeExplorer explorer;
+    private int maxCellSize = 16;
+    // 0 for nodes outside the current cell, 1 for the left and 2 for the right half of the current cell
+    private final byte[] sides;
+
+    public NestedDissectionOrdering(BaseGraph graph) {
+        this.graph = graph;
+        this.nodeAccess = graph.getNodeAccess();
+        this.explorer = graph.createEdgeExplorer();
+        this.sides = new byte[graph.getNodes()];
+    }
+
+    /**
+     * Cells with at most this many nodes are not split any further
+     */
+    public NestedDissectionOrdering setMaxCellSize(int maxCellSize) {
+        if (maxCellSize < 1)
+            throw new IllegalArgumentException("maxCellSize must be positive, but was: " + maxCellSize);
+        this.maxCellSize = maxCellSize;
+        return this;
+    }
+
+    /**
+     * @return the node ordering, i.e. the node for each level
+     */
+    public int[] calcNodeOrdering() {
+        int[] nodesByLevel = new int[graph.getNodes()];
+        Deque<Cell> cells = new ArrayDeque<>();
+        IntArrayList allNodes = new IntArrayList(graph.getNodes());
+        for (int node = 0; node < graph.getNodes(); node++)
+            allNodes.add(node);
+        cells.push(new Cell(allNodes, 0));
+        while (!cells.isEmpty()) {
+            Cell cell = cells.pop();
+            if (cell.nodes.size() <= maxCellSize) {
+                for (int i = 0; i < cell.nodes.size(); i++)
+                    nodesByLevel[cell.firstLevel + i] = cell.nodes.get(i);
+                continue;
+            }
+            IntArrayList left = new IntArrayList();
+            IntArrayList right = new IntArrayList();
+            bisect(cell.nodes, left, right);
+            // we use the boundary nodes of the side that has fewer of them as separator
+            IntArrayList leftRest = new IntArrayList();
+            IntArrayList rightRest = new IntArrayList();
+            IntArrayList leftSeparator = new IntArrayList();
+            IntArrayList rightSeparator = new IntArrayList();
+            splitBoundary(left, (byte) 2, leftSeparator, leftRest);
+            splitBoundary(right, (byte) 1, rightSeparator, rightRest);
+            for (int i = 0; i < cell.nodes.size(); i++)
+                sides[cell.nodes.get(i)] = 0;
+            IntArrayList separator;
+            if (leftSeparator.size() <= rightSeparator.size()) {
+                separator = leftSeparator;
+                left = leftRest;
+            } else {
+                separator = rightSeparator;
+                right = rightRest;
+            }
+            int level = cell.firstLevel + left.size() + right.size();
+            for (int i = 0; i < separator.size(); i++)
+                nodesByLevel[level + i] = separator.get(i);
+            if (!left.isEmpty())
+                cells.push(new Cell(left, cell.firstLevel));
+            if (!right.isEmpty())
+                cells.push(new Cell(right, cell.firstLevel + left.size()));
+        }
+        return nodesByLevel;
+    }
+
+    /**
+     * Splits the given nodes into two halves of equal size along the longer side of their bounding box and marks the
+     * nodes of the left half with 1 and the ones of the right half with 2.
+     */
+    private void bisect(IntArrayList nodes, IntArrayList left, IntArrayList right) {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            minLat = Math.min(minLat, nodeAccess.getLat(node));
+            maxLat = Math.max(maxLat, nodeAccess.getLat(node));
+            minLon = Math.min(minLon, nodeAccess.getLon(node));
+            maxLon = Math.max(maxLon, nodeAccess.getLon(node));
+        }
+        double lonFactor = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        boolean useLat = maxLat - minLat >= (maxLon - minLon) * lonFactor;
+        // we sort the nodes by their coordinate and use the node id to break ties, so the result is deterministic
+        long[] keys = new long[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            double coord = useLat ? nodeAccess.getLat(node) : nodeAccess.getLon(node);
+            keys[i] = ((long) (int) Math.round(coord * 1e7) << 32) | node;
+        }
+        Arrays.sort(keys);
+        int half = keys.length / 2;
+        for (int i = 0; i < keys.length; i++) {
+            int node = (int) keys[i];
+            if (i < half) {
+                left.add(node);
+                sides[node] = 1;
+            } else {
+                right.add(node);
+                sides[node] = 2;
+            }
+        }
+    }
+
+    private void splitBoundary(IntArrayList nodes, byte otherSide, IntArrayList boundary, IntArrayList rest) {
+        for (int i = 0; i < nodes.size(); i++) {
+            int node = nodes.get(i);
+            if (hasNeighborOnSide(node, otherSide))
+                boundary.add(node);
+            else
+                rest.add(node);
+        }
+    }
+
+    private boolean hasNeighborOnSide(int node, byte side) {
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next())
+            if (sides[iter.getAdjNode()] == side)
+                return true;
+        return false;
+    }
+
+    private static class Cell {
+        final IntArrayList nodes;
+        final int firstLevel;
+
+        Cell(IntArrayList nodes, int firstLevel) {
+            this.nodes = nodes;
+            this.firstLevel = firstLevel;
+        }
+    }
+}
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
@@ -31,7 +33,7 @@ import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,10 +53,16 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
         extractParams(pMap);
         this.chBuilder = chBuilder;
     }
 
+    private NodeBasedNodeContractor(CHPreparationGraph prepareGraph, Params params) {
+        this.prepareGraph = prepareGraph;
+        this.params = params;
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -71,6 +79,30 @@ class NodeBasedNodeContractor implements NodeContractor {
         meanDegree = prepareGraph.getOriginalEdges() * 1.0 / prepareGraph.getNodes();
     }
 
+    /**
+     * Creates another contractor for the same prepare graph that can be used to calculate priorities and to find
+     * shortcuts (see {@link #findShortcuts}) from another thread while the prepare graph is not modified. The
+     * witness searches of the returned contractor exclude all nodes for which the given array is true. The worker
+     * cannot be used to contract nodes.
+     */
+    NodeBasedNodeContractor createWorker(boolean[] ignoredNodes) {
+        NodeBasedNodeContractor worker = new NodeBasedNodeContractor(prepareGraph, params);
+        worker.inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        worker.outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        worker.witnessPathSearcher = new NodeBasedWitnessPathSearcher(prepareGraph);
+        worker.witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+        worker.meanDegree = meanDegree;
+        return worker;
+    }
+
+    double getMeanDegree() {
+        return meanDegree;
+    }
+
+    void setMeanDegree(double meanDegree) {
+        this.meanDegree = meanDegree;
+    }
+
     @Override
     public void close() {
         prepareGraph.close();
@@ -123,6 +155,31 @@ class NodeBasedNodeContractor implements NodeContractor {
         return prepareGraph.disconnect(node);
     }
 
+    /**
+     * Finds the shortcuts required to contract the given node without changing the graph. Use
+     * {@link #contractNode(int, PendingShortcuts)} to add them and contract the node afterwards.
+     */
+    PendingShortcuts findShortcuts(int node) {
+        PendingShortcuts pending = new PendingShortcuts();
+        pending.degree = findAndHandleShortcuts(node, pending::add, (int) (meanDegree * params.maxPollFactorContraction));
+        return pending;
+    }
+
+    /**
+     * Contracts the given node like {@link #contractNode(int)}, but uses the shortcuts that were found previously. This
+     * is only correct if the graph around the node did not change since the shortcuts were found.
+     */
+    IntContainer contractNode(int node, PendingShortcuts pending) {
+        for (int i = 0; i < pending.weights.size(); i++) {
+            int j = 6 * i;
+            addOrUpdateShortcut(pending.ints.get(j), pending.ints.get(j + 1), pending.weights.get(i),
+                    pending.ints.get(j + 2), pending.ints.get(j + 3), pending.ints.get(j + 4), pending.ints.get(j + 5));
+        }
+        insertShortcuts(node);
+        meanDegree = (meanDegree * 2 + pending.degree) / 3;
+        return prepareGraph.disconnect(node);
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -299,6 +356,19 @@ class NodeBasedNodeContractor implements NodeContractor {
                             int incomingEdge, int inOrigEdgeCount);
     }
 
+    static class PendingShortcuts {
+        // six ints per shortcut: from, to, outgoing edge, outgoing orig edge count, incoming edge, incoming orig edge count
+        private final IntArrayList ints = new IntArrayList();
+        private final DoubleArrayList weights = new DoubleArrayList();
+        private long degree;
+
+        private void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount,
+                         int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }
+    }
+
     public static class Params {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
@@ -34,6 +34,7 @@ public class NodeBasedWitnessPathSearcher {
     private final IntArrayList changedNodes;
     private final IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    private boolean[] ignoredNodes;
     private int settledNodes = 0;
 
     public NodeBasedWitnessPathSearcher(CHPreparationGraph graph) {
@@ -56,6 +57,14 @@ public class NodeBasedWitnessPathSearcher {
         heap.insert(0, startNode);
     }
 
+    /**
+     * Sets nodes that shall be excluded from all following searches in addition to the ignoreNode given in init().
+     * The array is not copied, so changes to it are visible to this searcher. Use null to not exclude any nodes.
+     */
+    public void setIgnoredNodes(boolean[] ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Runs or continues a Dijkstra search starting at the startNode and ignoring the ignoreNode given in init().
      * If the shortest path is found we return its weight. However, this method also returns early if any path was
@@ -85,7 +94,7 @@ public class NodeBasedWitnessPathSearcher {
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(node);
             while (iter.next()) {
                 int adjNode = iter.getAdjNode();
-                if (adjNode == ignoreNode)
+                if (adjNode == ignoreNode || (ignoredNodes != null && ignoredNodes[adjNode]))
                     continue;
                 double weight = weights[node] + iter.getWeight();
                 if (Double.isInfinite(weight))
@@ -17,11 +17,15 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
@@ -30,6 +34,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -61,6 +67,7 @@ public class PrepareContractionHierarchies {
     private final StopWatch contractionSW = new StopWatch();
     private final Params params;
     private final BaseGraph graph;
+    private CHPreparationGraph prepareGraph;
     private NodeContractor nodeContractor;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
@@ -100,6 +107,8 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        params.setContractionBatchSize(pMap.getInt(CONTRACTION_BATCH_SIZE, params.getContractionBatchSize()));
         return this;
     }
 
@@ -159,7 +168,11 @@ public class PrepareContractionHierarchies {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (params.getContractionThreads() > 1 && !isEdgeBased()) {
+            contractNodesInParallel();
         } else {
+            if (params.getContractionThreads() > 1)
+                logger.warn("Parallel contraction is not supported for edge-based CH, using a single thread for {}", chConfig.getName());
             contractNodesUsingHeuristicNodeOrdering();
         }
     }
@@ -170,7 +183,6 @@ public class PrepareContractionHierarchies {
 
     private void initFromGraph() {
         logger.info("Creating CH prepare graph, {}", getMemInfo());
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null)
@@ -316,6 +328,184 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Contracts the nodes in batches of nodes that do not share any neighbors. We run the witness searches for the
+     * nodes of a batch concurrently, but we add the shortcuts and assign the levels in the order in which the nodes were
+     * taken from the queue. The witness searches exclude all nodes of the current batch, so they stay valid while the
+     * other nodes of the batch are contracted. The priority updates are run concurrently as well. The result only
+     * depends on the batch size, but not on the number of threads. Lazy updates are not used in this mode.
+     */
+    private void contractNodesInParallel() {
+        final int threads = params.getContractionThreads();
+        final NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        // the witness searches exclude the nodes of the current batch
+        final boolean[] batchNodes = new boolean[nodes];
+        final NodeBasedNodeContractor[] workers = new NodeBasedNodeContractor[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = contractor.createWorker(batchNodes);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            StopWatch sw = new StopWatch().start();
+            logger.info("Building initial queue of nodes to be contracted: {} nodes, threads: {}, {}", nodes, threads, getMemInfo());
+            updatePrioritiesOfRemainingNodesInParallel(executorService, workers);
+            logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+            final int initSize = sortedNodes.size();
+            int level = 0;
+            checkCounter = 0;
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
+            int updateCounter = 0;
+            long nextPeriodicUpdate = periodicUpdatesCount;
+            long nextLog = 0;
+            final IntArrayList batch = new IntArrayList();
+            final IntHashSet blockedNodes = new IntHashSet();
+            final IntArrayList neighborsToUpdate = new IntArrayList();
+            while (!sortedNodes.isEmpty()) {
+                stopIfInterrupted();
+                if (checkCounter >= nextPeriodicUpdate) {
+                    updatePrioritiesOfRemainingNodesInParallel(executorService, workers);
+                    updateCounter++;
+                    nextPeriodicUpdate += periodicUpdatesCount;
+                }
+                if (checkCounter >= nextLog) {
+                    logHeuristicStats(updateCounter);
+                    nextLog += logSize;
+                }
+
+                pollIndependentNodes(batch, blockedNodes);
+                contractionSW.start();
+                for (IntCursor node : batch)
+                    batchNodes[node.value] = true;
+                for (NodeBasedNodeContractor worker : workers)
+                    worker.setMeanDegree(contractor.getMeanDegree());
+                final NodeBasedNodeContractor.PendingShortcuts[] pendingShortcuts = new NodeBasedNodeContractor.PendingShortcuts[batch.size()];
+                runInParallel(executorService, workers, batch.size(), (worker, i) -> pendingShortcuts[i] = worker.findShortcuts(batch.get(i)));
+                for (IntCursor node : batch)
+                    batchNodes[node.value] = false;
+
+                neighborsToUpdate.clear();
+                for (int i = 0; i < batch.size(); i++) {
+                    int node = batch.get(i);
+                    chBuilder.setLevel(node, level);
+                    level++;
+                    checkCounter++;
+                    IntContainer neighbors = contractor.contractNode(node, pendingShortcuts[i]);
+                    // the batch nodes do not share any neighbors, so every neighbor is only added once
+                    int neighborCount = 0;
+                    for (IntCursor neighbor : neighbors) {
+                        if (neighborUpdate && (params.getMaxNeighborUpdates() < 0 || neighborCount < params.getMaxNeighborUpdates()) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
+                            neighborCount++;
+                            neighborsToUpdate.add(neighbor.value);
+                        }
+                    }
+                }
+                contractionSW.stop();
+
+                if (sortedNodes.size() < nodesToAvoidContract)
+                    // skipped nodes are already set to maxLevel
+                    break;
+
+                neighborUpdateSW.start();
+                final float[] priorities = new float[neighborsToUpdate.size()];
+                runInParallel(executorService, workers, neighborsToUpdate.size(), (worker, i) -> priorities[i] = calculatePriority(worker, neighborsToUpdate.get(i)));
+                for (int i = 0; i < priorities.length; i++)
+                    sortedNodes.update(neighborsToUpdate.get(i), priorities[i]);
+                neighborUpdateSW.stop();
+            }
+
+            nodeContractor.finishContraction();
+            logHeuristicStats(updateCounter);
+            logger.info(
+                    "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                            + ", initSize:" + nf(initSize)
+                            + ", " + chConfig.getWeighting()
+                            + ", threads:" + threads
+                            + ", batch size:" + params.getContractionBatchSize()
+                            + ", periodic:" + params.getPeriodicUpdatesPercentage()
+                            + ", neighbor:" + params.getNeighborUpdatePercentage()
+                            + ", " + getTimesAsString()
+                            + ", " + Helper.getMemInfo());
+        } finally {
+            executorService.shutdownNow();
+        }
+        _close();
+    }
+
+    /**
+     * Takes up to batch size nodes with the lowest priorities from the queue and keeps the ones that are not adjacent
+     * to and do not share any neighbors with a node that was kept already. All other nodes are put back into the queue.
+     */
+    private void pollIndependentNodes(IntArrayList batch, IntHashSet blockedNodes) {
+        batch.clear();
+        blockedNodes.clear();
+        IntArrayList rejectedNodes = new IntArrayList();
+        FloatArrayList rejectedPriorities = new FloatArrayList();
+        PrepareGraphEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+        PrepareGraphEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+        for (int i = 0; i < params.getContractionBatchSize() && !sortedNodes.isEmpty(); i++) {
+            float priority = sortedNodes.peekValue();
+            int node = sortedNodes.poll();
+            if (blockedNodes.contains(node) || hasBlockedNeighbor(node, outExplorer, blockedNodes) || hasBlockedNeighbor(node, inExplorer, blockedNodes)) {
+                rejectedNodes.add(node);
+                rejectedPriorities.add(priority);
+                continue;
+            }
+            batch.add(node);
+            blockedNodes.add(node);
+            blockNeighbors(node, outExplorer, blockedNodes);
+            blockNeighbors(node, inExplorer, blockedNodes);
+        }
+        for (int i = 0; i < rejectedNodes.size(); i++)
+            sortedNodes.push(rejectedNodes.get(i), rejectedPriorities.get(i));
+    }
+
+    private static boolean hasBlockedNeighbor(int node, PrepareGraphEdgeExplorer explorer, IntHashSet blockedNodes) {
+        PrepareGraphEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next())
+            if (blockedNodes.contains(iter.getAdjNode()))
+                return true;
+        return false;
+    }
+
+    private static void blockNeighbors(int node, PrepareGraphEdgeExplorer explorer, IntHashSet blockedNodes) {
+        PrepareGraphEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next())
+            blockedNodes.add(iter.getAdjNode());
+    }
+
+    private void updatePrioritiesOfRemainingNodesInParallel(ExecutorService executorService, NodeBasedNodeContractor[] workers) {
+        periodicUpdateSW.start();
+        IntArrayList remainingNodes = new IntArrayList();
+        for (int node = 0; node < nodes; node++)
+            if (!isContracted(node))
+                remainingNodes.add(node);
+        float[] priorities = new float[remainingNodes.size()];
+        runInParallel(executorService, workers, remainingNodes.size(), (worker, i) -> priorities[i] = calculatePriority(worker, remainingNodes.get(i)));
+        sortedNodes.clear();
+        for (int i = 0; i < priorities.length; i++)
+            sortedNodes.push(remainingNodes.get(i), priorities[i]);
+        periodicUpdateSW.stop();
+    }
+
+    /**
+     * Calls the given task for all indices from 0 to count - 1, see {@link GHUtility#runInParallel}. Every worker
+     * contractor is used by a single thread.
+     */
+    private static void runInParallel(ExecutorService executorService, NodeBasedNodeContractor[] workers, int count, WorkerTask task) {
+        GHUtility.runInParallel(executorService, workers.length, count, (worker, i) -> task.run(workers[worker], i));
+    }
+
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(NodeBasedNodeContractor worker, int index);
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -408,6 +598,12 @@ public class PrepareContractionHierarchies {
         return nodeContractor.calculatePriority(node);
     }
 
+    private float calculatePriority(NodeContractor contractor, int node) {
+        if (isContracted(node))
+            throw new IllegalArgumentException("Priority should only be calculated for not yet contracted nodes");
+        return contractor.calculatePriority(node);
+    }
+
     @Override
     public String toString() {
         return chConfig.isEdgeBased() ? "prepare|dijkstrabi|edge|ch" : "prepare|dijkstrabi|ch";
@@ -415,6 +611,7 @@ public class PrepareContractionHierarchies {
 
     private void _close() {
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
@@ -514,6 +711,17 @@ public class PrepareContractionHierarchies {
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * Specifies the number of threads used to contract the nodes of a single (node-based) CH profile. With more
+         * than one thread the nodes are contracted in batches of independent nodes, see {@link #contractionBatchSize}.
+         */
+        private int contractionThreads = 1;
+        /**
+         * Specifies how many nodes are taken from the queue to build a batch of independent nodes when contracting in
+         * parallel. The result of the preparation depends on this value, but not on the number of threads. Larger
+         * values allow more concurrency, but the node priorities will be less up-to-date.
+         */
+        private int contractionBatchSize = 500;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             // Lower values for the neighbor update percentage (and/or max neighbor updates) yield a slower
@@ -588,6 +796,26 @@ public class PrepareContractionHierarchies {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
+        int getContractionBatchSize() {
+            return contractionBatchSize;
+        }
+
+        void setContractionBatchSize(int contractionBatchSize) {
+            if (contractionBatchSize < 1)
+                throw new IllegalArgumentException(CONTRACTION_BATCH_SIZE + " has to be at least 1");
+            this.contractionBatchSize = contractionBatchSize;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
@@ -109,9 +109,15 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
+                // with compressed landmark weights we only know lower and upper bounds of the weights, so we have to
+                // pick the bounds such that the differences in approximateForLandmark still underestimate
                 for (int i = 0; i < activeLandmarkIndices.length; i++) {
-                    weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                    weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
+                    weightsFromActiveLandmarksToT[i] = reverse
+                            ? lms.getFromWeightUpperBound(activeLandmarkIndices[i], towerNodeNextToT)
+                            : lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
+                    weightsFromTToActiveLandmarks[i] = reverse
+                            ? lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT)
+                            : lms.getToWeightUpperBound(activeLandmarkIndices[i], towerNodeNextToT);
                 }
             } else {
                 // note: fallback==true means forever true!
@@ -167,8 +173,10 @@ public class LMApproximator implements WeightApproximator {
         //
         // ...and we can get the right-hand sides of III) and IV) by multiplying those of II) and I) by -1.
 
-        int rhs1Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
-        int rhs2Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(activeLandmarkIndices[i], v);
+        int rhs1Int = (reverse ? lms.getToWeightUpperBound(activeLandmarkIndices[i], v) : lms.getToWeight(activeLandmarkIndices[i], v))
+                - weightsFromTToActiveLandmarks[i];
+        int rhs2Int = weightsFromActiveLandmarksToT[i]
+                - (reverse ? lms.getFromWeight(activeLandmarkIndices[i], v) : lms.getFromWeightUpperBound(activeLandmarkIndices[i], v));
 
         if (reverse) {
             rhs1Int *= -1;
@@ -209,7 +217,7 @@ public class LMApproximator implements WeightApproximator {
 
     @Override
     public double getSlack() {
-        return lms.getFactor();
+        return lms.getSlack();
     }
 
     @Override
@@ -27,11 +27,21 @@ import static com.graphhopper.config.Profile.validateProfileName;
 public class LMConfig {
     private final String profileName;
     private final Weighting weighting;
+    private final boolean compressedWeights;
 
     public LMConfig(String profileName, Weighting weighting) {
+        this(profileName, weighting, false);
+    }
+
+    /**
+     * @param compressedWeights if true the landmark weights are stored as 8 bit deltas against a per-tile base value
+     *                          instead of one short per weight, see {@link LandmarkStorage#TILE_NODES}
+     */
+    public LMConfig(String profileName, Weighting weighting, boolean compressedWeights) {
         validateProfileName(profileName);
         this.profileName = profileName;
         this.weighting = weighting;
+        this.compressedWeights = compressedWeights;
     }
 
     public String getName() {
@@ -42,6 +52,10 @@ public class LMConfig {
         return weighting;
     }
 
+    public boolean isCompressedWeights() {
+        return compressedWeights;
+    }
+
     @Override
     public String toString() {
         return profileName;
@@ -58,6 +58,7 @@ public class LMPreparationHandler {
     private int minNodes = -1;
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
+    private int landmarkThreads = 1;
     private boolean logDetails = false;
     private AreaIndex<SplitArea> areaIndex;
 
@@ -72,6 +73,7 @@ public class LMPreparationHandler {
         }
 
         setPreparationThreads(ghConfig.getInt(Parameters.Landmark.PREPARE + "threads", getPreparationThreads()));
+        setLandmarkThreads(ghConfig.getInt(Landmark.PREPARE + "landmark_threads", getLandmarkThreads()));
         setLMProfiles(ghConfig.getLMProfiles());
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
@@ -116,6 +118,21 @@ public class LMPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    /**
+     * This method changes the number of threads used to calculate the landmark weights within one LM profile. In
+     * contrast to {@link #setPreparationThreads(int)} this also speeds up the preparation of a single profile. The
+     * total number of threads is the product of both settings. Default is 1.
+     */
+    public void setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark_threads must be at least 1 but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+    }
+
     public LMPreparationHandler setLMProfiles(LMProfile... lmProfiles) {
         return setLMProfiles(Arrays.asList(lmProfiles));
     }
@@ -224,6 +241,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setThreads(landmarkThreads).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 prepareLandmarks.setMinimumNodes(minNodes);
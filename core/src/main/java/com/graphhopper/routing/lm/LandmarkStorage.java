@@ -48,6 +48,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -76,7 +78,18 @@ public class LandmarkStorage {
     private int landmarks;
     private final int FROM_OFFSET;
     private final int TO_OFFSET;
+    // The compressed layout groups TILE_NODES consecutive nodes into one tile. Per landmark and direction a tile stores
+    // a short base value and a shift, and every node of the tile stores its weights as 8 bit deltas against this base.
+    static final int TILE_NODES = 16;
+    private static final int BYTE_INFINITY = 255;
+    private static final int BYTE_MAX = BYTE_INFINITY - 1;
+    private final boolean compressed;
+    private long TILE_LENGTH;
+    private int maxShift;
     private final DataAccess landmarkWeightDA;
+    // the uncompressed weights, only differs from landmarkWeightDA while preparing the compressed layout
+    private DataAccess rawWeightDA;
+    private final Directory dir;
     // every subnetwork has its own landmark mapping but the count of landmarks is always the same
     private final List<int[]> landmarkIDs;
     private double factor = -1;
@@ -94,6 +107,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int threads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -132,13 +146,18 @@ public class LandmarkStorage {
         // use the node based traversal as this is a smaller weight approximation and will still produce correct results
         // In this sense its even 'better' to use node-based.
         this.traversalMode = TraversalMode.NODE_BASED;
+        this.dir = dir;
         this.landmarkWeightDA = dir.create("landmarks_" + lmConfig.getName());
+        this.rawWeightDA = landmarkWeightDA;
+        this.compressed = lmConfig.isCompressedWeights();
 
         this.landmarks = landmarks;
         // one short per landmark and two directions => 2*2 byte
         this.LM_ROW_LENGTH = landmarks * 4;
         this.FROM_OFFSET = 0;
         this.TO_OFFSET = 2;
+        // per landmark: two short bases, two shifts and two bytes for every node of the tile
+        this.TILE_LENGTH = landmarks * (6L + 2L * TILE_NODES);
         this.landmarkIDs = new ArrayList<>();
         this.subnetworkStorage = new SubnetworkStorage(dir.create("landmarks_subnetwork_" + lmConfig.getName()));
     }
@@ -181,6 +200,20 @@ public class LandmarkStorage {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to calculate the weights of the landmarks of one subnetwork. Every thread
+     * needs the memory of two Dijkstra searches through the whole subnetwork. Default is 1.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1 but was " + threads);
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * This method sets the required number of nodes of a subnetwork for which landmarks should be calculated. Every
      * subnetwork below this count will be ignored.
@@ -232,11 +265,13 @@ public class LandmarkStorage {
 
         // fill 'from' and 'to' weights with maximum value
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
-        this.landmarkWeightDA.create(2000);
-        this.landmarkWeightDA.ensureCapacity(maxBytes);
+        if (compressed)
+            rawWeightDA = dir.create(getRawName());
+        this.rawWeightDA.create(2000);
+        this.rawWeightDA.ensureCapacity(maxBytes);
 
         for (long pointer = 0; pointer < maxBytes; pointer += 2) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_INFINITY);
+            rawWeightDA.setShort(pointer, (short) SHORT_INFINITY);
         }
 
         int[] empty = new int[landmarks];
@@ -293,39 +328,56 @@ public class LandmarkStorage {
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
         int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
-            nodes += subnetworkIds.size();
-            if (subnetworkIds.size() < minimumNodes)
-                continue;
-            if (factor <= 0)
-                throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
-                        + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+        // the same threads are used for all subnetworks, there can be thousands of them
+        ExecutorService executorService = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+                nodes += subnetworkIds.size();
+                if (subnetworkIds.size() < minimumNodes)
+                    continue;
+                if (factor <= 0)
+                    throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
+                            + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+
+                int index = subnetworkIds.size() - 1;
+                // ensure start node is reachable from both sides and no subnetwork is associated
+                for (; index >= 0; index--) {
+                    int nextStartNode = subnetworkIds.get(index);
+                    if (subnetworks[nextStartNode] == UNSET_SUBNETWORK) {
+                        if (logDetails) {
+                            GHPoint p = createPoint(graph, nextStartNode);
+                            LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork " + index + ", subnetwork size: " + subnetworkIds.size()
+                                    + ", " + Helper.getMemInfo() + ((areaIndex == null) ? "" : " area:" + areaIndex.query(p.lat, p.lon)));
+                        }
 
-            int index = subnetworkIds.size() - 1;
-            // ensure start node is reachable from both sides and no subnetwork is associated
-            for (; index >= 0; index--) {
-                int nextStartNode = subnetworkIds.get(index);
-                if (subnetworks[nextStartNode] == UNSET_SUBNETWORK) {
-                    if (logDetails) {
-                        GHPoint p = createPoint(graph, nextStartNode);
-                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork " + index + ", subnetwork size: " + subnetworkIds.size()
-                                + ", " + Helper.getMemInfo() + ((areaIndex == null) ? "" : " area:" + areaIndex.query(p.lat, p.lon)));
+                        if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter, executorService))
+                            break;
                     }
-
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
-                        break;
                 }
+                if (index < 0)
+                    LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
             }
-            if (index < 0)
-                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
+        } finally {
+            if (executorService != null)
+                executorService.shutdownNow();
+        }
+
+        if (compressed) {
+            sw = new StopWatch().start();
+            compressWeights();
+            dir.remove(getRawName());
+            rawWeightDA = null;
+            if (logDetails)
+                LOGGER.info("Compressed landmark weights from " + maxBytes + " to " + getWeightBytes(graph.getNodes()) + " bytes in " + sw.stop().getSeconds() + "s");
         }
 
         int subnetworkCount = landmarkIDs.size();
+        long weightBytes = getWeightBytes(graph.getNodes());
         // store all landmark node IDs and one int for the factor itself.
-        this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */ + 4);
+        this.landmarkWeightDA.ensureCapacity(weightBytes /* landmark weights */ + (long) subnetworkCount * landmarks /* landmark mapping per subnetwork */ + 4);
 
         // calculate offset to point into landmark mapping
-        long bytePos = maxBytes;
+        long bytePos = weightBytes;
         for (int[] landmarks : landmarkIDs) {
             for (int lmNodeId : landmarks) {
                 landmarkWeightDA.setInt(bytePos, lmNodeId);
@@ -339,6 +391,8 @@ public class LandmarkStorage {
         if (factor * DOUBLE_MLTPL > Integer.MAX_VALUE)
             throw new UnsupportedOperationException("landmark weight factor cannot be bigger than Integer.MAX_VALUE " + factor * DOUBLE_MLTPL);
         landmarkWeightDA.setHeader(3 * 4, (int) Math.round(factor * DOUBLE_MLTPL));
+        landmarkWeightDA.setHeader(4 * 4, compressed ? 1 : 0);
+        landmarkWeightDA.setHeader(5 * 4, maxShift);
 
         // serialize fast byte[] into DataAccess
         subnetworkStorage.create(graph.getNodes());
@@ -401,12 +455,14 @@ public class LandmarkStorage {
     /**
      * This method creates landmarks for the specified subnetwork (integer list)
      *
+     * @param executorService used to calculate the weights of the landmarks concurrently, or null to calculate them in
+     *                        the calling thread
      * @return landmark mapping
      */
-    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter) {
+    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, EdgeFilter accessFilter,
+                                                 ExecutorService executorService) {
         final int subnetworkId = landmarkIDs.size();
         int[] tmpLandmarkNodeIds = new int[landmarks];
-        int logOffset = Math.max(1, landmarks / 2);
         boolean pickedPrecalculatedLandmarks = false;
 
         if (!landmarkSuggestions.isEmpty()) {
@@ -444,40 +500,59 @@ public class LandmarkStorage {
                 LOGGER.info("Finished searching landmarks for subnetwork " + subnetworkId + " of size " + explorer.getVisitedNodes());
         }
 
-        // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // 2) calculate weights for all landmarks -> 'from' and 'to' weight. The first landmark also sets the subnetwork
+        // of the explored nodes, the other landmarks only write into their own columns of the weight storage and can
+        // be calculated concurrently.
+        StopWatch sw = new StopWatch().start();
+        if (!calcLandmarkWeights(0, tmpLandmarkNodeIds, subnetworks, subnetworkId, accessFilter))
+            return false;
+        if (executorService == null) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds, subnetworks, subnetworkId, accessFilter);
             }
+        } else {
+            GHUtility.runInParallel(executorService, threads, tmpLandmarkNodeIds.length - 1,
+                    (worker, i) -> calcLandmarkWeights(i + 1, tmpLandmarkNodeIds, subnetworks, subnetworkId, accessFilter));
+        }
+        if (logDetails)
+            LOGGER.info("Set weights of " + tmpLandmarkNodeIds.length + " landmarks [" + weighting + "] for subnetwork "
+                    + subnetworkId + " in " + sw.stop().getSeconds() + "s");
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
+        landmarkIDs.add(tmpLandmarkNodeIds);
+        return true;
+    }
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+    /**
+     * Calculates the 'from' and 'to' weights of the specified landmark.
+     *
+     * @return false if the subnetwork assignment failed, which is only done for the first landmark
+     */
+    private boolean calcLandmarkWeights(int lmIdx, int[] landmarkNodeIds, byte[] subnetworks, int subnetworkId, EdgeFilter accessFilter) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        int lmNodeId = landmarkNodeIds[lmIdx];
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
         }
 
-        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
-        landmarkIDs.add(tmpLandmarkNodeIds);
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
         return true;
     }
 
@@ -518,11 +593,21 @@ public class LandmarkStorage {
         return factor;
     }
 
+    /**
+     * The approximation is only consistent up to the precision of the stored weights, which is one unit of the factor
+     * for the uncompressed weights and the biggest step of the 8 bit deltas for the compressed weights.
+     */
+    double getSlack() {
+        return factor * (1 << maxShift);
+    }
+
     /**
      * @return the weight from the landmark to the specified node. Where the landmark integer is not
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
+        if (compressed)
+            return getCompressedWeight(landmarkIndex, node, 0, false);
         int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4L + FROM_OFFSET)
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
@@ -540,6 +625,8 @@ public class LandmarkStorage {
      * @return the weight from the specified node to the landmark (specified *as index*)
      */
     int getToWeight(int landmarkIndex, int node) {
+        if (compressed)
+            return getCompressedWeight(landmarkIndex, node, 1, false);
         int res = (int) landmarkWeightDA.getShort((long) node * LM_ROW_LENGTH + landmarkIndex * 4 + TO_OFFSET)
                 & 0x0000FFFF;
         if (res == SHORT_INFINITY)
@@ -548,6 +635,94 @@ public class LandmarkStorage {
         return res;
     }
 
+    /**
+     * @return an upper bound of the weight from the landmark to the specified node. This is the same as
+     * {@link #getFromWeight(int, int)} (which returns the lower bound) unless the weights are compressed.
+     */
+    int getFromWeightUpperBound(int landmarkIndex, int node) {
+        return compressed ? getCompressedWeight(landmarkIndex, node, 0, true) : getFromWeight(landmarkIndex, node);
+    }
+
+    /**
+     * @return an upper bound of the weight from the specified node to the landmark
+     * @see #getFromWeightUpperBound(int, int)
+     */
+    int getToWeightUpperBound(int landmarkIndex, int node) {
+        return compressed ? getCompressedWeight(landmarkIndex, node, 1, true) : getToWeight(landmarkIndex, node);
+    }
+
+    private int getCompressedWeight(int landmarkIndex, int node, int direction, boolean upperBound) {
+        long tilePointer = (node / TILE_NODES) * TILE_LENGTH;
+        int delta = landmarkWeightDA.getByte(tilePointer + landmarks * 6L
+                + ((long) (node % TILE_NODES) * landmarks + landmarkIndex) * 2 + direction) & 0xFF;
+        if (delta == BYTE_INFINITY)
+            return SHORT_MAX;
+
+        int headerIndex = landmarkIndex * 2 + direction;
+        int base = landmarkWeightDA.getShort(tilePointer + headerIndex * 2L) & 0x0000FFFF;
+        int shift = landmarkWeightDA.getByte(tilePointer + landmarks * 4L + headerIndex);
+        int res = base + (delta << shift);
+        if (upperBound)
+            res += (1 << shift) - 1;
+        return Math.min(res, SHORT_MAX);
+    }
+
+    /**
+     * Converts the uncompressed weights into the tiles of the compressed layout. The delta of a node is rounded down,
+     * so base + (delta << shift) is a lower bound and base + ((delta + 1) << shift) - 1 an upper bound of its weight.
+     */
+    private void compressWeights() {
+        int nodes = graph.getNodes();
+        long tiles = (nodes + TILE_NODES - 1) / TILE_NODES;
+        landmarkWeightDA.create(2000);
+        landmarkWeightDA.ensureCapacity(tiles * TILE_LENGTH);
+        int[] values = new int[TILE_NODES];
+        for (long tile = 0; tile < tiles; tile++) {
+            long tilePointer = tile * TILE_LENGTH;
+            for (int lmIdx = 0; lmIdx < landmarks; lmIdx++) {
+                for (int direction = 0; direction < 2; direction++) {
+                    int min = SHORT_INFINITY, max = 0;
+                    for (int i = 0; i < TILE_NODES; i++) {
+                        long node = tile * TILE_NODES + i;
+                        values[i] = node < nodes
+                                ? rawWeightDA.getShort(node * LM_ROW_LENGTH + lmIdx * 4L + direction * 2L) & 0x0000FFFF
+                                : SHORT_INFINITY;
+                        if (values[i] != SHORT_INFINITY) {
+                            min = Math.min(min, values[i]);
+                            max = Math.max(max, values[i]);
+                        }
+                    }
+                    if (min > max)
+                        min = max;
+                    int shift = 0;
+                    while ((max - min) >> shift > BYTE_MAX)
+                        shift++;
+                    maxShift = Math.max(maxShift, shift);
+
+                    int headerIndex = lmIdx * 2 + direction;
+                    landmarkWeightDA.setShort(tilePointer + headerIndex * 2L, (short) min);
+                    landmarkWeightDA.setByte(tilePointer + landmarks * 4L + headerIndex, (byte) shift);
+                    for (int i = 0; i < TILE_NODES; i++) {
+                        int delta = values[i] == SHORT_INFINITY ? BYTE_INFINITY : (values[i] - min) >> shift;
+                        landmarkWeightDA.setByte(tilePointer + landmarks * 6L + ((long) i * landmarks + lmIdx) * 2 + direction, (byte) delta);
+                    }
+                }
+            }
+        }
+    }
+
+    private long getWeightBytes(int nodes) {
+        return compressed ? (nodes + TILE_NODES - 1) / TILE_NODES * TILE_LENGTH : nodes * LM_ROW_LENGTH;
+    }
+
+    private String getRawName() {
+        return "landmarks_raw_" + lmConfig.getName();
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
@@ -557,16 +732,16 @@ public class LandmarkStorage {
             throw new UnsupportedOperationException("Cannot store infinity explicitly, pointer=" + pointer + ", value=" + value + ", factor=" + factor);
 
         if (tmpVal >= SHORT_MAX) {
-            landmarkWeightDA.setShort(pointer, (short) SHORT_MAX);
+            rawWeightDA.setShort(pointer, (short) SHORT_MAX);
             return false;
         } else {
-            landmarkWeightDA.setShort(pointer, (short) tmpVal);
+            rawWeightDA.setShort(pointer, (short) tmpVal);
             return true;
         }
     }
 
     boolean isInfinity(long pointer) {
-        return ((int) landmarkWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
+        return ((int) rawWeightDA.getShort(pointer) & 0x0000FFFF) == SHORT_INFINITY;
     }
 
     // From all available landmarks pick just a few active ones
@@ -689,9 +864,14 @@ public class LandmarkStorage {
             landmarks = landmarkWeightDA.getHeader(1 * 4);
             int subnetworks = landmarkWeightDA.getHeader(2 * 4);
             factor = landmarkWeightDA.getHeader(3 * 4) / DOUBLE_MLTPL;
+            boolean storedCompressed = landmarkWeightDA.getHeader(4 * 4) == 1;
+            if (storedCompressed != compressed)
+                throw new IllegalArgumentException("Cannot load landmark data for " + lmConfig.getName() + " as it was written "
+                        + (storedCompressed ? "with" : "without") + " compressed weights, but compressed_weights is " + compressed);
             LM_ROW_LENGTH = landmarks * 4;
-            long maxBytes = LM_ROW_LENGTH * nodes;
-            long bytePos = maxBytes;
+            TILE_LENGTH = landmarks * (6L + 2L * TILE_NODES);
+            maxShift = landmarkWeightDA.getHeader(5 * 4);
+            long bytePos = getWeightBytes(nodes);
 
             // in the first subnetwork 0 there are no landmark IDs stored
             for (int j = 0; j < subnetworks; j++) {
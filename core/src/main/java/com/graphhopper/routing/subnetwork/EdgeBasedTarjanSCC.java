@@ -89,6 +89,24 @@ public class EdgeBasedTarjanSCC {
         return new EdgeBasedTarjanSCC(graph, edgeTransitionFilter, true).findComponentsForStartEdges(edges);
     }
 
+    /**
+     * Like {@link #findComponents(Graph, EdgeTransitionFilter, boolean)}, but the given edge keys are treated as if
+     * they were not part of the graph. They are neither returned nor used to connect other edge keys. This is used to
+     * find the remaining components after some components were found already, see {@link ParallelEdgeBasedSCC}.
+     */
+    static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, BitSet skippedEdgeKeys) {
+        EdgeBasedTarjanSCC tarjan = new EdgeBasedTarjanSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents);
+        tarjan.initForEntireGraph();
+        // an edge key that has an index but is not on the stack is ignored when we reach it from another edge key
+        BitSetIterator iter = skippedEdgeKeys.iterator();
+        for (int edgeKey = iter.nextSetBit(); edgeKey >= 0; edgeKey = iter.nextSetBit())
+            tarjan.edgeKeyIndex.set(edgeKey, Integer.MAX_VALUE);
+        AllEdgesIterator edges = graph.getAllEdges();
+        while (edges.next())
+            tarjan.findComponentsForEdgeState(edges);
+        return tarjan.components;
+    }
+
     /**
      * Runs Tarjan's algorithm in a recursive way. Doing it like this requires a large stack size for large graphs,
      * which can be set like `-Xss1024M`. Usually the version using an explicit stack ({@link #findComponents()}) should be
@@ -140,7 +158,7 @@ public class EdgeBasedTarjanSCC {
                 findComponentForEdgeKey(edgeKeyFwd, iter.getAdjNode());
             int edgeKeyBwd = createEdgeKey(iter, true);
             if (!edgeKeyIndex.has(edgeKeyBwd))
-                findComponentForEdgeKey(edgeKeyBwd, iter.getAdjNode());
+                findComponentForEdgeKey(edgeKeyBwd, iter.getBaseNode());
         }
         return components;
     }
@@ -195,12 +213,7 @@ public class EdgeBasedTarjanSCC {
                         break;
                 }
                 component.trimToSize();
-                assert component.size() > 1;
-                components.numComponents++;
-                components.numEdgeKeys += component.size();
-                components.components.add(component);
-                if (component.size() > components.biggestComponent.size())
-                    components.biggestComponent = component;
+                components.add(component);
             }
         }
     }
@@ -235,7 +248,7 @@ public class EdgeBasedTarjanSCC {
         // has already been found by the first search. So we cannot simply push them both and start the search once.
         int edgeKeyBwd = createEdgeKey(edge, true);
         if (!edgeKeyIndex.has(edgeKeyBwd))
-            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getAdjNode());
+            pushFindComponentForEdgeKey(edgeKeyBwd, edge.getBaseNode());
         startSearch();
     }
 
@@ -394,6 +407,15 @@ public class EdgeBasedTarjanSCC {
         public int getEdgeKeys() {
             return numEdgeKeys;
         }
+
+        void add(IntArrayList component) {
+            assert component.size() > 1;
+            numComponents++;
+            numEdgeKeys += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
     }
 
     private interface TarjanIntIntMap {
@@ -0,0 +1,250 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.createEdgeKey;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Finds the same strongly connected components as {@link EdgeBasedTarjanSCC}, but uses multiple threads for large
+ * graphs. Road networks usually consist of one giant component and many small ones. The giant component is found with
+ * the forward-backward algorithm: all edge keys that can be reached from a pivot edge key and that can reach the pivot
+ * form the component of the pivot. Both searches are breadth-first searches that expand each level of the search in
+ * parallel and mark the visited edge keys in a shared bit set. The remaining (small) components are then found by
+ * Tarjan's algorithm, which skips the edge keys of the components that were found already.
+ * <p>
+ * The order of the returned components is not the same as for {@link EdgeBasedTarjanSCC}, and if there are multiple
+ * biggest components of the same size another one might be returned as the biggest component.
+ */
+public class ParallelEdgeBasedSCC {
+    // below this number of edge keys we use Tarjan's algorithm directly
+    private static final int MIN_PARALLEL_EDGE_KEYS = 100_000;
+    // we expand smaller levels of the search in the calling thread
+    private static final int MIN_PARALLEL_FRONTIER = 1_000;
+    // the number of pivots we try to find the giant component
+    private static final int MAX_PIVOTS = 5;
+
+    private final Graph graph;
+    private final EdgeTransitionFilter edgeTransitionFilter;
+    private final int threads;
+    private final int minParallelFrontier;
+    private final ThreadLocal<EdgeExplorer> explorers;
+    private final AtomicBitSet reachedFwd;
+    private final AtomicBitSet reachedBwd;
+    private final BitSet found;
+
+    /**
+     * @param threads the number of threads, for only one thread or small graphs this method simply calls
+     *                {@link EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)}
+     * @see EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)
+     */
+    public static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter,
+                                                     boolean excludeSingleEdgeComponents, int threads) {
+        if (threads <= 1 || 2L * graph.getEdges() < MIN_PARALLEL_EDGE_KEYS)
+            return EdgeBasedTarjanSCC.findComponents(graph, edgeTransitionFilter, excludeSingleEdgeComponents);
+        return new ParallelEdgeBasedSCC(graph, edgeTransitionFilter, threads).findComponents(excludeSingleEdgeComponents);
+    }
+
+    /**
+     * Use {@link #findComponents(Graph, EdgeTransitionFilter, boolean, int)} unless you want to use the
+     * forward-backward algorithm also for small graphs, e.g. for benchmarks. The edgeTransitionFilter must be
+     * thread-safe.
+     */
+    public ParallelEdgeBasedSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, int threads) {
+        this(graph, edgeTransitionFilter, threads, MIN_PARALLEL_FRONTIER);
+    }
+
+    ParallelEdgeBasedSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, int threads, int minParallelFrontier) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1, but was: " + threads);
+        this.graph = graph;
+        this.edgeTransitionFilter = edgeTransitionFilter;
+        this.threads = threads;
+        this.minParallelFrontier = minParallelFrontier;
+        explorers = ThreadLocal.withInitial(graph::createEdgeExplorer);
+        int edgeKeys = 2 * graph.getEdges();
+        reachedFwd = new AtomicBitSet(edgeKeys);
+        reachedBwd = new AtomicBitSet(edgeKeys);
+        found = new BitSet(edgeKeys);
+    }
+
+    public ConnectedComponents findComponents(boolean excludeSingleEdgeComponents) {
+        int edgeKeys = 2 * graph.getEdges();
+        List<IntArrayList> bigComponents = new ArrayList<>();
+        int remaining = edgeKeys;
+        Random rnd = new Random(123);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < MAX_PIVOTS && remaining > 0; i++) {
+                int pivot = findPivot(rnd);
+                if (pivot < 0)
+                    break;
+                IntArrayList component = findComponent(pivot, pool);
+                // single edge components are left to Tarjan's algorithm, which knows if they need to be included
+                if (component.size() > 1) {
+                    for (IntCursor c : component)
+                        found.set(c.value);
+                    bigComponents.add(component);
+                }
+                // no other component can be bigger
+                if (component.size() > remaining / 2)
+                    break;
+                remaining -= component.size();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        ConnectedComponents components = EdgeBasedTarjanSCC.findComponents(graph, edgeTransitionFilter, excludeSingleEdgeComponents, found);
+        for (IntArrayList component : bigComponents)
+            components.add(component);
+        return components;
+    }
+
+    private int findPivot(Random rnd) {
+        int edgeKeys = 2 * graph.getEdges();
+        // we are looking for an edge key of the giant component, so an accessible edge key that was not found yet
+        for (int i = 0; i < 100; i++) {
+            int edgeKey = rnd.nextInt(edgeKeys);
+            if (!found.get(edgeKey) && edgeTransitionFilter.accept(NO_EDGE, graph.getEdgeIteratorStateForKey(edgeKey)))
+                return edgeKey;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the component of the given pivot edge key, which only contains edge keys that were not found yet
+     */
+    private IntArrayList findComponent(int pivot, ForkJoinPool pool) {
+        IntArrayList reached = new IntArrayList();
+        IntArrayList frontier = IntArrayList.from(pivot);
+        reachedFwd.set(pivot);
+        while (!frontier.isEmpty()) {
+            reached.addAll(frontier);
+            frontier = expand(frontier, true, pool);
+        }
+
+        // the component is a subset of the edge keys we reached in forward direction, so the backward search can be
+        // limited to these
+        frontier = IntArrayList.from(pivot);
+        reachedBwd.set(pivot);
+        while (!frontier.isEmpty())
+            frontier = expand(frontier, false, pool);
+
+        IntArrayList component = new IntArrayList();
+        for (IntCursor c : reached) {
+            if (reachedBwd.get(c.value))
+                component.add(c.value);
+            reachedFwd.clear(c.value);
+            reachedBwd.clear(c.value);
+        }
+        component.trimToSize();
+        return component;
+    }
+
+    private IntArrayList expand(IntArrayList frontier, boolean fwd, ForkJoinPool pool) {
+        if (frontier.size() < minParallelFrontier)
+            return expand(frontier, 0, frontier.size(), fwd);
+        int chunks = 4 * threads;
+        int chunkSize = (frontier.size() + chunks - 1) / chunks;
+        try {
+            List<IntArrayList> next = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> expand(frontier, Math.min(frontier.size(), c * chunkSize), Math.min(frontier.size(), (c + 1) * chunkSize), fwd))
+                    .collect(Collectors.toList())).get();
+            IntArrayList result = new IntArrayList(next.stream().mapToInt(IntArrayList::size).sum());
+            for (IntArrayList n : next)
+                result.addAll(n);
+            return result;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private IntArrayList expand(IntArrayList frontier, int from, int to, boolean fwd) {
+        EdgeExplorer explorer = explorers.get();
+        IntArrayList next = new IntArrayList();
+        for (int i = from; i < to; i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(frontier.get(i));
+            if (fwd) {
+                EdgeIterator iter = explorer.setBaseNode(edge.getAdjNode());
+                while (iter.next()) {
+                    int q = createEdgeKey(iter, false);
+                    if (found.get(q) || reachedFwd.get(q) || !edgeTransitionFilter.accept(edge.getEdge(), iter))
+                        continue;
+                    if (reachedFwd.set(q))
+                        next.add(q);
+                }
+            } else {
+                // the edge keys that lead to the base node of this edge key
+                EdgeIterator iter = explorer.setBaseNode(edge.getBaseNode());
+                while (iter.next()) {
+                    int p = createEdgeKey(iter, true);
+                    if (!reachedFwd.get(p) || reachedBwd.get(p) || !edgeTransitionFilter.accept(iter.getEdge(), edge))
+                        continue;
+                    if (reachedBwd.set(p))
+                        next.add(p);
+                }
+            }
+        }
+        return next;
+    }
+
+    private static class AtomicBitSet {
+        private final AtomicLongArray words;
+
+        AtomicBitSet(int bits) {
+            words = new AtomicLongArray((bits + 63) >>> 6);
+        }
+
+        boolean get(int index) {
+            return (words.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        /**
+         * @return true if the bit was not set before
+         */
+        boolean set(int index) {
+            long mask = 1L << index;
+            long old = words.getAndAccumulate(index >>> 6, mask, (prev, m) -> prev | m);
+            return (old & mask) == 0;
+        }
+
+        void clear(int index) {
+            long mask = ~(1L << index);
+            words.getAndAccumulate(index >>> 6, mask, (prev, m) -> prev & m);
+        }
+    }
+}
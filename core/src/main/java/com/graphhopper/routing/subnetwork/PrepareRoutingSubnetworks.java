@@ -83,6 +83,10 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * The jobs are run concurrently using the given number of threads. If there are more threads than jobs the
+     * remaining threads are used to find the components of each job in parallel, see {@link ParallelEdgeBasedSCC}.
+     */
     public PrepareRoutingSubnetworks setThreads(int threads) {
         this.threads = threads;
         return this;
@@ -102,10 +106,11 @@ public class PrepareRoutingSubnetworks {
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", nodes: " +
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
         AtomicInteger total = new AtomicInteger(0);
+        int componentThreads = Math.max(1, threads / Math.max(1, prepareJobs.size()));
         List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
         Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
             PrepareJob job = prepareJobs.get(i);
-            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
+            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i), componentThreads));
         });
         GHUtility.runConcurrently(runnables, threads);
         AllEdgesIterator iter = graph.getAllEdges();
@@ -119,17 +124,18 @@ public class PrepareRoutingSubnetworks {
         return total.get();
     }
 
-    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
-        // partition graph into strongly connected components using Tarjan's algorithm
+    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags, int componentThreads) {
+        // partition graph into strongly connected components using Tarjan's algorithm, or the forward-backward
+        // algorithm for the biggest component if there is more than one thread
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = ParallelEdgeBasedSCC.findComponents(graph,
                 (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev)),
-                false);
+                false, componentThreads);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
         logger.info(jobName + " - Found " + ccs.getTotalComponents() + " subnetworks (" + numSingleEdgeComponents + " single edges and "
-                + components.size() + " components with more than one edge, total nodes: " + ccs.getEdgeKeys() + "), took: " + sw.stop().getSeconds() + "s");
+                + components.size() + " components with more than one edge, total nodes: " + ccs.getEdgeKeys() + "), threads: " + componentThreads + ", took: " + sw.stop().getSeconds() + "s");
 
         final int minNetworkSizeEdgeKeys = 2 * minNetworkSize;
 
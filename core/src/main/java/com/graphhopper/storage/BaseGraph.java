@@ -485,6 +485,13 @@ public class BaseGraph implements Graph, Closeable {
         return store;
     }
 
+    /**
+     * @return a new IntsRef that is large enough to hold the flags of one edge, see {@link EdgeIteratorState#setFlags}
+     */
+    public IntsRef createEdgeFlags() {
+        return store.createEdgeFlags();
+    }
+
     private void setWayGeometryAtGeoRef(PointList pillarNodes, long edgePointer, boolean reverse, long geoRef) {
         byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, reverse);
         wayGeometry.ensureCapacity(geoRef + wayGeometryBytes.length);
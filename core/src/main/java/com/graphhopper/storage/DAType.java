@@ -53,6 +53,11 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * Read-only memory mapped DA object that maps the entire file independent of the segment size. Reads are a bit
+     * faster than for MMAP_RO. See FullMMapDataAccess.
+     */
+    public static final DAType MMAP_FULL = new DAType(MemRef.MMAP_FULL, true, false, false);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -74,6 +79,8 @@ public class DAType {
         DAType type;
         if (dataAccess.contains("SYNC"))
             throw new IllegalArgumentException("SYNC option is no longer supported, see #982");
+        else if (dataAccess.contains("MMAP_FULL"))
+            type = DAType.MMAP_FULL;
         else if (dataAccess.contains("MMAP_RO"))
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
@@ -109,6 +116,10 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    public boolean isMMapFull() {
+        return memRef == MemRef.MMAP_FULL;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -128,6 +139,8 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.MMAP_FULL)
+            return "MMAP_FULL";
         else
             str = "RAM";
 
@@ -164,6 +177,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, MMAP_FULL
     }
 }
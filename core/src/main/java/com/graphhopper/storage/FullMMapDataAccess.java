@@ -0,0 +1,195 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only DataAccess implementation that maps the entire file into memory. Unlike {@link MMapDataAccess} the
+ * mapping does not depend on the segment size of the file: it is split into large windows (1GB by default), because
+ * a single MappedByteBuffer cannot be larger than 2GB. Neighboring windows overlap by a few bytes so every int, short
+ * or byte can be read from a single window and reads never need to handle values that cross a segment boundary.
+ * <p>
+ * Use it to load an existing graph that is not modified anymore, e.g. for a server with allow_writes=false. Files
+ * written by {@link RAMDataAccess} or {@link MMapDataAccess} can be read.
+ */
+public final class FullMMapDataAccess extends AbstractDataAccess {
+    // the maximum number of bytes read at once by getInt/getShort/getByte
+    private static final int OVERLAP = 8;
+    private final int windowPower;
+    private final long windowMask;
+    private RandomAccessFile raFile;
+    private MappedByteBuffer[] windows = new MappedByteBuffer[0];
+    private long capacity;
+
+    FullMMapDataAccess(String name, String location, int segmentSize) {
+        this(name, location, segmentSize, 30);
+    }
+
+    FullMMapDataAccess(String name, String location, int segmentSize, int windowPower) {
+        super(name, location, segmentSize);
+        if (windowPower < 4 || windowPower > 30)
+            throw new IllegalArgumentException("windowPower must be in [4, 30], but was: " + windowPower);
+        this.windowPower = windowPower;
+        this.windowMask = (1L << windowPower) - 1;
+    }
+
+    @Override
+    public FullMMapDataAccess create(long bytes) {
+        throw new UnsupportedOperationException("Cannot create " + getFullName() + ", because " + getType() + " is read-only");
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes > capacity)
+            throw new UnsupportedOperationException("Cannot increase capacity of " + getFullName() + " to " + bytes + ", because " + getType() + " is read-only");
+        return false;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (windows.length > 0)
+            throw new IllegalStateException("already initialized");
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            raFile = new RandomAccessFile(getFullName(), "r");
+            if (readHeader(raFile) < 0) {
+                Helper.close(raFile);
+                raFile = null;
+                return false;
+            }
+            // RAMDataAccess and MMapDataAccess do not store the same length in the header, but both write full
+            // segments, so we use the file length as capacity
+            capacity = raFile.length() - HEADER_OFFSET;
+            int windowCount = (int) ((capacity + windowMask) >>> windowPower);
+            windows = new MappedByteBuffer[windowCount];
+            for (int i = 0; i < windowCount; i++) {
+                long start = (long) i << windowPower;
+                long size = Math.min(windowMask + 1 + OVERLAP, capacity - start);
+                windows[i] = raFile.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_OFFSET + start, size);
+                windows[i].order(byteOrder);
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+        // nothing to do, we never write anything
+    }
+
+    /**
+     * Load memory mapped files into physical memory.
+     */
+    public void load(int percentage) {
+        if (percentage < 0 || percentage > 100)
+            throw new IllegalArgumentException("Percentage for FullMMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
+        int max = Math.round(windows.length * percentage / 100f);
+        for (int i = 0; i < max; i++) {
+            windows[i].load();
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (MappedByteBuffer window : windows)
+            MMapDataAccess.cleanMappedByteBuffer(window);
+        windows = new MappedByteBuffer[0];
+        Helper.close(raFile);
+    }
+
+    @Override
+    public int getInt(long bytePos) {
+        return windows[(int) (bytePos >>> windowPower)].getInt((int) (bytePos & windowMask));
+    }
+
+    @Override
+    public short getShort(long bytePos) {
+        return windows[(int) (bytePos >>> windowPower)].getShort((int) (bytePos & windowMask));
+    }
+
+    @Override
+    public byte getByte(long bytePos) {
+        return windows[(int) (bytePos >>> windowPower)].get((int) (bytePos & windowMask));
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        int offset = 0;
+        while (offset < length) {
+            int index = (int) (bytePos & windowMask);
+            // we do not read from the overlap here, so we can use the same logic for every window
+            int len = (int) Math.min(length - offset, windowMask + 1 - index);
+            windows[(int) (bytePos >>> windowPower)].get(index, values, offset, len);
+            offset += len;
+            bytePos += len;
+        }
+    }
+
+    @Override
+    public void setInt(long bytePos, int value) {
+        throw new UnsupportedOperationException(getType() + " is read-only");
+    }
+
+    @Override
+    public void setShort(long bytePos, short value) {
+        throw new UnsupportedOperationException(getType() + " is read-only");
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        throw new UnsupportedOperationException(getType() + " is read-only");
+    }
+
+    @Override
+    public void setByte(long bytePos, byte value) {
+        throw new UnsupportedOperationException(getType() + " is read-only");
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSegments() {
+        return (int) ((capacity + segmentSizeInBytes - 1) / segmentSizeInBytes);
+    }
+
+    @Override
+    public DAType getType() {
+        return DAType.MMAP_FULL;
+    }
+}
@@ -17,6 +17,11 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
 import java.util.*;
 
@@ -30,6 +35,7 @@ import static com.graphhopper.util.Helper.*;
  * @author Peter Karich
  */
 public class GHDirectory implements Directory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GHDirectory.class);
     protected final String location;
     private final DAType typeFallback;
     // first rule matches => LinkedHashMap
@@ -86,13 +92,39 @@ public class GHDirectory implements Directory {
     }
 
     public void loadMMap() {
+        loadMMap(1);
+    }
+
+    /**
+     * Loads the memory mapped DataAccess objects into physical memory according to their preload value, see
+     * {@link #configure(LinkedHashMap)}. Multiple DataAccess objects are loaded in parallel if threads is larger than 1.
+     */
+    public void loadMMap(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads to preload the memory mapped files must be at least 1, was: " + threads);
+        List<Runnable> runnables = new ArrayList<>();
         for (DataAccess da : map.values()) {
-            if (!(da instanceof MMapDataAccess))
+            if (!(da instanceof MMapDataAccess) && !(da instanceof FullMMapDataAccess))
                 continue;
             int preload = getPreload(da.getName());
-            if (preload > 0)
-                ((MMapDataAccess) da).load(preload);
+            if (preload <= 0)
+                continue;
+            runnables.add(() -> {
+                StopWatch sw = new StopWatch().start();
+                if (da instanceof MMapDataAccess)
+                    ((MMapDataAccess) da).load(preload);
+                else
+                    ((FullMMapDataAccess) da).load(preload);
+                LOGGER.info("preloaded " + preload + "% of " + da.getName() + " (" + da.getCapacity() / MB
+                        + "MB), took: " + sw.stop().getSeconds() + "s");
+            });
         }
+        if (runnables.isEmpty())
+            return;
+        StopWatch sw = new StopWatch().start();
+        GHUtility.runConcurrently(runnables.stream(), threads);
+        LOGGER.info("preloaded " + runnables.size() + " memory mapped files with " + threads + " threads, took: "
+                + sw.stop().getSeconds() + "s");
     }
 
     @Override
@@ -139,6 +171,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isMMapFull()) {
+            da = new FullMMapDataAccess(name, location, segmentSize);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -174,6 +208,15 @@ public class GHDirectory implements Directory {
         removeBackingFile(old, name);
     }
 
+    @Override
+    public void close(String name) {
+        DataAccess old = map.remove(name);
+        if (old == null)
+            throw new IllegalStateException("Couldn't close DataAccess: " + name);
+
+        old.close();
+    }
+
     private void removeBackingFile(DataAccess da, String name) {
         if (da.getType().isStoring())
             removeDir(new File(location + name));
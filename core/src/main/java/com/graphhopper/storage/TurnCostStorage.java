@@ -18,6 +18,7 @@
 package com.graphhopper.storage;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EdgeIntAccess;
@@ -39,6 +40,9 @@ import java.util.function.IntUnaryOperator;
 public class TurnCostStorage {
     static final int NO_TURN_ENTRY = -1;
     // we store each turn cost entry in the format |from_edge|to_edge|flags|next|. each entry has 4 bytes -> 16 bytes total
+    // after sortNodes the entries of every node are stored consecutively and ordered by from_edge and to_edge. In this
+    // 'sorted' state the next field no longer points to the next entry but contains the end of the entries of the node,
+    // which allows a binary search for (from_edge, to_edge).
     private static final int TC_FROM = 0;
     private static final int TC_TO = 4;
     private static final int TC_FLAGS = 8;
@@ -49,6 +53,7 @@ public class TurnCostStorage {
     private final DataAccess turnCosts;
     private final EdgeIntAccess edgeIntAccess = createEdgeIntAccess();
     private int turnCostsCount;
+    private boolean sorted;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -64,6 +69,7 @@ public class TurnCostStorage {
         turnCosts.setHeader(0, Constants.VERSION_TURN_COSTS);
         turnCosts.setHeader(4, BYTES_PER_ENTRY);
         turnCosts.setHeader(2 * 4, turnCostsCount);
+        turnCosts.setHeader(3 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -84,6 +90,7 @@ public class TurnCostStorage {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(8);
+        sorted = turnCosts.getHeader(3 * 4) == 1;
         return true;
     }
 
@@ -107,6 +114,9 @@ public class TurnCostStorage {
     private int findOrCreateTurnCostEntry(int fromEdge, int viaNode, int toEdge) {
         int index = findIndex(fromEdge, viaNode, toEdge);
         if (index < 0) {
+            // new entries are always added to the linked list of the via node
+            if (sorted)
+                unsort();
             // create a new entry
             index = turnCostsCount;
             ensureTurnCostIndex(index);
@@ -161,6 +171,8 @@ public class TurnCostStorage {
 
         final int maxEntries = 1000;
         int index = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
+        if (sorted)
+            return index == NO_TURN_ENTRY ? -1 : binarySearch(index, turnCosts.getInt(toPointer(index) + TC_NEXT), fromEdge, toEdge);
         for (int i = 0; i < maxEntries; ++i) {
             if (index == NO_TURN_ENTRY) return -1;
             long pointer = toPointer(index);
@@ -171,7 +183,59 @@ public class TurnCostStorage {
         throw new IllegalStateException("Turn cost list for node: " + viaNode + " is longer than expected, max: " + maxEntries);
     }
 
+    private int binarySearch(int fromIndex, int toIndex, int fromEdge, int toEdge) {
+        int low = fromIndex;
+        int high = toIndex - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long pointer = toPointer(mid);
+            int cmp = compare(turnCosts.getInt(pointer + TC_FROM), turnCosts.getInt(pointer + TC_TO), fromEdge, toEdge);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private static int compare(int fromEdge1, int toEdge1, int fromEdge2, int toEdge2) {
+        int cmp = Integer.compare(fromEdge1, fromEdge2);
+        return cmp == 0 ? Integer.compare(toEdge1, toEdge2) : cmp;
+    }
+
+    private int nextIndex(int index) {
+        int next = turnCosts.getInt(toPointer(index) + TC_NEXT);
+        if (!sorted)
+            return next;
+        return index + 1 < next ? index + 1 : NO_TURN_ENTRY;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Restores the linked lists from the sorted state, which is necessary to add new entries.
+     */
+    private void unsort() {
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int index = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            if (index == NO_TURN_ENTRY)
+                continue;
+            int end = turnCosts.getInt(toPointer(index) + TC_NEXT);
+            for (; index < end; index++) {
+                turnCosts.setInt(toPointer(index) + TC_NEXT, index + 1 < end ? index + 1 : NO_TURN_ENTRY);
+            }
+        }
+        sorted = false;
+    }
+
     public void sortEdges(IntUnaryOperator getNewEdgeForOldEdge) {
+        // the order of the entries depends on the edge IDs
+        if (sorted)
+            unsort();
         for (int i = 0; i < turnCostsCount; i++) {
             long pointer = toPointer(i);
             turnCosts.setInt(pointer + TC_FROM, getNewEdgeForOldEdge.applyAsInt(turnCosts.getInt(pointer + TC_FROM)));
@@ -191,8 +255,7 @@ public class TurnCostStorage {
         int index = baseGraph.getNodeAccess().getTurnCostIndex(node);
         int count = 0;
         while (index != NO_TURN_ENTRY) {
-            long pointer = toPointer(index);
-            index = turnCosts.getInt(pointer + TC_NEXT);
+            index = nextIndex(index);
             count++;
         }
         return count;
@@ -219,7 +282,13 @@ public class TurnCostStorage {
         return new Itr();
     }
 
+    /**
+     * Stores the entries of every node consecutively, ordered by the node and then by fromEdge and toEdge. Afterwards
+     * the entries are found via binary search instead of walking the linked list of the via node.
+     */
     public void sortNodes() {
+        if (sorted)
+            unsort();
         IntArrayList tcFroms = new IntArrayList();
         IntArrayList tcTos = new IntArrayList();
         IntArrayList tcFlags = new IntArrayList();
@@ -233,28 +302,33 @@ public class TurnCostStorage {
         }
         long turnCostsCountBefore = turnCostsCount;
         turnCostsCount = 0;
+        IntArrayList nodeEntries = new IntArrayList();
         for (int node = 0; node < baseGraph.getNodes(); node++) {
-            boolean firstForNode = true;
             int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            if (turnCostIndex == NO_TURN_ENTRY)
+                continue;
+            nodeEntries.clear();
             while (turnCostIndex != NO_TURN_ENTRY) {
-                if (firstForNode) {
-                    baseGraph.getNodeAccess().setTurnCostIndex(node, turnCostsCount);
-                } else {
-                    long prevPointer = toPointer(turnCostsCount - 1);
-                    turnCosts.setInt(prevPointer + TC_NEXT, turnCostsCount);
-                }
+                nodeEntries.add(turnCostIndex);
+                turnCostIndex = tcNexts.get(turnCostIndex);
+            }
+            int[] order = IndirectSort.mergesort(0, nodeEntries.size(), (a, b) -> compare(
+                    tcFroms.get(nodeEntries.get(a)), tcTos.get(nodeEntries.get(a)), tcFroms.get(nodeEntries.get(b)), tcTos.get(nodeEntries.get(b))));
+            int end = turnCostsCount + order.length;
+            baseGraph.getNodeAccess().setTurnCostIndex(node, turnCostsCount);
+            for (int i : order) {
+                int entry = nodeEntries.get(i);
                 long pointer = toPointer(turnCostsCount);
-                turnCosts.setInt(pointer + TC_FROM, tcFroms.get(turnCostIndex));
-                turnCosts.setInt(pointer + TC_TO, tcTos.get(turnCostIndex));
-                turnCosts.setInt(pointer + TC_FLAGS, tcFlags.get(turnCostIndex));
-                turnCosts.setInt(pointer + TC_NEXT, NO_TURN_ENTRY);
+                turnCosts.setInt(pointer + TC_FROM, tcFroms.get(entry));
+                turnCosts.setInt(pointer + TC_TO, tcTos.get(entry));
+                turnCosts.setInt(pointer + TC_FLAGS, tcFlags.get(entry));
+                turnCosts.setInt(pointer + TC_NEXT, end);
                 turnCostsCount++;
-                firstForNode = false;
-                turnCostIndex = tcNexts.get(turnCostIndex);
             }
         }
         if (turnCostsCountBefore != turnCostsCount)
             throw new IllegalStateException("Turn cost count changed unexpectedly: " + turnCostsCountBefore + " -> " + turnCostsCount);
+        sorted = true;
     }
 
     public interface Iterator {
@@ -337,7 +411,7 @@ public class TurnCostStorage {
             if (turnCostIndex == NO_TURN_ENTRY) {
                 return false;
             }
-            turnCostIndex = turnCosts.getInt(turnCostPtr() + TC_NEXT);
+            turnCostIndex = nextIndex(turnCostIndex);
             if (turnCostIndex == NO_TURN_ENTRY) {
                 return false;
             }
@@ -45,8 +45,12 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -538,6 +542,41 @@ public class GHUtility {
         }
     }
 
+    /**
+     * Calls the given task for all indices from 0 to count - 1 using at most the given number of workers, which are
+     * submitted to the executor. The indices are assigned to the workers dynamically, so the tasks must only write to
+     * the given index. Every worker runs in a single thread, so the worker number passed to the task can be used to
+     * access per-thread state. Exceptions thrown by the task are re-thrown in the calling thread.
+     */
+    public static void runInParallel(ExecutorService executor, int workers, int count, IndexTask task) {
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Callable<Object>> callables = new ArrayList<>(workers);
+        for (int w = 0; w < Math.min(workers, count); w++) {
+            final int worker = w;
+            callables.add(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < count; i = nextIndex.getAndIncrement())
+                    task.run(worker, i);
+                return null;
+            });
+        }
+        try {
+            for (Future<Object> future : executor.invokeAll(callables))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    public interface IndexTask {
+        void run(int worker, int index);
+    }
+
     public static BBox createBBox(EdgeIteratorState edgeState) {
         PointList towerNodes = edgeState.fetchWayGeometry(FetchMode.TOWER_ONLY);
         int secondIndex = towerNodes.size() == 1 ? 0 : 1;
@@ -56,6 +56,8 @@ public class PathMerger {
     private PathDetailsBuilderFactory pathBuilderFactory;
     private List<String> requestedPathDetails = Collections.emptyList();
     private double favoredHeading = Double.NaN;
+    private long instructionsNanos;
+    private long pathDetailsNanos;
 
     public PathMerger(Graph graph, Weighting weighting) {
         this.graph = graph;
@@ -111,7 +113,9 @@ public class PathMerger {
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
             if (enableInstructions) {
+                long start = System.nanoTime();
                 InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
+                instructionsNanos += System.nanoTime() - start;
 
                 if (!il.isEmpty()) {
                     fullInstructions.addAll(il);
@@ -136,7 +140,9 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
+                long start = System.nanoTime();
                 responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph));
+                pathDetailsNanos += System.nanoTime() - start;
                 wayPointIndices.add(origPoints);
                 if (pathIndex == paths.size() - 1)
                     wayPointIndices.add(fullPoints.size() - 1);
@@ -181,6 +187,20 @@ public class PathMerger {
         return responsePath;
     }
 
+    /**
+     * @return the time spent on calculating the instructions in all calls of {@link #doWork} so far
+     */
+    public long getInstructionsNanos() {
+        return instructionsNanos;
+    }
+
+    /**
+     * @return the time spent on calculating the path details in all calls of {@link #doWork} so far
+     */
+    public long getPathDetailsNanos() {
+        return pathDetailsNanos;
+    }
+
     /**
      * This method iterates over all instructions and uses the available context to improve the instructions.
      * If the requests contains a heading, this method can transform the first continue to a u-turn if the heading
@@ -23,15 +23,28 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.routing.FlexiblePathCalculator;
+import com.graphhopper.routing.Router;
+import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.WeightingFactory;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.DirectedEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -39,6 +52,7 @@ import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.MaximumNodesExceededException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
@@ -288,6 +302,236 @@ public class GraphHopperTest {
         }
     }
 
+    @Test
+    public void testLoadWithFullMMap() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setEncodedValuesString("car_access, car_average_speed").
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        List<Double> distances = new ArrayList<>();
+        for (boolean disableCH : new boolean[]{false, true}) {
+            GHResponse rsp = hopper.route(req.putHint(CH.DISABLE, disableCH));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            distances.add(rsp.getBest().getDistance());
+        }
+        hopper.close();
+
+        hopper = new GraphHopper().init(new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("graph.dataaccess", "MMAP_FULL").
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(List.of(TestProfiles.accessAndSpeed(profile, "car"))).
+                setCHProfiles(List.of(new CHProfile(profile))).
+                setLMProfiles(List.of(new LMProfile(profile))));
+        hopper.setAllowWrites(false);
+        assertTrue(hopper.load());
+        assertEquals(DAType.MMAP_FULL, hopper.getBaseGraph().getDirectory().getDefaultType());
+        for (boolean disableCH : new boolean[]{false, true}) {
+            GHResponse rsp = hopper.route(req.putHint(CH.DISABLE, disableCH));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(distances.get(disableCH ? 1 : 0), rsp.getBest().getDistance(), 1.e-3);
+        }
+        hopper.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ch", "lm", "flex"})
+    public void testRouteBatch(String mode) {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.getRouterConfig().setBatchThreads(3);
+        hopper.importOrLoad();
+
+        Random rnd = new Random(123);
+        BBox bounds = hopper.getBaseGraph().getBounds();
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            List<GHPoint> points = new ArrayList<>();
+            for (int j = 0; j < 2 + rnd.nextInt(2); j++)
+                points.add(new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                        bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon)));
+            requests.add(new GHRequest(points).setProfile("car").
+                    putHint(CH.DISABLE, !mode.equals("ch")).
+                    putHint(Landmark.DISABLE, !mode.equals("lm")));
+        }
+        // invalid requests only lead to an error for the request itself
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("unknown"));
+        requests.add(new GHRequest(43.727687, 7.418737, 0, 0).setProfile("car"));
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").setAlgorithm(ALT_ROUTE).
+                putHint(CH.DISABLE, !mode.equals("ch")).
+                putHint(Landmark.DISABLE, !mode.equals("lm")));
+
+        List<GHResponse> responses = hopper.routeBatch(requests);
+        assertEquals(requests.size(), responses.size());
+        int found = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            GHResponse actual = responses.get(i);
+            assertTrue(actual.getHints().has("took"));
+            assertEquals(expected.getErrors().toString(), actual.getErrors().toString(), "request " + i);
+            if (expected.hasErrors())
+                continue;
+            found++;
+            assertEquals(expected.getAll().size(), actual.getAll().size());
+            // the snapped points of the other requests split the edges of the shared query graph, so the distances
+            // can differ slightly and the geometry can contain a few more points
+            assertEquals(expected.getBest().getRouteWeight(), actual.getBest().getRouteWeight(), 1.e-2, "request " + i);
+            assertEquals(expected.getBest().getDistance(), actual.getBest().getDistance(), 1.e-2, "request " + i);
+            assertEquals(expected.getBest().getTime(), actual.getBest().getTime(), 10, "request " + i);
+            assertEquals(expected.getBest().getWaypoints(), actual.getBest().getWaypoints(), "request " + i);
+        }
+        assertTrue(found > 30, "found: " + found);
+        assertThrows(IllegalArgumentException.class, () -> hopper.routeBatch(Collections.nCopies(1001, requests.get(0))));
+        hopper.close();
+    }
+
+    @Test
+    public void testRouteBatchWithHeadings() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.getRouterConfig().setBatchThreads(4);
+        hopper.importOrLoad();
+
+        Random rnd = new Random(123);
+        BBox bounds = hopper.getBaseGraph().getBounds();
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            List<GHPoint> points = new ArrayList<>();
+            for (int j = 0; j < 2 + rnd.nextInt(2); j++)
+                points.add(new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                        bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon)));
+            GHRequest request = new GHRequest(points).setProfile("car");
+            // the headings and pass_through mark the unfavored virtual edges on the query graph, which must not be
+            // shared with the requests that are calculated concurrently
+            if (i % 2 == 0)
+                for (int j = 0; j < points.size(); j++)
+                    request.getHeadings().add(j == 0 ? rnd.nextInt(360) : Double.NaN);
+            else
+                request.putHint(Routing.PASS_THROUGH, true);
+            requests.add(request);
+        }
+
+        List<GHResponse> responses = hopper.routeBatch(requests);
+        int found = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            GHResponse actual = responses.get(i);
+            assertEquals(expected.getErrors().toString(), actual.getErrors().toString(), "request " + i);
+            if (expected.hasErrors())
+                continue;
+            found++;
+            assertEquals(expected.getBest().getRouteWeight(), actual.getBest().getRouteWeight(), 1.e-6, "request " + i);
+            assertEquals(expected.getBest().getDistance(), actual.getBest().getDistance(), 1.e-6, "request " + i);
+            assertEquals(expected.getBest().getPoints(), actual.getBest().getPoints(), "request " + i);
+        }
+        assertTrue(found > 60, "found: " + found);
+        hopper.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"snap", "path"})
+    public void testRouteBatchClosesSolversOnUnexpectedError(String failAt) {
+        AtomicInteger openSolvers = new AtomicInteger();
+        GraphHopper hopper = new GraphHopper() {
+            @Override
+            protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex,
+                                            Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathBuilderFactory,
+                                            TranslationMap trMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                                            Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+                return new Router(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory, trMap,
+                        routerConfig, weightingFactory, chGraphs, landmarks) {
+                    @Override
+                    protected Solver createFlexSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
+                                                      EncodingManager encodingManager, WeightingFactory weightingFactory,
+                                                      BaseGraph baseGraph, LocationIndex locationIndex) {
+                        openSolvers.incrementAndGet();
+                        boolean fail = request.getHints().getBool("fail", false);
+                        return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, baseGraph, locationIndex) {
+                            @Override
+                            protected DirectedEdgeFilter createDirectedEdgeFilter() {
+                                if (fail && failAt.equals("snap"))
+                                    throw new IllegalStateException("snap failed");
+                                return super.createDirectedEdgeFilter();
+                            }
+
+                            @Override
+                            protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
+                                if (fail && failAt.equals("path"))
+                                    throw new IllegalStateException("path failed");
+                                return super.createPathCalculator(queryGraph);
+                            }
+
+                            @Override
+                            protected void close() {
+                                openSolvers.decrementAndGet();
+                            }
+                        };
+                    }
+                };
+            }
+        }.
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.getRouterConfig().setBatchThreads(2);
+        hopper.importOrLoad();
+
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").putHint("fail", i == 10));
+        // an unexpected exception fails the whole batch, but the solvers of all requests must be closed anyway
+        assertThrows(IllegalStateException.class, () -> hopper.routeBatch(requests));
+        assertEquals(0, openSolvers.get());
+        hopper.close();
+    }
+
+    @Test
+    public void testTimings() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.importOrLoad();
+
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                setPathDetails(List.of("average_speed"));
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(List.of(Router.STAGE_SNAP, Router.STAGE_QUERY_GRAPH, Router.STAGE_SEARCH, Router.STAGE_PATH_EXTRACTION,
+                Router.STAGE_INSTRUCTIONS, Router.STAGE_PATH_DETAILS, Router.STAGE_PATH_MERGE), new ArrayList<>(rsp.getTimings().keySet()));
+        assertTrue(rsp.getTimings().get(Router.STAGE_SEARCH) > 0);
+        assertTrue(rsp.getTimings().get(Router.STAGE_INSTRUCTIONS) > 0);
+        // the timings are only added to the hints if requested
+        assertFalse(rsp.getHints().has(Routing.TIMINGS));
+
+        rsp = hopper.route(request.putHint(Routing.TIMINGS, true));
+        Map<String, Double> timings = rsp.getHints().getObject(Routing.TIMINGS, null);
+        assertEquals(rsp.getTimings().keySet(), timings.keySet());
+        assertEquals(rsp.getTimings().get(Router.STAGE_SEARCH) / 1e6, timings.get(Router.STAGE_SEARCH), 1.e-6);
+
+        List<GHResponse> responses = hopper.routeBatch(List.of(request, request));
+        for (GHResponse r : responses)
+            assertEquals(timings.keySet(), ((Map<?, ?>) r.getHints().getObject(Routing.TIMINGS, null)).keySet());
+        hopper.close();
+    }
+
     private void testImportCloseAndLoad(boolean ch, boolean lm) {
         final String profileName = "profile";
         GraphHopper hopper = new GraphHopper().
@@ -695,6 +939,51 @@ public class GraphHopperTest {
         assertTrue(rsp.getErrors().get(0) instanceof ConnectionNotFoundException);
     }
 
+    @Test
+    public void testCustomizableCH() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                setCCHEnabled(true);
+        hopper.importOrLoad();
+        assertNotNull(hopper.getCustomizableCH());
+
+        CustomModel blockedArea = new CustomModel().addToPriority(If("in_blocked_area", MULTIPLY, "0"));
+        blockedArea.getAreas().getFeatures().add(createRectangle("blocked_area", 49.97986, 11.472902, 50.003946, 11.534357));
+        CustomModel slow = new CustomModel().addToSpeed(If("true", LIMIT, "30")).setDistanceInfluence(100d);
+        for (CustomModel customModel : List.of(blockedArea, slow)) {
+            GHRequest req = new GHRequest(49.975845, 11.522598, 50.026821, 11.497364).
+                    setProfile(profile).
+                    setCustomModel(customModel);
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            req.putHint(CH.DISABLE, true);
+            GHResponse refRsp = hopper.route(req);
+            assertFalse(refRsp.hasErrors(), refRsp.getErrors().toString());
+            assertEquals(refRsp.getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 1);
+            assertEquals(refRsp.getBest().getDistance(), rsp.getBest().getDistance(), 1);
+            assertTrue(rsp.getHints().getInt("visited_nodes.sum", 0) < refRsp.getHints().getInt("visited_nodes.sum", 0));
+        }
+        hopper.close();
+
+        // the node ordering is stored and loaded again
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                setCCHEnabled(true);
+        hopper.importOrLoad();
+        GHResponse rsp = hopper.route(new GHRequest(49.975845, 11.522598, 50.026821, 11.497364).
+                setProfile(profile).
+                setCustomModel(blockedArea));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(13988, rsp.getBest().getDistance(), 1);
+        hopper.close();
+    }
+
     @Test
     public void testCustomModel() {
         final String customCar = "custom_car";
@@ -1071,6 +1360,31 @@ public class GraphHopperTest {
         assertEquals(91, rsp.getBest().getDistance(), 5.);
     }
 
+    @Test
+    public void testElevationThreads() {
+        double[] elevations = importMonacoElevations(1);
+        Helper.removeDir(new File(GH_LOCATION));
+        assertArrayEquals(elevations, importMonacoElevations(4));
+        assertTrue(Arrays.stream(elevations).anyMatch(ele -> ele > 50));
+    }
+
+    private static double[] importMonacoElevations(int elevationThreads) {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.setElevationProvider(new SRTMProvider(DIR));
+        hopper.getReaderConfig().setElevationThreads(elevationThreads);
+        hopper.importOrLoad();
+        NodeAccess na = hopper.getBaseGraph().getNodeAccess();
+        double[] elevations = new double[hopper.getBaseGraph().getNodes()];
+        for (int node = 0; node < elevations.length; node++)
+            elevations[node] = na.getEle(node);
+        hopper.close();
+        return elevations;
+    }
+
     @Test
     public void testSRTMWithInstructions() {
         final String profile = "profile";
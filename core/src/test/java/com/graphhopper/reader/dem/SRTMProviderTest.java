@@ -17,14 +17,17 @@
  */
 package com.graphhopper.reader.dem;
 
+import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.stream.IntStream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -99,6 +102,39 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testMaxOpenTiles() {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxOpenTiles(1);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        int key = instance.calcIntKey(49.968651, 11.574869);
+        assertTrue(new File("./files/dem" + key).exists());
+        // the first tile is closed, but its file stays and is loaded again
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+
+        instance.release();
+        assertFalse(new File("./files/dem" + key).exists());
+        assertFalse(new File("./files/dem" + instance.calcIntKey(55.8943144, -3)).exists());
+        assertThrows(IllegalArgumentException.class, () -> instance.setMaxOpenTiles(-1));
+    }
+
+    @Test
+    public void testConcurrentGetEle() {
+        instance = new SRTMProvider("./files/");
+        // two tiles requested by several threads at the same time, every tile must only be loaded once
+        double[] lats = {49.968651, 55.8943144, 49.958233};
+        double[] lons = {11.574869, -3, 11.558647};
+        double[] expected = {466, 161, 330};
+        GHUtility.runConcurrently(IntStream.range(0, 32).mapToObj(i -> () -> {
+            int p = i % lats.length;
+            assertEquals(expected[p], instance.getEle(lats[p], lons[p]), 1e-1);
+        }), 8);
+        instance.release();
+        assertFalse(new File("./files/dem" + instance.calcIntKey(49.968651, 11.574869)).exists());
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DenseLongLongMapTest {
+    private final String dir = "./target/tmp/dense-long-long-map";
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(dir));
+        new File(dir).mkdirs();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(dir));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        DenseLongLongMap map = new DenseLongLongMap(new GHDirectory(dir, DAType.MMAP), "tmp_map", DAType.MMAP, -1);
+        assertEquals(-1, map.get(123));
+        assertEquals(-1, map.put(123, 5));
+        assertEquals(5, map.put(123, -7));
+        assertEquals(-7, map.get(123));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 0));
+        assertEquals(0, map.get(-Long.MAX_VALUE));
+        assertEquals(-1, map.put(Long.MAX_VALUE, map.getMaxValue()));
+        assertEquals(map.getMaxValue(), map.get(Long.MAX_VALUE));
+        assertEquals(3, map.getSize());
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, map.getMaxValue() + 1));
+        map.clear();
+        assertEquals(0, map.getSize());
+        assertEquals(-1, map.get(123));
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        DenseLongLongMap map = new DenseLongLongMap(new GHDirectory(dir, DAType.MMAP), "tmp_map", DAType.MMAP, -1);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key;
+            int r = rnd.nextInt(20);
+            if (r == 0)
+                // some negative or very large keys
+                key = rnd.nextLong();
+            else if (r == 1)
+                // some scattered keys
+                key = rnd.nextInt(50_000_000);
+            else
+                // but most of them are clustered like OSM node ids
+                key = 10_000_000_000L + rnd.nextInt(100_000);
+            long value = rnd.nextLong() >> 25;
+            if (value == -1)
+                continue;
+            assertEquals(expected.getOrDefault(key, -1L), map.put(key, value), "seed: " + seed);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.getSize(), "seed: " + seed);
+        for (Map.Entry<Long, Long> e : expected.entrySet())
+            assertEquals(e.getValue(), map.get(e.getKey()), "seed: " + seed);
+        for (int i = 0; i < 10_000; i++) {
+            long key = 10_000_000_000L + 100_000 + rnd.nextInt(100_000);
+            assertEquals(-1, map.get(key), "seed: " + seed);
+        }
+        map.clear();
+    }
+}
@@ -31,10 +31,16 @@ import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
+import com.graphhopper.routing.util.parsers.BikeAccessParser;
+import com.graphhopper.routing.util.parsers.CarAccessParser;
+import com.graphhopper.routing.util.parsers.CarAverageSpeedParser;
 import com.graphhopper.routing.util.parsers.CountryParser;
 import com.graphhopper.routing.util.parsers.OSMBikeNetworkTagParser;
+import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMMtbNetworkTagParser;
 import com.graphhopper.routing.util.parsers.OSMRoadAccessParser;
+import com.graphhopper.routing.util.parsers.OSMRoadClassParser;
+import com.graphhopper.routing.util.parsers.OSMTemporalAccessParser;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
@@ -46,10 +52,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 
 import static com.graphhopper.routing.util.TransportationMode.CAR;
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -984,6 +992,97 @@ public class OSMReaderTest {
         assertEquals(Country.BGR, iter.get(countryEnc));
     }
 
+    @Test
+    public void testParseThreads() throws IOException {
+        File bayreuth = new File("../core/files/north-bayreuth.osm.gz");
+        BaseGraph expected = readGraph(bayreuth, new OSMReaderConfig());
+        assertTrue(expected.getEdges() > 1000, "too few edges: " + expected.getEdges());
+        assertSameGraph(expected, readGraph(bayreuth, new OSMReaderConfig().setParseThreads(3)));
+
+        // the date ranges of the conditional tags are parsed by all threads at the same time
+        File conditional = writeConditionalWays(new File(dir, "conditional.osm"), 10000);
+        expected = readGraph(conditional, new OSMReaderConfig());
+        assertTrue(expected.getEdges() > 1000, "too few edges: " + expected.getEdges());
+        assertSameGraph(expected, readGraph(conditional, new OSMReaderConfig().setParseThreads(4)));
+    }
+
+    @Test
+    public void testOffHeapNodeIds() throws IOException {
+        File bayreuth = new File("../core/files/north-bayreuth.osm.gz");
+        BaseGraph expected = readGraph(bayreuth, new OSMReaderConfig());
+        assertSameGraph(expected, readGraph(bayreuth, new OSMReaderConfig().setOffHeapNodeIds(true)));
+        // the temporary files are removed after the import
+        assertFalse(new File(dir + "/tmp_osm_node_ids_ints").exists());
+    }
+
+    private BaseGraph readGraph(File file, OSMReaderConfig config) throws IOException {
+        EncodingManager em = new EncodingManager.Builder()
+                .add(VehicleAccess.create("car"))
+                .add(VehicleSpeed.create("car", 7, 2, true))
+                .add(VehicleAccess.create("bike"))
+                .add(Roundabout.create())
+                .add(FerrySpeed.create())
+                .add(RoadClass.create())
+                .add(MaxSpeed.create())
+                .add(CarTemporalAccess.create())
+                .build();
+        EnumEncodedValue<CarTemporalAccess> temporalAccessEnc = em.getEnumEncodedValue(CarTemporalAccess.KEY, CarTemporalAccess.class);
+        OSMParsers osmParsers = new OSMParsers()
+                .addWayTagParser(new CarAccessParser(em, new PMap()))
+                .addWayTagParser(new CarAverageSpeedParser(em))
+                .addWayTagParser(new BikeAccessParser(em, new PMap()))
+                .addWayTagParser(new OSMRoadClassParser(em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class)))
+                .addWayTagParser(new OSMMaxSpeedParser(em.getDecimalEncodedValue(MaxSpeed.KEY)))
+                .addWayTagParser(new OSMTemporalAccessParser(CarTemporalAccess.CONDITIONALS, (edgeId, edgeIntAccess, b) ->
+                        temporalAccessEnc.setEnum(false, edgeId, edgeIntAccess, b ? CarTemporalAccess.YES : CarTemporalAccess.NO), "2024-12-24"));
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new GHDirectory(dir, DAType.RAM)).create();
+        new OSMReader(graph, osmParsers, config)
+                // use small batches such that the file is split into many of them
+                .setEdgeBatchSize(100)
+                .setFile(file)
+                .readGraph();
+        return graph;
+    }
+
+    /**
+     * Writes an OSM file with the given number of ways that are closed or opened by conditional date ranges
+     */
+    private static File writeConditionalWays(File file, int ways) throws IOException {
+        String[] ranges = {"Nov 01 - Apr 30", "2019 Jan 01 - 2019 Mar 31", "Jul 15 - Aug 31", "Dec - Feb", "2024 Dec",
+                "15.04-15.10", "Mo-Fr", "Jan 10-Jan 20", "xyz"};
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+        for (int i = 0; i < 2 * ways; i++)
+            sb.append(String.format(Locale.ROOT, "<node id='%d' lat='%.4f' lon='%.4f'/>\n", i + 1, 50 + i / 2 * 0.001, 11 + i % 2 * 0.001));
+        for (int i = 0; i < ways; i++) {
+            String range = ranges[i % ranges.length];
+            sb.append(String.format(Locale.ROOT, "<way id='%d'><nd ref='%d'/><nd ref='%d'/>", i + 1, 2 * i + 1, 2 * i + 2))
+                    .append("<tag k='highway' v='residential'/>");
+            if (i % 2 == 0)
+                sb.append("<tag k='motor_vehicle' v='no'/><tag k='motor_vehicle:conditional' v='yes @ (").append(range).append(")'/>");
+            else
+                sb.append("<tag k='access:conditional' v='no @ (").append(range).append(")'/>");
+            sb.append("</way>\n");
+        }
+        sb.append("</osm>\n");
+        Files.writeString(file.toPath(), sb.toString());
+        return file;
+    }
+
+    private static void assertSameGraph(BaseGraph expected, BaseGraph actual) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            EdgeIteratorState e = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState a = actual.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(e.getBaseNode(), a.getBaseNode());
+            assertEquals(e.getAdjNode(), a.getAdjNode());
+            assertEquals(e.getDistance(), a.getDistance());
+            assertEquals(e.getFlags(), a.getFlags(), "flags differ for edge " + edge);
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.fetchWayGeometry(FetchMode.ALL), a.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
     @Test
     public void testFixWayName() {
         assertEquals("B8, B12", OSMReader.fixWayName("B8;B12"));
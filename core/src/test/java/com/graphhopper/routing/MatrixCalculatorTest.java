@@ -0,0 +1,140 @@
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixCalculatorTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build())
+            .withTurnCosts(true).create();
+
+    @Test
+    void simple() {
+        // 0-1-2-3
+        //     |
+        //     4  5-6
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(200).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(300).set(speedEnc, 10, 0);
+        graph.edge(2, 4).setDistance(400).set(speedEnc, 20, 20);
+        graph.edge(5, 6).setDistance(10).set(speedEnc, 10, 10);
+        RoutingCHGraph chGraph = prepareNodeBasedCH();
+        MatrixCalculator.Result result = new MatrixCalculator(chGraph).calcMatrix(new int[]{0, 3, 4, -1}, new int[]{3, 0, 5});
+        assertEquals(600, result.distances[0][0], 1.e-6);
+        assertEquals(60_000, result.times[0][0]);
+        assertEquals(60, result.weights[0][0], 1.e-6);
+        assertEquals(0, result.distances[0][1], 1.e-6);
+        // 3->0 is not possible, because 2-3 is a one-way
+        assertFalse(result.isConnected(1, 1));
+        assertEquals(0, result.weights[1][0]);
+        assertEquals(700, result.distances[2][0], 1.e-6);
+        assertEquals(20_000 + 30_000, result.times[2][0]);
+        // node 5 is not connected to any other node
+        for (int i = 0; i < 3; i++)
+            assertFalse(result.isConnected(i, 2));
+        // the last point is invalid
+        for (int j = 0; j < 3; j++)
+            assertFalse(result.isConnected(3, j));
+    }
+
+    @Test
+    void sameSourceAndTarget() {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        RoutingCHGraph chGraph = prepareNodeBasedCH();
+        MatrixCalculator.Result result = new MatrixCalculator(chGraph).setCalcTimes(false).calcMatrix(new int[]{0, 1}, new int[]{0, 1});
+        assertNull(result.times);
+        assertEquals(0, result.weights[0][0]);
+        assertEquals(0, result.distances[1][1]);
+        assertEquals(100, result.distances[0][1], 1.e-6);
+        assertEquals(100, result.distances[1][0], 1.e-6);
+    }
+
+    @Test
+    void edgeBasedNotSupported() {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CHConfig chConfig = CHConfig.edgeBased("p", new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        assertThrows(IllegalArgumentException.class, () -> new MatrixCalculator(chGraph));
+    }
+
+    @RepeatedTest(10)
+    void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // no offset, because traveling via virtual edges needs to be the same as taking the direct edge
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, speedEnc, null, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        RoutingCHGraph chGraph = prepareNodeBasedCH();
+        Weighting weighting = chGraph.getWeighting();
+
+        List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 20, false, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        QueryRoutingCHGraph queryCHGraph = new QueryRoutingCHGraph(chGraph, queryGraph);
+        int[] fromNodes = new int[15];
+        int[] toNodes = new int[25];
+        for (int i = 0; i < fromNodes.length; i++)
+            fromNodes[i] = rnd.nextInt(queryGraph.getNodes());
+        for (int j = 0; j < toNodes.length; j++)
+            toNodes[j] = rnd.nextInt(queryGraph.getNodes());
+
+        MatrixCalculator.Result result = new MatrixCalculator(queryCHGraph).calcMatrix(fromNodes, toNodes);
+        List<String> strictViolations = new ArrayList<>();
+        for (int i = 0; i < fromNodes.length; i++) {
+            for (int j = 0; j < toNodes.length; j++) {
+                Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(fromNodes[i], toNodes[j]);
+                String msg = "seed: " + seed + ", " + fromNodes[i] + "->" + toNodes[j];
+                assertEquals(refPath.isFound(), result.isConnected(i, j), msg);
+                if (!refPath.isFound())
+                    continue;
+                assertEquals(refPath.getWeight(), result.weights[i][j], 1.e-2, msg);
+                // the paths can differ when there are multiple shortest paths, so we compare with the CH path that
+                // should be the same most of the time
+                Path chPath = new CHRoutingAlgorithmFactory(queryCHGraph).createAlgo(new PMap()).calcPath(fromNodes[i], toNodes[j]);
+                if (Math.abs(chPath.getDistance() - result.distances[i][j]) > 1.e-1)
+                    strictViolations.add("wrong distance " + msg + ", expected: " + chPath.getDistance() + ", given: " + result.distances[i][j]);
+                if (Math.abs(chPath.getTime() - result.times[i][j]) > 50)
+                    strictViolations.add("wrong time " + msg + ", expected: " + chPath.getTime() + ", given: " + result.times[i][j]);
+            }
+        }
+        if (strictViolations.size() > 0.05 * fromNodes.length * toNodes.length)
+            fail("Too many strict violations: " + strictViolations.size() + "\n" + String.join("\n", strictViolations));
+    }
+
+    private RoutingCHGraph prepareNodeBasedCH() {
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+}
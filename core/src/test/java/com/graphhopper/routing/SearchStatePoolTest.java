@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchStatePoolTest {
+
+    @Test
+    public void reuseCollections() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).build()).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        List<Supplier<RoutingAlgorithm>> algos = List.of(
+                () -> new Dijkstra(graph, weighting, TraversalMode.NODE_BASED),
+                () -> new AStar(graph, weighting, TraversalMode.EDGE_BASED),
+                () -> new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED),
+                () -> new AStarBidirection(graph, weighting, TraversalMode.EDGE_BASED));
+
+        List<int[]> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            queries.add(new int[]{rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes())});
+        for (Supplier<RoutingAlgorithm> algo : algos) {
+            long reusedBefore = SearchStatePool.getReusedCount();
+            for (int[] q : queries) {
+                Path expected = algo.get().calcPath(q[0], q[1]);
+                Path actual;
+                try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+                    // scopes can be nested, the collections are only released when the outer scope is closed
+                    try (SearchStatePool.Scope nested = SearchStatePool.open()) {
+                        algo.get().calcPath(q[1], q[0]);
+                    }
+                    actual = algo.get().calcPath(q[0], q[1]);
+                }
+                assertEquals(expected.getWeight(), actual.getWeight(), 1.e-6, "seed: " + seed);
+                assertEquals(expected.calcNodes(), actual.calcNodes(), "seed: " + seed);
+            }
+            assertTrue(SearchStatePool.getReusedCount() > reusedBefore + queries.size());
+        }
+    }
+
+    @Test
+    public void doNotKeepQueuesThatGrewLarge() {
+        PriorityQueue<Integer> large;
+        PriorityQueue<Integer> small;
+        try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+            large = SearchStatePool.createQueue(10);
+            for (int i = 0; i <= SearchStatePool.MAX_POOLED_SIZE; i++)
+                large.add(i);
+            // at the end of the search the queue might be small again, but its array is still large
+            while (large.size() > 1)
+                large.poll();
+            small = SearchStatePool.createQueue(10);
+            small.add(1);
+        }
+        List<PriorityQueue<Integer>> pooled = new ArrayList<>();
+        try (SearchStatePool.Scope ignored = SearchStatePool.open()) {
+            for (int i = 0; i <= SearchStatePool.MAX_POOLED; i++)
+                pooled.add(SearchStatePool.createQueue(10));
+        }
+        assertTrue(pooled.stream().anyMatch(q -> q == small));
+        assertTrue(pooled.stream().noneMatch(q -> q == large));
+    }
+
+    @Test
+    public void closeTwice() {
+        SearchStatePool.Scope scope = SearchStatePool.open();
+        scope.close();
+        assertThrows(IllegalStateException.class, scope::close);
+    }
+}
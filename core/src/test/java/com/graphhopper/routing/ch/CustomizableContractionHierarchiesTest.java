@@ -0,0 +1,133 @@
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomizableContractionHierarchiesTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue otherSpeedEnc = new DecimalEncodedValueImpl("other_speed", 5, 5, true);
+    private final BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).add(otherSpeedEnc).build()).create();
+
+    @Test
+    void nodeOrderingContainsAllNodes() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 1_000, 2.5, true, speedEnc, null, 0.9, 0.8);
+        int[] nodesByLevel = new NestedDissectionOrdering(graph).calcNodeOrdering();
+        boolean[] seen = new boolean[graph.getNodes()];
+        for (int node : nodesByLevel) {
+            assertFalse(seen[node], "node " + node + " appears twice");
+            seen[node] = true;
+        }
+    }
+
+    @Test
+    void simple() {
+        // 0-1-2
+        //  \ /
+        //   3
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(0, 3).setDistance(50).set(speedEnc, 10, 10);
+        graph.edge(3, 2).setDistance(50).set(speedEnc, 10, 0);
+        graph.freeze();
+        // node 1 and 3 are contracted first, so the shortest path 0-3-2 must be found via shortcuts between 0 and 2
+        CustomizableContractionHierarchies cch = new CustomizableContractionHierarchies(graph, NodeOrderingProvider.fromArray(1, 3, 0, 2), 1);
+        // four original edges and the fill-in arc 0-2
+        assertEquals(5, cch.getArcs());
+        RoutingCHGraph chGraph = cch.customize(new SpeedWeighting(speedEnc));
+        Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(0, 2);
+        assertEquals(10, path.getWeight(), 1.e-6);
+        assertEquals(100, path.getDistance(), 1.e-6);
+        assertEquals("[0, 3, 2]", path.calcNodes().toString());
+        // 3->2 is a one-way, so the other way around we need to take the longer path
+        path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(2, 0);
+        assertEquals(20, path.getWeight(), 1.e-6);
+        assertEquals("[2, 1, 0]", path.calcNodes().toString());
+    }
+
+    @Test
+    void cache() {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CustomizableContractionHierarchies cch = new CustomizableContractionHierarchies(graph, NodeOrderingProvider.fromArray(0, 1), 1);
+        RoutingCHGraph a = cch.acquire("a", () -> new SpeedWeighting(speedEnc));
+        assertSame(a, cch.acquire("a", () -> fail("should be cached")));
+        cch.release(a);
+        RoutingCHGraph b = cch.acquire("b", () -> new SpeedWeighting(speedEnc));
+        assertNotSame(a, b);
+        // the cache size is one, so a was evicted, but it is still in use and must not be closed yet
+        Path path = new CHRoutingAlgorithmFactory(a).createAlgo(new PMap()).calcPath(0, 1);
+        assertEquals(10, path.getWeight(), 1.e-6);
+        RoutingCHGraph c = cch.acquire("a", () -> new SpeedWeighting(speedEnc));
+        assertNotSame(a, c);
+        cch.release(a);
+        // now a was closed
+        assertThrows(IllegalArgumentException.class, () -> cch.release(a));
+        cch.release(b);
+        cch.release(c);
+        cch.close();
+    }
+
+    @Test
+    void nodeOrderingIsStored(@TempDir java.nio.file.Path dir) {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        BaseGraph graph = new BaseGraph.Builder(EncodingManager.start().add(speedEnc).build())
+                .setDir(new RAMDirectory(dir.toAbsolutePath().toString(), true)).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.5, true, speedEnc, null, 0.9, 0.8);
+        graph.freeze();
+        assertNull(CustomizableContractionHierarchies.loadNodeOrdering(graph));
+        NodeOrderingProvider created = CustomizableContractionHierarchies.createNodeOrdering(graph);
+        NodeOrderingProvider loaded = CustomizableContractionHierarchies.loadNodeOrdering(graph);
+        assertNotNull(loaded);
+        for (int level = 0; level < graph.getNodes(); level++)
+            assertEquals(created.getNodeIdForLevel(level), loaded.getNodeIdForLevel(level));
+    }
+
+    @RepeatedTest(10)
+    void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.5, true, speedEnc, null, 0.9, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            // some edges are inaccessible for the second weighting
+            double fwd = rnd.nextDouble() < 0.1 ? 0 : 1 + rnd.nextInt(30);
+            double bwd = rnd.nextDouble() < 0.1 ? 0 : 1 + rnd.nextInt(30);
+            iter.set(otherSpeedEnc, fwd, bwd);
+        }
+        graph.freeze();
+        CustomizableContractionHierarchies cch = new CustomizableContractionHierarchies(graph,
+                NodeOrderingProvider.fromArray(new NestedDissectionOrdering(graph).setMaxCellSize(4).calcNodeOrdering()), 2);
+        for (Weighting weighting : new Weighting[]{new SpeedWeighting(speedEnc), new SpeedWeighting(otherSpeedEnc)}) {
+            RoutingCHGraph chGraph = cch.customize(weighting);
+            for (int i = 0; i < 100; i++) {
+                int from = rnd.nextInt(graph.getNodes());
+                int to = rnd.nextInt(graph.getNodes());
+                Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+                String msg = "seed: " + seed + ", " + weighting + ", " + from + "->" + to;
+                assertEquals(refPath.isFound(), path.isFound(), msg);
+                if (refPath.isFound())
+                    assertEquals(refPath.getWeight(), path.getWeight(), 1.e-1, msg);
+            }
+        }
+    }
+}
@@ -576,6 +576,42 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @Test
+    public void testParallelContraction() {
+        int numNodes = 5_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 1.3, true, speedEnc, null, 0.9, 0.8);
+        graph.freeze();
+
+        CHConfig config2 = CHConfig.nodeBased("c2", weighting);
+        CHConfig config4 = CHConfig.nodeBased("c4", weighting);
+        PrepareContractionHierarchies.Result res2 = PrepareContractionHierarchies.fromGraph(graph, config2)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 2).putObject(CHParameters.CONTRACTION_BATCH_SIZE, 100))
+                .doWork();
+        PrepareContractionHierarchies.Result res4 = PrepareContractionHierarchies.fromGraph(graph, config4)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4).putObject(CHParameters.CONTRACTION_BATCH_SIZE, 100))
+                .doWork();
+
+        // the result must not depend on the number of threads
+        CHStorage store2 = res2.getCHStorage();
+        CHStorage store4 = res4.getCHStorage();
+        assertTrue(store2.getShortcuts() > 0);
+        assertEquals(store2.getShortcuts(), store4.getShortcuts(), "seed: " + seed);
+        for (int node = 0; node < numNodes; node++)
+            assertEquals(store2.getLevel(store2.toNodePointer(node)), store4.getLevel(store4.toNodePointer(node)), "seed: " + seed);
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, store4, res4.getCHConfig());
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed + ", " + from + "->" + to);
+        }
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
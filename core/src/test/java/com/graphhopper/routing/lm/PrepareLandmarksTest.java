@@ -19,6 +19,7 @@ package com.graphhopper.routing.lm;
 
 import com.graphhopper.routing.AStar;
 import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Dijkstra;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.RoutingAlgorithm;
 import com.graphhopper.routing.ev.*;
@@ -33,6 +34,7 @@ import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
@@ -48,8 +50,7 @@ import java.util.Random;
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -212,4 +213,122 @@ public class PrepareLandmarksTest {
 
         Helper.removeDir(new File(fileStr));
     }
+
+    @Test
+    public void testCompressedWeights() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).add(Subnetwork.create("car")).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // use two-way edges only to make sure nodes connected via Dijkstra also belong to the same landmark subnetwork
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, true, speedEnc, null, 1.0, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+
+        LandmarkStorage store = new LandmarkStorage(graph, em, new RAMDirectory(), new LMConfig("car", weighting), 8).
+                setMaximumWeight(10_000);
+        store.setMinimumNodes(2);
+        store.createLandmarks();
+        Directory compressedDir = new RAMDirectory();
+        LandmarkStorage compressedStore = new LandmarkStorage(graph, em, compressedDir, new LMConfig("car", weighting, true), 8).
+                setMaximumWeight(10_000);
+        compressedStore.setMinimumNodes(2);
+        compressedStore.createLandmarks();
+
+        assertTrue(compressedStore.isCompressed());
+        assertEquals(store.toString(), compressedStore.toString());
+        // the uncompressed weights are only needed during the preparation
+        assertThrows(IllegalStateException.class, () -> compressedDir.remove("landmarks_raw_car"));
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                int from = store.getFromWeight(lmIdx, node);
+                assertTrue(compressedStore.getFromWeight(lmIdx, node) <= from);
+                assertTrue(compressedStore.getFromWeightUpperBound(lmIdx, node) >= from);
+                int to = store.getToWeight(lmIdx, node);
+                assertTrue(compressedStore.getToWeight(lmIdx, node) <= to);
+                assertTrue(compressedStore.getToWeightUpperBound(lmIdx, node) >= to);
+            }
+        }
+
+        PMap hints = new PMap().putObject(Parameters.Landmark.ACTIVE_COUNT, 4);
+        Random rnd = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path expectedPath = new Dijkstra(graph, weighting, tm).calcPath(from, to);
+            if (!expectedPath.isFound())
+                continue;
+            for (String algo : Arrays.asList(ASTAR, ASTAR_BI)) {
+                RoutingAlgorithm algoWithLandmarks = new LMRoutingAlgorithmFactory(compressedStore).createAlgo(graph, weighting,
+                        new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(tm).setHints(hints));
+                Path path = algoWithLandmarks.calcPath(from, to);
+                assertTrue(path.isFound());
+                assertEquals(expectedPath.getWeight(), path.getWeight(), 1.e-6, algo + " " + from + "->" + to);
+            }
+        }
+    }
+
+    @Test
+    public void testThreads() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).add(Subnetwork.create("car")).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+
+        LandmarkStorage store = new LandmarkStorage(graph, em, new RAMDirectory(), new LMConfig("car", weighting), 8).
+                setMaximumWeight(10_000);
+        store.setMinimumNodes(2);
+        store.createLandmarks();
+        LandmarkStorage parallelStore = new LandmarkStorage(graph, em, new RAMDirectory(), new LMConfig("car", weighting), 8).
+                setMaximumWeight(10_000);
+        parallelStore.setMinimumNodes(2);
+        parallelStore.setThreads(4);
+        parallelStore.createLandmarks();
+
+        assertEquals(store.toString(), parallelStore.toString());
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(store.getFromWeight(lmIdx, node), parallelStore.getFromWeight(lmIdx, node));
+                assertEquals(store.getToWeight(lmIdx, node), parallelStore.getToWeight(lmIdx, node));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallelStore.setThreads(0));
+    }
+
+    @Test
+    public void testStoreAndLoadCompressed() {
+        graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
+        graph.edge(1, 2).setDistance(80_000).set(speedEnc, 60);
+        String fileStr = "./target/tmp-lm-compressed";
+        Helper.removeDir(new File(fileStr));
+
+        Directory dir = new RAMDirectory(fileStr, true).create();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting, true);
+        PrepareLandmarks plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2);
+        plm.setMinimumNodes(2);
+        plm.doWork();
+        double expectedFactor = plm.getLandmarkStorage().getFactor();
+        int expectedWeight = plm.getLandmarkStorage().getFromWeight(0, 1);
+        // the compressed weight is a lower bound
+        assertEquals(1323, Math.round(expectedWeight * expectedFactor));
+        assertEquals(1333, Math.round(plm.getLandmarkStorage().getFromWeightUpperBound(0, 1) * expectedFactor));
+        assertFalse(new File(fileStr, "landmarks_raw_car").exists());
+
+        dir = new RAMDirectory(fileStr, true);
+        plm = new PrepareLandmarks(dir, graph, encodingManager, lmConfig, 2);
+        assertTrue(plm.loadExisting());
+        assertTrue(plm.getLandmarkStorage().isCompressed());
+        assertEquals(expectedFactor, plm.getLandmarkStorage().getFactor(), 1e-6);
+        assertEquals(Arrays.toString(new int[]{
+                2, 0
+        }), Arrays.toString(plm.getLandmarkStorage().getLandmarks(1)));
+        assertEquals(expectedWeight, plm.getLandmarkStorage().getFromWeight(0, 1));
+
+        // the layout cannot be changed without a new preparation
+        PrepareLandmarks uncompressed = new PrepareLandmarks(new RAMDirectory(fileStr, true), graph, encodingManager,
+                new LMConfig("car", weighting), 2);
+        assertThrows(IllegalArgumentException.class, uncompressed::loadExisting);
+
+        Helper.removeDir(new File(fileStr));
+    }
 }
@@ -239,6 +239,34 @@ class EdgeBasedTarjanSCCTest {
         }
     }
 
+    @Test
+    public void reverseEdgeKeyWithoutUTurns() {
+        // 0 <- 1
+        //  \   ^
+        //   v /
+        //    2
+        // the search for the reverse edge key 1->0 must continue at node 0 (the base node of the edge), not at node 1.
+        // the forward edge key 0->1 cannot reach 1->0 without a u-turn, so the reverse edge key is a start key here.
+        g.edge(0, 1).setDistance(1).set(speedEnc, 0, 10); // edge-keys 0,1
+        g.edge(0, 2).setDistance(1).set(speedEnc, 10, 0); // edge-keys 2,3
+        g.edge(2, 1).setDistance(1).set(speedEnc, 10, 0); // edge-keys 4,5
+        EdgeBasedTarjanSCC.EdgeTransitionFilter noUTurnFilter = (prev, edge) -> fwdAccessFilter.accept(prev, edge) && prev != edge.getEdge();
+        for (ConnectedComponents result : new ConnectedComponents[]{
+                EdgeBasedTarjanSCC.findComponentsRecursive(g, noUTurnFilter, false),
+                EdgeBasedTarjanSCC.findComponents(g, noUTurnFilter, false)}) {
+            assertEquals(4, result.getTotalComponents());
+            assertEquals(1, result.getComponents().size());
+            assertEquals(3, result.getBiggestComponent().size());
+            for (IntCursor c : IntArrayList.from(1, 2, 4)) {
+                assertTrue(result.getBiggestComponent().contains(c.value));
+            }
+            assertEquals(3, result.getSingleEdgeComponents().cardinality());
+            for (IntCursor c : IntArrayList.from(0, 3, 5)) {
+                assertTrue(result.getSingleEdgeComponents().get(c.value));
+            }
+        }
+    }
+
     @RepeatedTest(20)
     public void implicitVsExplicitRecursion() {
         doImplicitVsExplicit(true);
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FullMMapDataAccessTest {
+    private final File folder = new File("./target/tmp/full-mmap-da");
+    private final String name = "dataaccess";
+    private String directory;
+
+    @BeforeEach
+    public void setUp() {
+        if (!Helper.removeDir(folder))
+            throw new IllegalStateException("cannot delete folder " + folder);
+        folder.mkdirs();
+        directory = folder.getAbsolutePath() + "/";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(folder);
+    }
+
+    @Test
+    public void testReadsAcrossWindows() {
+        for (DataAccess writer : new DataAccess[]{
+                new RAMDataAccess(name, directory, true, 128),
+                new MMapDataAccess(name, directory, true, 128)}) {
+            Random rnd = new Random(42);
+            writer.create(1000);
+            byte[] bytes = new byte[(int) writer.getCapacity()];
+            rnd.nextBytes(bytes);
+            for (int i = 0; i < bytes.length; i++)
+                writer.setByte(i, bytes[i]);
+            writer.setHeader(0, 123);
+            writer.flush();
+            writer.close();
+
+            // use tiny windows so many reads cross the window boundaries
+            FullMMapDataAccess da = new FullMMapDataAccess(name, directory, -1, 4);
+            assertTrue(da.loadExisting());
+            assertEquals(123, da.getHeader(0));
+            assertEquals(bytes.length, da.getCapacity());
+            assertEquals(128, da.getSegmentSize());
+            DataAccess ref = new RAMDataAccess(name, directory, true, -1);
+            assertTrue(ref.loadExisting());
+            for (int pos = 0; pos < bytes.length - 4; pos++) {
+                assertEquals(ref.getInt(pos), da.getInt(pos), "pos: " + pos);
+                assertEquals(ref.getShort(pos), da.getShort(pos), "pos: " + pos);
+                assertEquals(ref.getByte(pos), da.getByte(pos), "pos: " + pos);
+            }
+            byte[] values = new byte[100];
+            da.getBytes(7, values, values.length);
+            for (int i = 0; i < values.length; i++)
+                assertEquals(bytes[7 + i], values[i]);
+            da.close();
+            ref.close();
+            Helper.removeDir(new File(directory + name));
+        }
+    }
+
+    @Test
+    public void testReadOnly() {
+        DataAccess writer = new RAMDataAccess(name, directory, true, 128);
+        writer.create(100);
+        writer.flush();
+        writer.close();
+
+        FullMMapDataAccess da = new FullMMapDataAccess(name, directory, -1);
+        assertTrue(da.loadExisting());
+        assertFalse(da.ensureCapacity(100));
+        assertThrows(UnsupportedOperationException.class, () -> da.ensureCapacity(1000));
+        assertThrows(UnsupportedOperationException.class, () -> da.setInt(0, 1));
+        da.close();
+
+        assertFalse(new FullMMapDataAccess("missing", directory, -1).loadExisting());
+        assertThrows(UnsupportedOperationException.class, () -> new FullMMapDataAccess("missing", directory, -1).create(100));
+    }
+
+    @Test
+    public void testFromString() {
+        assertEquals(DAType.MMAP_FULL, DAType.fromString("mmap_full"));
+        assertEquals("MMAP_FULL", DAType.MMAP_FULL.toString());
+        assertFalse(DAType.MMAP_FULL.isAllowWrites());
+        assertTrue(new GHDirectory(directory, DAType.MMAP_FULL).create(name) instanceof FullMMapDataAccess);
+    }
+}
@@ -1,12 +1,23 @@
 package com.graphhopper.storage;
 
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class GHDirectoryTest {
+    private final String location = "./target/tmp/ghdirectory";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(location));
+    }
 
     @Test
     public void testConfigure() {
@@ -33,4 +44,30 @@ class GHDirectoryTest {
         assertEquals(DAType.MMAP, dir.getDefaultType("nodes_ch_car", false));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLoadMMap() {
+        new File(location).mkdirs();
+        GHDirectory dir = new GHDirectory(location, DAType.MMAP);
+        for (String name : new String[]{"nodes", "edges", "shortcuts_car"}) {
+            DataAccess da = dir.create(name, 128).create(1000);
+            da.setInt(900, name.length());
+            da.flush();
+        }
+        dir.close();
+
+        GHDirectory loadDir = new GHDirectory(location, DAType.MMAP);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("preload.nodes|shortcuts_.*", "100");
+        loadDir.configure(map);
+        DataAccess nodes = loadDir.create("nodes", 128);
+        DataAccess edges = loadDir.create("edges", 128);
+        DataAccess shortcuts = loadDir.create("shortcuts_car", 128);
+        assertTrue(nodes.loadExisting() && edges.loadExisting() && shortcuts.loadExisting());
+        assertThrows(IllegalArgumentException.class, () -> loadDir.loadMMap(0));
+        loadDir.loadMMap(2);
+        assertEquals(5, nodes.getInt(900));
+        assertEquals(5, edges.getInt(900));
+        assertEquals(13, shortcuts.getInt(900));
+        loadDir.close();
+    }
+}
@@ -21,9 +21,12 @@ package com.graphhopper.storage;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +36,7 @@ import java.util.stream.IntStream;
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TurnCostStorageTest {
 
@@ -41,6 +45,7 @@ public class TurnCostStorageTest {
     private DecimalEncodedValue bikeTurnCostEnc;
     private BooleanEncodedValue accessEnc;
     private DecimalEncodedValue speedEnc;
+    private DecimalEncodedValue turnCostEnc;
 
     @BeforeEach
     public void setup() {
@@ -185,4 +190,102 @@ public class TurnCostStorageTest {
         assertFalse(iterator.next());
     }
 
+    @Test
+    public void testSortNodes() {
+        BaseGraph g = new BaseGraph.Builder(createManagerWithLargerTurnCosts()).withTurnCosts(true).create();
+        initGraph(g, accessEnc, speedEnc);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        int edge01 = getEdge(g, 0, 1).getEdge();
+        int edge02 = getEdge(g, 0, 2).getEdge();
+        int edge13 = getEdge(g, 1, 3).getEdge();
+        int edge23 = getEdge(g, 2, 3).getEdge();
+        int edge24 = getEdge(g, 2, 4).getEdge();
+        // add the entries in descending order, so they have to be reordered for the binary search
+        turnCostStorage.set(turnCostEnc, edge24, 2, edge23, 3);
+        turnCostStorage.set(turnCostEnc, edge24, 2, edge02, 2);
+        turnCostStorage.set(turnCostEnc, edge23, 2, edge24, 1);
+        turnCostStorage.set(turnCostEnc, edge02, 2, edge24, 4);
+        turnCostStorage.set(turnCostEnc, edge13, 3, edge23, 5);
+        turnCostStorage.set(turnCostEnc, edge01, 0, edge02, 6);
+
+        assertFalse(turnCostStorage.isSorted());
+        turnCostStorage.sortNodes();
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(6, turnCostStorage.getTurnCostsCount());
+        assertEquals(4, turnCostStorage.getTurnCostsCount(2));
+        assertEquals(1, turnCostStorage.getTurnCostsCount(3));
+        assertEquals(0, turnCostStorage.getTurnCostsCount(4));
+        assertEquals(3, turnCostStorage.get(turnCostEnc, edge24, 2, edge23));
+        assertEquals(2, turnCostStorage.get(turnCostEnc, edge24, 2, edge02));
+        assertEquals(1, turnCostStorage.get(turnCostEnc, edge23, 2, edge24));
+        assertEquals(4, turnCostStorage.get(turnCostEnc, edge02, 2, edge24));
+        assertEquals(5, turnCostStorage.get(turnCostEnc, edge13, 3, edge23));
+        assertEquals(6, turnCostStorage.get(turnCostEnc, edge01, 0, edge02));
+        assertEquals(0, turnCostStorage.get(turnCostEnc, edge02, 2, edge23));
+        assertEquals(0, turnCostStorage.get(turnCostEnc, edge23, 3, edge13));
+
+        // the iterator returns the entries of every node ordered by the edges
+        List<List<Integer>> turnCosts = new ArrayList<>();
+        TurnCostStorage.Iterator iterator = turnCostStorage.getAllTurnCosts();
+        while (iterator.next())
+            turnCosts.add(Arrays.asList(iterator.getFromEdge(), iterator.getViaNode(), iterator.getToEdge()));
+        assertEquals(Arrays.asList(
+                Arrays.asList(edge01, 0, edge02),
+                Arrays.asList(edge02, 2, edge24),
+                Arrays.asList(edge23, 2, edge24),
+                Arrays.asList(edge24, 2, edge02),
+                Arrays.asList(edge24, 2, edge23),
+                Arrays.asList(edge13, 3, edge23)), turnCosts);
+
+        // changing an existing entry keeps the sorted state, adding a new one does not
+        turnCostStorage.set(turnCostEnc, edge24, 2, edge02, 7);
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(7, turnCostStorage.get(turnCostEnc, edge24, 2, edge02));
+        turnCostStorage.set(turnCostEnc, edge02, 2, edge23, 1);
+        assertFalse(turnCostStorage.isSorted());
+        assertEquals(5, turnCostStorage.getTurnCostsCount(2));
+        assertEquals(1, turnCostStorage.get(turnCostEnc, edge02, 2, edge23));
+        assertEquals(7, turnCostStorage.get(turnCostEnc, edge24, 2, edge02));
+        assertEquals(3, turnCostStorage.get(turnCostEnc, edge24, 2, edge23));
+        assertEquals(6, turnCostStorage.get(turnCostEnc, edge01, 0, edge02));
+
+        turnCostStorage.sortNodes();
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(turnCostStorage.getTurnCostsCount(), IntStream.range(0, g.getNodes()).map(turnCostStorage::getTurnCostsCount).sum());
+        assertEquals(1, turnCostStorage.get(turnCostEnc, edge02, 2, edge23));
+        assertEquals(4, turnCostStorage.get(turnCostEnc, edge02, 2, edge24));
+    }
+
+    @Test
+    public void testSortedStateIsStored() {
+        String location = "./target/turn-cost-storage-test";
+        Helper.removeDir(new File(location));
+        EncodingManager manager = createManagerWithLargerTurnCosts();
+        BaseGraph g = new BaseGraph.Builder(manager).setDir(new RAMDirectory(location, true)).withTurnCosts(true).create();
+        initGraph(g, accessEnc, speedEnc);
+        int edge02 = getEdge(g, 0, 2).getEdge();
+        int edge23 = getEdge(g, 2, 3).getEdge();
+        int edge24 = getEdge(g, 2, 4).getEdge();
+        g.getTurnCostStorage().set(turnCostEnc, edge24, 2, edge23, 3);
+        g.getTurnCostStorage().set(turnCostEnc, edge02, 2, edge24, 4);
+        g.getTurnCostStorage().sortNodes();
+        g.flush();
+        g.close();
+
+        g = new BaseGraph.Builder(manager).setDir(new RAMDirectory(location, true)).withTurnCosts(true).build();
+        assertTrue(g.loadExisting());
+        assertTrue(g.getTurnCostStorage().isSorted());
+        assertEquals(3, g.getTurnCostStorage().get(turnCostEnc, edge24, 2, edge23));
+        assertEquals(4, g.getTurnCostStorage().get(turnCostEnc, edge02, 2, edge24));
+        assertEquals(0, g.getTurnCostStorage().get(turnCostEnc, edge02, 2, edge23));
+        g.close();
+        Helper.removeDir(new File(location));
+    }
+
+    private EncodingManager createManagerWithLargerTurnCosts() {
+        accessEnc = new SimpleBooleanEncodedValue("car_access", true);
+        speedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, false);
+        turnCostEnc = TurnCost.create("car", 15);
+        return EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+    }
 }
@@ -0,0 +1,150 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Matches many traces in parallel. The traces are read lazily from an iterator and at most maxPending traces are
+ * submitted to the executor at the same time, so the memory usage does not depend on the number of traces. The
+ * results are passed to the consumer in the order of the traces, on the calling thread. When the matching stops
+ * early, e.g. because the consumer threw an exception, the traces that are still being matched are awaited before
+ * {@link #match(Iterator, Consumer)} returns, so the graph is not used anymore afterwards. Every trace is matched with
+ * its own {@link MapMatching} instance, but these usually share the graph, the location index and the landmarks.
+ */
+public class BatchMapMatching {
+    private final Supplier<MapMatching> mapMatchingSupplier;
+    private final ExecutorService executor;
+    private final int maxPending;
+
+    /**
+     * @param executor   the traces are matched on the calling thread if this is null
+     * @param maxPending the maximum number of traces that are matched or wait to be matched at the same time
+     */
+    public BatchMapMatching(Supplier<MapMatching> mapMatchingSupplier, ExecutorService executor, int maxPending) {
+        if (maxPending < 1)
+            throw new IllegalArgumentException("maxPending must be at least 1, but was " + maxPending);
+        this.mapMatchingSupplier = mapMatchingSupplier;
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Matches all traces. Traces that cannot be matched, e.g. because the sequence is broken, result in a
+     * {@link Result} with an error and do not stop the batch.
+     */
+    public void match(Iterator<Trace> traces, Consumer<Result> consumer) {
+        if (executor == null) {
+            while (traces.hasNext())
+                consumer.accept(match(traces.next()));
+            return;
+        }
+        Queue<Future<Result>> pending = new ArrayDeque<>(maxPending);
+        AtomicBoolean stopped = new AtomicBoolean();
+        try {
+            while (traces.hasNext() || !pending.isEmpty()) {
+                while (pending.size() < maxPending && traces.hasNext()) {
+                    Trace trace = traces.next();
+                    pending.add(executor.submit(() -> stopped.get() ? null : match(trace)));
+                }
+                consumer.accept(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            // e.g. if the consumer failed because the client went away. the traces that were not started yet are
+            // skipped, but we have to wait for the running ones, because the caller might close the graph once we
+            // return. the matching cannot be interrupted, but a single trace does not take long.
+            stopped.set(true);
+            waitFor(pending);
+        }
+    }
+
+    private static void waitFor(Queue<Future<Result>> futures) {
+        boolean interrupted = false;
+        for (Future<Result> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private Result match(Trace trace) {
+        long start = System.nanoTime();
+        try {
+            MatchResult matchResult = mapMatchingSupplier.get().match(trace.observations);
+            return new Result(trace, matchResult, null, System.nanoTime() - start);
+        } catch (IllegalArgumentException e) {
+            return new Result(trace, null, e.getMessage(), System.nanoTime() - start);
+        }
+    }
+
+    public static class Trace {
+        public final String id;
+        public final List<Observation> observations;
+
+        public Trace(String id, List<Observation> observations) {
+            this.id = id;
+            this.observations = observations;
+        }
+    }
+
+    public static class Result {
+        public final Trace trace;
+        /**
+         * null if the trace could not be matched
+         */
+        public final MatchResult matchResult;
+        public final String error;
+        public final long nanos;
+
+        Result(Trace trace, MatchResult matchResult, String error, long nanos) {
+            this.trace = trace;
+            this.matchResult = matchResult;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public boolean hasError() {
+            return error != null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * An edge-based Dijkstra that calculates the paths from one start to several targets with a single search. Like
+ * {@link com.graphhopper.routing.EdgeToEdgeRoutingAlgorithm#calcPath(int, int, int, int)} the start and target edges
+ * can be restricted. The search stops once all targets are reached or when there is no path left whose distance is
+ * below the given maximum distance. Targets that can only be reached via longer paths are not found.
+ */
+class BoundedDijkstraOneToMany extends Dijkstra {
+    private int visitedNodes;
+
+    BoundedDijkstraOneToMany(Graph graph, Weighting weighting) {
+        super(graph, weighting, TraversalMode.EDGE_BASED);
+    }
+
+    /**
+     * @return one path for every target, the path is not found if the target cannot be reached without exceeding
+     * the maximum distance
+     */
+    List<Path> calcPaths(int from, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) {
+        if (toNodes.length != toInEdges.length)
+            throw new IllegalArgumentException("toNodes and toInEdges must have the same length");
+        checkAlreadyRun();
+        setupFinishTime();
+        SPTEntry[] targetEntries = new SPTEntry[toNodes.length];
+        int remaining = toNodes.length;
+        for (int i = 0; i < toNodes.length; i++) {
+            // just like for the bidirectional algorithms we only return an empty path if the directions are not
+            // restricted, otherwise we need to leave and enter the node via the given edges
+            if (toNodes[i] == from && fromOutEdge == ANY_EDGE && toInEdges[i] == ANY_EDGE) {
+                targetEntries[i] = new SPTEntry(from, 0);
+                remaining--;
+            }
+        }
+
+        fromHeap.add(new DistanceEntry(EdgeIterator.NO_EDGE, from, 0, 0, null));
+        while (remaining > 0 && !fromHeap.isEmpty()) {
+            DistanceEntry curr = (DistanceEntry) fromHeap.poll();
+            if (curr.isDeleted())
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || isTimeoutExceeded())
+                break;
+            if (curr.edge != EdgeIterator.NO_EDGE) {
+                for (int i = 0; i < toNodes.length; i++) {
+                    if (targetEntries[i] == null && toNodes[i] == curr.adjNode && (toInEdges[i] == ANY_EDGE || toInEdges[i] == curr.edge)) {
+                        targetEntries[i] = curr;
+                        remaining--;
+                    }
+                }
+            }
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (curr.edge == EdgeIterator.NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge)
+                    continue;
+                double distance = curr.distance + iter.getDistance();
+                if (distance > maxDistance)
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, curr.edge) + curr.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                SPTEntry entry = fromMap.get(traversalId);
+                if (entry == null || entry.weight > weight) {
+                    if (entry != null)
+                        entry.setDeleted();
+                    entry = new DistanceEntry(iter.getEdge(), iter.getAdjNode(), weight, distance, curr);
+                    fromMap.put(traversalId, entry);
+                    fromHeap.add(entry);
+                }
+            }
+        }
+
+        List<Path> paths = new ArrayList<>(toNodes.length);
+        for (SPTEntry entry : targetEntries)
+            paths.add(entry == null ? createEmptyPath() : PathExtractor.extractPath(graph, weighting, entry));
+        return paths;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPaths(from, ANY_EDGE, new int[]{to}, new int[]{ANY_EDGE}, Double.POSITIVE_INFINITY).get(0);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return "dijkstra_one_to_many_bounded";
+    }
+
+    private static class DistanceEntry extends SPTEntry {
+        final double distance;
+
+        DistanceEntry(int edge, int adjNode, double weight, double distance, SPTEntry parent) {
+            super(edge, adjNode, weight, parent);
+            this.distance = distance;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.graphhopper.matching;
 
 import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
 import com.graphhopper.routing.DijkstraBidirectionRef;
@@ -42,6 +43,8 @@ import com.graphhopper.util.shapes.BBox;
 import org.locationtech.jts.geom.Envelope;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -66,6 +69,9 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * @author kodonnell
  */
 public class MapMatching {
+    // the maximum distance of a transition is MAX_DISTANCE_FACTOR * linear distance + MAX_DISTANCE_OFFSET, see Router
+    private static final double MAX_DISTANCE_FACTOR = 2;
+    private static final double MAX_DISTANCE_OFFSET = 1000;
     private final BaseGraph graph;
     private final Router router;
     private final LocationIndexTree locationIndex;
@@ -139,6 +145,13 @@ public class MapMatching {
                 return result;
             }
 
+            @Override
+            public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) {
+                BoundedDijkstraOneToMany algo = new BoundedDijkstraOneToMany(queryGraph, queryGraph.wrapWeighting(weighting));
+                algo.setMaxVisitedNodes(maxVisitedNodes);
+                return algo.calcPaths(fromNode, fromOutEdge, toNodes, toInEdges, maxDistance);
+            }
+
             private Path calcOnePath(QueryGraph queryGraph, int fromNode, int toNode, int fromOutEdge, int toInEdge) {
                 Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
                 if (landmarks != null) {
@@ -196,13 +209,30 @@ public class MapMatching {
     }
 
     public MatchResult match(List<Observation> observations) {
+        return match(observations, null, o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon));
+    }
+
+    /**
+     * @param firstEdgeFilter if not null only the candidates of the first observation that snapped to an edge
+     *                        accepted by this filter are used, unless there is no such candidate
+     * @param candidateSnaps  returns the candidate snaps of an observation, see {@link #findCandidateSnaps}. The snaps
+     *                        are modified by the query graph, so new instances must be returned for every call
+     */
+    MatchResult match(List<Observation> observations, IntPredicate firstEdgeFilter, Function<Observation, List<Snap>> candidateSnaps) {
         List<Observation> filteredObservations = filterObservations(observations);
         statistics.put("filteredObservations", filteredObservations.size());
 
         // Snap observations to links. Generates multiple candidate snaps per observation.
         List<List<Snap>> snapsPerObservation = filteredObservations.stream()
-                .map(o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon))
+                .map(candidateSnaps)
                 .collect(Collectors.toList());
+        if (firstEdgeFilter != null && !snapsPerObservation.isEmpty()) {
+            List<Snap> firstSnaps = snapsPerObservation.get(0).stream()
+                    .filter(s -> firstEdgeFilter.test(s.getClosestEdge().getEdge()))
+                    .collect(Collectors.toList());
+            if (!firstSnaps.isEmpty())
+                snapsPerObservation.set(0, firstSnaps);
+        }
         statistics.put("snapsPerObservation", snapsPerObservation.stream().mapToInt(Collection::size).toArray());
 
         // Create the query graph, containing split edges so that all the places where an observation might have happened
@@ -371,43 +401,60 @@ public class MapMatching {
         return timeSteps;
     }
 
-    static class Label {
-        int timeStep;
-        State state;
-        Label back;
-        boolean isDeleted;
-        double minusLogProbability;
-    }
-
+    /**
+     * Finds the most likely sequence of candidates with a Dijkstra search on the trellis of candidates. Every
+     * candidate has an index in a flat array (all candidates of the first time step, then all of the second, and so
+     * on). The labels are stored in primitive arrays and the queue is an indexed heap, so improving a label is an
+     * update of the heap instead of an additional entry. Only the path of the best transition into every candidate is
+     * kept.
+     */
     private List<SequenceState<State, Observation, Path>> computeViterbiSequence(List<ObservationWithCandidateStates> timeSteps) {
         if (timeSteps.isEmpty()) {
             return Collections.emptyList();
         }
 
         final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
-        final Map<State, Label> labels = new HashMap<>();
-        Map<Transition<State>, Path> roadPaths = new HashMap<>();
-
-        PriorityQueue<Label> q = new PriorityQueue<>(Comparator.comparing(qe -> qe.minusLogProbability));
-        for (State candidate : timeSteps.get(0).candidates) {
+        int[] firstCandidates = new int[timeSteps.size() + 1];
+        for (int t = 0; t < timeSteps.size(); t++)
+            firstCandidates[t + 1] = firstCandidates[t] + timeSteps.get(t).candidates.size();
+        int candidates = firstCandidates[timeSteps.size()];
+        int[] candidateTimeSteps = new int[candidates];
+        for (int t = 0; t < timeSteps.size(); t++)
+            Arrays.fill(candidateTimeSteps, firstCandidates[t], firstCandidates[t + 1], t);
+        double[] minusLogProbabilities = new double[candidates];
+        Arrays.fill(minusLogProbabilities, Double.POSITIVE_INFINITY);
+        int[] parents = new int[candidates];
+        Arrays.fill(parents, -1);
+        Path[] parentPaths = new Path[candidates];
+
+        // the heap only stores float values, so the order can be slightly off for labels with almost the same
+        // probability. the labels themselves are exact, because improvements are always compared as doubles, and
+        // we only stop once there is no other entry with the same float value, see below.
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(Math.max(1, candidates));
+        List<State> firstStates = timeSteps.get(0).candidates;
+        for (int i = 0; i < firstStates.size(); i++) {
             // distance from observation to road in meters
-            final double distance = candidate.getSnap().getQueryDistance();
-            Label label = new Label();
-            label.state = candidate;
-            label.minusLogProbability = probabilities.emissionLogProbability(distance) * -1.0;
-            q.add(label);
-            labels.put(candidate, label);
+            final double distance = firstStates.get(i).getSnap().getQueryDistance();
+            minusLogProbabilities[i] = probabilities.emissionLogProbability(distance) * -1.0;
+            heap.push(i, (float) minusLogProbabilities[i]);
         }
-        Label qe = null;
-        while (!q.isEmpty()) {
-            qe = q.poll();
-            if (qe.isDeleted)
-                continue;
-            if (qe.timeStep == timeSteps.size() - 1)
+        int current = -1;
+        int best = -1;
+        while (!heap.isEmpty()) {
+            // the first candidate of the last time step that is polled is the best one, unless another entry has
+            // the same float value. such entries can have a slightly smaller label, so we need to poll them as well
+            if (best >= 0 && heap.peekValue() > (float) minusLogProbabilities[best])
                 break;
-            State from = qe.state;
-            ObservationWithCandidateStates timeStep = timeSteps.get(qe.timeStep);
-            ObservationWithCandidateStates nextTimeStep = timeSteps.get(qe.timeStep + 1);
+            current = heap.poll();
+            int timeStepIndex = candidateTimeSteps[current];
+            if (timeStepIndex == timeSteps.size() - 1) {
+                if (best < 0 || minusLogProbabilities[current] < minusLogProbabilities[best])
+                    best = current;
+                continue;
+            }
+            ObservationWithCandidateStates timeStep = timeSteps.get(timeStepIndex);
+            ObservationWithCandidateStates nextTimeStep = timeSteps.get(timeStepIndex + 1);
+            State from = timeStep.candidates.get(current - firstCandidates[timeStepIndex]);
             final double linearDistance = distanceCalc.calcDist(timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon,
                     nextTimeStep.observation.getPoint().lat, nextTimeStep.observation.getPoint().lon)
                     + nextTimeStep.observation.getAccumulatedLinearDistanceToPrevious();
@@ -415,41 +462,45 @@ public class MapMatching {
             int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
             int[] toNodes = nextTimeStep.candidates.stream().mapToInt(c -> c.getSnap().getClosestNode()).toArray();
             int[] toInEdges = nextTimeStep.candidates.stream().mapToInt(to -> to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
-            List<Path> paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+            // transitions that are much longer than the linear distance are very unlikely, so we usually do not need
+            // to search further. only if none of the candidates can be reached this way we do a full search.
+            double maxDistance = MAX_DISTANCE_FACTOR * linearDistance + MAX_DISTANCE_OFFSET;
+            List<Path> paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges, maxDistance);
+            if (paths.stream().noneMatch(Path::isFound))
+                paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
             for (int i = 0; i < nextTimeStep.candidates.size(); i++) {
                 State to = nextTimeStep.candidates.get(i);
                 Path path = paths.get(i);
                 if (path.isFound()) {
                     double transitionLogProbability = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
-                    Transition<State> transition = new Transition<>(from, to);
-                    roadPaths.put(transition, path);
-                    double minusLogProbability = qe.minusLogProbability - probabilities.emissionLogProbability(to.getSnap().getQueryDistance()) - transitionLogProbability;
-                    Label label1 = labels.get(to);
-                    if (label1 == null || minusLogProbability < label1.minusLogProbability) {
-                        q.stream().filter(oldQe -> !oldQe.isDeleted && oldQe.state == to).findFirst().ifPresent(oldQe -> oldQe.isDeleted = true);
-                        Label label = new Label();
-                        label.state = to;
-                        label.timeStep = qe.timeStep + 1;
-                        label.back = qe;
-                        label.minusLogProbability = minusLogProbability;
-                        q.add(label);
-                        labels.put(to, label);
+                    double minusLogProbability = minusLogProbabilities[current] - probabilities.emissionLogProbability(to.getSnap().getQueryDistance()) - transitionLogProbability;
+                    int toIndex = firstCandidates[timeStepIndex + 1] + i;
+                    if (minusLogProbability < minusLogProbabilities[toIndex]) {
+                        minusLogProbabilities[toIndex] = minusLogProbability;
+                        parents[toIndex] = current;
+                        parentPaths[toIndex] = path;
+                        if (heap.contains(toIndex))
+                            heap.update(toIndex, (float) minusLogProbability);
+                        else
+                            heap.push(toIndex, (float) minusLogProbability);
                     }
                 }
             }
         }
-        if (qe == null) {
+        if (current < 0) {
             throw new IllegalArgumentException("Sequence is broken for submitted track at initial time step.");
         }
-        if (qe.timeStep != timeSteps.size() - 1) {
+        if (best < 0) {
+            ObservationWithCandidateStates timeStep = timeSteps.get(candidateTimeSteps[current]);
             throw new IllegalArgumentException("Sequence is broken for submitted track at time step "
-                    + qe.timeStep + ". observation:" + qe.state.getEntry());
+                    + candidateTimeSteps[current] + ". observation:" + timeStep.observation);
         }
+        current = best;
         ArrayList<SequenceState<State, Observation, Path>> result = new ArrayList<>();
-        while (qe != null) {
-            final SequenceState<State, Observation, Path> ss = new SequenceState<>(qe.state, qe.state.getEntry(), qe.back == null ? null : roadPaths.get(new Transition<>(qe.back.state, qe.state)));
-            result.add(ss);
-            qe = qe.back;
+        while (current >= 0) {
+            State state = timeSteps.get(candidateTimeSteps[current]).candidates.get(current - firstCandidates[candidateTimeSteps[current]]);
+            result.add(new SequenceState<>(state, state.getEntry(), parentPaths[current]));
+            current = parents[current];
         }
         Collections.reverse(result);
         return result;
@@ -569,6 +620,15 @@ public class MapMatching {
 
         List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges);
 
+        /**
+         * Like {@link #calcPaths(QueryGraph, int, int, int[], int[])}, but paths that are longer than maxDistance
+         * (in meters) do not have to be found. This allows calculating all paths with a single, bounded search. If
+         * none of the paths is found, the unbounded method is used.
+         */
+        default List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) {
+            return calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+        }
+
         Weighting getWeighting();
 
         default long getVisitedNodes() {
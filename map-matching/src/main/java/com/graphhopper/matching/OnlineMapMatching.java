@@ -0,0 +1,171 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.*;
+
+/**
+ * Matches a stream of observations, e.g. the GPS positions of a vehicle that arrive one at a time. The observations
+ * are buffered in a sliding window and once the window is full the whole window is matched again with
+ * {@link MapMatching} for every new observation, this is not an incremental Viterbi. Only the candidate snaps of the
+ * observations are kept between the calls, so every observation is snapped once. Edge matches that are only supported
+ * by observations older than the last 'lag' observations are considered stable and returned, the others are matched
+ * again together with the next observations. The next window starts at the last observation of the last
+ * returned edge match and this observation can only be matched to the same edge again, so the returned edge matches
+ * form a connected path.
+ * <p>
+ * At most 2 * windowSize observations are matched together, so the memory and time needed per observation are
+ * bounded. This class is not thread safe, use one instance per vehicle.
+ */
+public class OnlineMapMatching {
+    private final MapMatching mapMatching;
+    private final int windowSize;
+    private final int lag;
+    private final List<Observation> window = new ArrayList<>();
+    // the candidate snaps of the observations in the window, before the query graph modified them
+    private final Map<Observation, List<Snap>> candidateSnaps = new IdentityHashMap<>();
+    // the last returned edge, the first observation of the window was already matched to it
+    private EdgeIteratorState lastEdge;
+
+    /**
+     * @param windowSize the number of observations that are matched together
+     * @param lag        the number of most recent observations whose edge matches are not yet returned, because they
+     *                   might still change with the next observations
+     */
+    public OnlineMapMatching(MapMatching mapMatching, int windowSize, int lag) {
+        if (lag < 1)
+            throw new IllegalArgumentException("lag must be at least 1, but was " + lag);
+        if (windowSize < lag + 2)
+            throw new IllegalArgumentException("windowSize must be at least lag + 2, but was " + windowSize);
+        this.mapMatching = mapMatching;
+        this.windowSize = windowSize;
+        this.lag = lag;
+    }
+
+    /**
+     * Adds the next observation of the stream.
+     *
+     * @return the edge matches that became stable with this observation, usually empty
+     * @throws IllegalArgumentException if the observations cannot be matched, e.g. after a gap in the trace, see
+     *                                  {@link MapMatching#match}. All observations but this one are dropped then and
+     *                                  the edge matches of the next observations start a new path.
+     */
+    public List<EdgeMatch> add(Observation observation) {
+        window.add(observation);
+        if (window.size() < windowSize)
+            return Collections.emptyList();
+        if (window.size() >= 2 * windowSize)
+            // all observations were matched to the same edge so far, e.g. on a very long road without junctions. we
+            // keep the first and the most recent observations only, so the window does not grow forever
+            window.subList(1, window.size() - windowSize + 1).clear();
+
+        List<EdgeMatch> edgeMatches;
+        try {
+            edgeMatches = match();
+        } catch (IllegalArgumentException e) {
+            // we do not know which observation broke the sequence. we start again at the new observation, because
+            // otherwise the same observations would be matched (and fail) again and again
+            window.subList(0, window.size() - 1).clear();
+            lastEdge = null;
+            throw e;
+        }
+        Map<Observation, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < window.size(); i++)
+            indexes.put(window.get(i), i);
+        int stableObservations = window.size() - lag;
+        // we can return all edge matches up to the last one whose observations are all older than the lag. edge
+        // matches without observations in between can be returned as well, but not the ones after the last one
+        int stableEdgeMatches = 0;
+        int anchor = 0;
+        for (int i = 0; i < edgeMatches.size(); i++) {
+            List<State> states = edgeMatches.get(i).getStates();
+            if (states.isEmpty())
+                continue;
+            int lastIndex = indexes.get(states.get(states.size() - 1).getEntry());
+            if (lastIndex >= stableObservations)
+                break;
+            stableEdgeMatches = i + 1;
+            anchor = lastIndex;
+        }
+
+        int start = skipLastEdge(edgeMatches);
+        if (stableEdgeMatches <= start)
+            return Collections.emptyList();
+        lastEdge = edgeMatches.get(stableEdgeMatches - 1).getEdgeState();
+        window.subList(0, anchor).clear();
+        return new ArrayList<>(edgeMatches.subList(start, stableEdgeMatches));
+    }
+
+    /**
+     * Matches the remaining observations. Call this when the stream ends, afterwards this instance can be used for
+     * a new stream.
+     *
+     * @return all edge matches that were not returned yet
+     */
+    public List<EdgeMatch> finish() {
+        try {
+            if (window.isEmpty() || lastEdge != null && window.size() == 1)
+                return Collections.emptyList();
+            List<EdgeMatch> edgeMatches = match();
+            return new ArrayList<>(edgeMatches.subList(skipLastEdge(edgeMatches), edgeMatches.size()));
+        } finally {
+            window.clear();
+            candidateSnaps.clear();
+            lastEdge = null;
+        }
+    }
+
+    private List<EdgeMatch> match() {
+        Set<Observation> inWindow = Collections.newSetFromMap(new IdentityHashMap<>());
+        inWindow.addAll(window);
+        candidateSnaps.keySet().retainAll(inWindow);
+        int lastEdgeId = lastEdge == null ? -1 : lastEdge.getEdge();
+        return mapMatching.match(window, lastEdge == null ? null : edge -> edge == lastEdgeId, o -> {
+            List<Snap> snaps = candidateSnaps.computeIfAbsent(o, k -> mapMatching.findCandidateSnaps(o.getPoint().lat, o.getPoint().lon));
+            List<Snap> copies = new ArrayList<>(snaps.size());
+            for (Snap snap : snaps)
+                copies.add(copy(snap));
+            return copies;
+        }).getEdgeMatches();
+    }
+
+    private static Snap copy(Snap snap) {
+        Snap copy = new Snap(snap.getQueryPoint().lat, snap.getQueryPoint().lon);
+        copy.setQueryDistance(snap.getQueryDistance());
+        copy.setWayIndex(snap.getWayIndex());
+        copy.setClosestNode(snap.getClosestNode());
+        copy.setClosestEdge(snap.getClosestEdge());
+        copy.setSnappedPosition(snap.getSnappedPosition());
+        copy.setSnappedPoint(snap.getSnappedPoint());
+        return copy;
+    }
+
+    /**
+     * @return 1 if the first edge match is the edge that was already returned, 0 otherwise
+     */
+    private int skipLastEdge(List<EdgeMatch> edgeMatches) {
+        if (lastEdge == null || edgeMatches.isEmpty())
+            return 0;
+        EdgeIteratorState first = edgeMatches.get(0).getEdgeState();
+        return first.getEdge() == lastEdge.getEdge() && first.getBaseNode() == lastEdge.getBaseNode()
+                && first.getAdjNode() == lastEdge.getAdjNode() ? 1 : 0;
+    }
+}
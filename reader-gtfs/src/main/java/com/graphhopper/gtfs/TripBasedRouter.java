@@ -61,11 +61,69 @@ public class TripBasedRouter {
         }
     }
 
-    public List<ResultLabel> routeNaiveProfileWithNaiveBetas(Parameters parameters) {
-        routeNaiveProfile(parameters);
+    /**
+     * Profile query as a reverse sweep over the departure times, like rRAPTOR: The searches start with the latest
+     * departure time and keep the labels of the later searches, so every search only explores trips which the later
+     * ones did not reach yet. Unlike {@link #routeNaiveProfile} we do not search every minute, but only at the times
+     * where the boarded trips change, see {@link #getProfileSearchTimes}.
+     */
+    public List<ResultLabel> routeProfile(Parameters parameters) {
+        this.parameters = parameters;
+        NavigableSet<Instant> searchTimes = getProfileSearchTimes(parameters);
+        logger.debug("profile query with {} searches", searchTimes.size());
+        for (Instant initialTime : searchTimes.descendingSet())
+            route(parameters.getAccessStations(), initialTime, parameters.getTripFilter());
         return result;
     }
 
+    /**
+     * The boarded trips only change at the departures from the access stations within the profile and at midnight,
+     * when the service day changes. A search at any other time boards the same trips as the search at the next such
+     * departure time. So for every minute of {@link #routeNaiveProfile} we only need a search at the next departure
+     * time, which finds the same journeys. Searches for departure times within the same minute (e.g. the same trip
+     * reached from access stations with slightly different access times) are coalesced like this, and there are never
+     * more searches than with the minute sweep.
+     */
+    NavigableSet<Instant> getProfileSearchTimes(Parameters parameters) {
+        Instant profileStartTime = parameters.getProfileStartTime();
+        Instant profileEndTime = profileStartTime.plus(parameters.getProfileLength());
+        NavigableSet<Instant> departureTimes = new TreeSet<>();
+        departureTimes.add(profileStartTime);
+        departureTimes.add(profileEndTime);
+        for (StopWithTimeDelta accessStation : parameters.getAccessStations()) {
+            LocalDate firstServiceDay = profileStartTime.atZone(accessStation.zoneId).plus(accessStation.timeDelta, ChronoUnit.MILLIS).toLocalDate();
+            LocalDate lastServiceDay = profileEndTime.atZone(accessStation.zoneId).plus(accessStation.timeDelta, ChronoUnit.MILLIS).toLocalDate();
+            Collection<List<Trips.TripAtStopTime>> boardingsByPattern = tripTransfers.getPatternBoardings(accessStation.stopId).values();
+            for (LocalDate serviceDay = firstServiceDay; !serviceDay.isAfter(lastServiceDay); serviceDay = serviceDay.plusDays(1)) {
+                if (serviceDay.isAfter(firstServiceDay))
+                    addDepartureTime(departureTimes, serviceDay.atStartOfDay(accessStation.zoneId).toInstant(), accessStation, profileStartTime, profileEndTime);
+                for (List<Trips.TripAtStopTime> boardings : boardingsByPattern) {
+                    for (Trips.TripAtStopTime boarding : boardings) {
+                        GTFSFeed.StopTimesForTripWithTripPatternKey tripPointer = tripTransfers.getTrip(boarding.tripIdx);
+                        int departureTime = tripPointer.stopTimes.get(boarding.stop_sequence).departure_time;
+                        // later departures are boarded at any time of the service day, see route
+                        if (departureTime >= 24 * 60 * 60 || !tripPointer.service.activeOn(serviceDay) || !parameters.getTripFilter().test(tripPointer))
+                            continue;
+                        Instant departureInstant = serviceDay.atStartOfDay().plusSeconds(departureTime).atZone(accessStation.zoneId).toInstant();
+                        addDepartureTime(departureTimes, departureInstant, accessStation, profileStartTime, profileEndTime);
+                    }
+                }
+            }
+        }
+        // the same times as in routeNaiveProfile, the profile end time is always one of the departure times
+        NavigableSet<Instant> searchTimes = new TreeSet<>();
+        for (Instant time = profileEndTime; !time.isBefore(profileStartTime); time = time.minus(Duration.ofMinutes(1)))
+            searchTimes.add(departureTimes.ceiling(time));
+        searchTimes.add(departureTimes.ceiling(profileStartTime));
+        return searchTimes;
+    }
+
+    private static void addDepartureTime(NavigableSet<Instant> departureTimes, Instant departureAtAccessStation, StopWithTimeDelta accessStation, Instant profileStartTime, Instant profileEndTime) {
+        Instant initialTime = departureAtAccessStation.minus(accessStation.timeDelta, ChronoUnit.MILLIS);
+        if (!initialTime.isBefore(profileStartTime) && !initialTime.isAfter(profileEndTime))
+            departureTimes.add(initialTime);
+    }
+
     public List<ResultLabel> routeNaiveProfile(Parameters parameters) {
         this.parameters = parameters;
         while (!parameters.getProfileLength().isNegative()) {
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.*;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TripBasedRouterTest {
+
+    private static final String GRAPH_LOC = "target/TripBasedRouterTest";
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    private static GraphHopperGtfs graphHopperGtfs;
+
+    @BeforeAll
+    public static void init() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("import.osm.ignored_highways", "");
+        ghConfig.putObject("gtfs.file", "files/sample-feed");
+        ghConfig.putObject("gtfs.trip_based", true);
+        ghConfig.putObject("gtfs.trip_based.max_transfer_time", 24 * 60 * 60);
+        ghConfig.putObject("gtfs.schedule_day", "2007-01-01,2007-01-02,2007-01-06,2007-01-07");
+        ghConfig.putObject("graph.encoded_values", "foot_access, foot_priority, foot_average_speed, car_access, car_average_speed");
+        ghConfig.setProfiles(List.of(
+                TestProfiles.accessSpeedAndPriority("foot"),
+                TestProfiles.accessAndSpeed("car")));
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+    }
+
+    @AfterAll
+    public static void close() {
+        graphHopperGtfs.close();
+    }
+
+    @Test
+    public void testProfileQueryEqualsNaiveProfileQuery() {
+        Instant profileStartTime = LocalDateTime.of(2007, 1, 1, 0, 0).atZone(zoneId).toInstant();
+        for (String from : List.of("BEATTY_AIRPORT", "STAGECOACH", "BULLFROG")) {
+            for (String to : List.of("FUR_CREEK_RES", "BULLFROG", "AMV", "EMSI")) {
+                if (from.equals(to))
+                    continue;
+                // an access time which is not a multiple of a minute
+                List<TripBasedRouter.StopWithTimeDelta> accessStations = List.of(stop(from, 90_500));
+                List<TripBasedRouter.StopWithTimeDelta> egressStations = List.of(stop(to, 60_000));
+                List<String> naive = toStrings(new TripBasedRouter(graphHopperGtfs.getGtfsStorage(), graphHopperGtfs.getGtfsStorage().tripTransfers)
+                        .routeNaiveProfile(parameters(accessStations, egressStations, profileStartTime, Duration.ofDays(1))));
+                List<String> profile = toStrings(new TripBasedRouter(graphHopperGtfs.getGtfsStorage(), graphHopperGtfs.getGtfsStorage().tripTransfers)
+                        .routeProfile(parameters(accessStations, egressStations, profileStartTime, Duration.ofDays(1))));
+                assertThat(profile).as(from + " -> " + to).isEqualTo(naive);
+            }
+        }
+    }
+
+    @Test
+    public void testProfileQueryFindsAllDepartures() {
+        Instant profileStartTime = LocalDateTime.of(2007, 1, 1, 7, 0).atZone(zoneId).toInstant();
+        List<TripBasedRouter.ResultLabel> result = new TripBasedRouter(graphHopperGtfs.getGtfsStorage(), graphHopperGtfs.getGtfsStorage().tripTransfers)
+                .routeProfile(parameters(List.of(stop("BEATTY_AIRPORT", 0)), List.of(stop("BULLFROG", 0)), profileStartTime, Duration.ofHours(12)));
+        // AB1, AB3_NO_BLOCK and FUNNY_BLOCK_AB1
+        assertThat(result).extracting(r -> LocalTime.ofSecondOfDay(r.getDepartureTime()))
+                .containsExactlyInAnyOrder(LocalTime.of(8, 0), LocalTime.of(14, 0), LocalTime.of(18, 0));
+    }
+
+    @Test
+    public void testProfileQuerySearchesAtMostEveryMinute() {
+        Instant profileStartTime = LocalDateTime.of(2007, 1, 1, 7, 57).atZone(zoneId).toInstant();
+        // the 8:00 departure is reached at a different time from every access station, but all within the same minute
+        List<TripBasedRouter.StopWithTimeDelta> accessStations = IntStream.range(0, 20)
+                .mapToObj(i -> stop("BEATTY_AIRPORT", 1000L * i)).collect(Collectors.toList());
+        List<TripBasedRouter.StopWithTimeDelta> egressStations = List.of(stop("BULLFROG", 0));
+        TripBasedRouter router = new TripBasedRouter(graphHopperGtfs.getGtfsStorage(), graphHopperGtfs.getGtfsStorage().tripTransfers);
+        // the minute sweep searches at 8:02, 8:01, ..., 7:57
+        assertThat(router.getProfileSearchTimes(parameters(accessStations, egressStations, profileStartTime, Duration.ofMinutes(5))))
+                .hasSizeLessThanOrEqualTo(6);
+
+        List<String> naive = toStrings(new TripBasedRouter(graphHopperGtfs.getGtfsStorage(), graphHopperGtfs.getGtfsStorage().tripTransfers)
+                .routeNaiveProfile(parameters(accessStations, egressStations, profileStartTime, Duration.ofMinutes(5))));
+        List<String> profile = toStrings(router.routeProfile(parameters(accessStations, egressStations, profileStartTime, Duration.ofMinutes(5))));
+        assertThat(profile).isNotEmpty().isEqualTo(naive);
+    }
+
+    private static TripBasedRouter.StopWithTimeDelta stop(String stopId, long timeDelta) {
+        return new TripBasedRouter.StopWithTimeDelta(new GtfsStorage.FeedIdWithStopId("gtfs_0", stopId), zoneId, timeDelta);
+    }
+
+    private static TripBasedRouter.Parameters parameters(List<TripBasedRouter.StopWithTimeDelta> accessStations, List<TripBasedRouter.StopWithTimeDelta> egressStations, Instant profileStartTime, Duration profileLength) {
+        return new TripBasedRouter.Parameters(accessStations, egressStations, profileStartTime, profileLength, trip -> true, 1.0, 1.0, 0.0, Map.of());
+    }
+
+    private static List<String> toStrings(List<TripBasedRouter.ResultLabel> result) {
+        return result.stream().map(r -> r.getRound() + " " + r).collect(Collectors.toList());
+    }
+
+}
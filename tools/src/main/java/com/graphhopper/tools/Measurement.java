@@ -26,6 +26,7 @@ import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.jackson.Jackson;
+import com.graphhopper.routing.MatrixCalculator;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
@@ -246,6 +247,8 @@ public class Measurement {
                             withPoints(100).sod());
                     measureRouting(hopper, new QuerySettings("routingCH_via_100_full", count / 100, isCH, isLM).
                             withPoints(100).sod().withInstructions().simplify().pathDetails());
+                    int matrixSize = args.getInt("measurement.matrix.size", 100);
+                    measureMatrixCH(hopper, nodeBasedCH, "matrixCH_" + matrixSize, Math.max(1, count / 500), matrixSize);
                 }
                 RoutingCHGraph edgeBasedCH = hopper.getCHGraphs().get("profile_tc");
                 if (edgeBasedCH != null) {
@@ -487,6 +490,31 @@ public class Measurement {
         print("unit_testsCH.out_edge_get_weight", miniPerf);
     }
 
+    private void measureMatrixCH(GraphHopper hopper, RoutingCHGraph chGraph, String prefix, int count, int matrixSize) {
+        final Graph g = hopper.getBaseGraph();
+        EdgeFilter edgeFilter = new DefaultSnapFilter(chGraph.getWeighting(), hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key("profile_no_tc")));
+        final EdgeExplorer edgeExplorer = g.createEdgeExplorer(edgeFilter);
+        final Random rand = new Random(seed);
+        final AtomicLong visitedNodesSum = new AtomicLong(0);
+        final MatrixCalculator matrixCalculator = new MatrixCalculator(chGraph);
+        MiniPerfTest miniPerf = new MiniPerfTest().setIterations(count).start((warmup, run) -> {
+            int[] nodes = new int[matrixSize];
+            for (int i = 0; i < matrixSize; ) {
+                int node = rand.nextInt(maxNode);
+                // same as for routing, we skip nodes that are not accessible
+                if (GHUtility.count(edgeExplorer.setBaseNode(node)) > 0)
+                    nodes[i++] = node;
+            }
+            MatrixCalculator.Result result = matrixCalculator.calcMatrix(nodes, nodes);
+            if (!warmup)
+                visitedNodesSum.addAndGet(result.visitedNodes);
+            return (int) result.distances[0][matrixSize - 1];
+        });
+        print(prefix, miniPerf);
+        put(prefix + ".cells_per_second", (long) matrixSize * matrixSize * count / (miniPerf.getSum() / 1000));
+        put(prefix + ".visited_nodes_mean", (float) visitedNodesSum.get() / count);
+    }
+
     private GHBitSet getValidEdges(Graph g) {
         final GHBitSet result = new GHBitSetImpl(g.getAllEdges().length());
         AllEdgesIterator iter = g.getAllEdges();
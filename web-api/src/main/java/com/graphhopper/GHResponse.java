@@ -20,8 +20,10 @@ package com.graphhopper;
 import com.graphhopper.util.PMap;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Wrapper containing path and error output of GraphHopper.
@@ -34,6 +36,7 @@ public class GHResponse {
     private PMap hintsMap = new PMap();
     private final List<ResponsePath> responsePaths = new ArrayList<>(5);
     private String debugInfo = "";
+    private final Map<String, Long> timings = new LinkedHashMap<>();
 
     public GHResponse() {
     }
@@ -141,6 +144,22 @@ public class GHResponse {
         return str;
     }
 
+    /**
+     * Adds the time spent on the given stage of the calculation, e.g. 'snap' or 'search'. The times of several calls
+     * for the same stage are added up.
+     */
+    public GHResponse addTiming(String stage, long nanos) {
+        timings.merge(stage, nanos, Long::sum);
+        return this;
+    }
+
+    /**
+     * @return the nanoseconds spent on every stage of the calculation in the order the stages were added
+     */
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
     public void setHints(PMap hints) {
         this.hintsMap = hints;
     }
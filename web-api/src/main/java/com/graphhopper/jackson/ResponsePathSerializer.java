@@ -18,6 +18,7 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,6 +27,7 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Locale;
@@ -122,4 +124,76 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Writes the same JSON as {@link #jsonObject} directly to the given generator, i.e. without creating a JSON tree
+     * or a LineString for the points first. This is useful for long routes. The generator needs a codec that is
+     * configured like {@link Jackson#newObjectMapper()}.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, Info info, boolean enableInstructions,
+                                 boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double pointsMultiplier) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectField("info", info);
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            gen.writeObjectField("legs", p.getLegs());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+
+            gen.writeBooleanField("points_encoded", pointsEncoded);
+            if (pointsEncoded) gen.writeNumberField("points_encoded_multiplier", pointsMultiplier);
+
+            if (calcPoints) {
+                gen.writeObjectField("bbox", p.calcBBox2D());
+                gen.writeFieldName("points");
+                writePoints(gen, p.getPoints(), enableElevation, pointsEncoded, pointsMultiplier);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", p.getInstructions());
+                }
+                gen.writeObjectField("details", p.getPathDetails());
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, p.getWaypoints(), enableElevation, pointsEncoded, pointsMultiplier);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator gen, PointList points, boolean includeElevation,
+                                    boolean pointsEncoded, double pointsMultiplier) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(encodePolyline(points, includeElevation, pointsMultiplier));
+            return;
+        }
+        // the same output as for PointList.toLineString
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // special case as just 1 point is not supported in the specification #1412
+        int size = points.size() == 1 ? 2 : points.size();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, points.size() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(Helper.round6(points.getLon(index)));
+            gen.writeNumber(Helper.round6(points.getLat(index)));
+            if (includeElevation)
+                gen.writeNumber(Helper.round2(points.getEle(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
 }
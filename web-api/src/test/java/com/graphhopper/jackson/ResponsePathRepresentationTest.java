@@ -17,10 +17,19 @@
  */
 package com.graphhopper.jackson;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +88,62 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWriteJson() throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (PointList points : Arrays.asList(
+                Helper.createPointList(52.514, 13.349, 52.5135, 13.35, 52.514, 13.351),
+                Helper.createPointList3D(52.514, 13.349, 10.123, 52.5135, 13.35, 12, 52.514, 13.351, 11.5),
+                Helper.createPointList(52.514, 13.349),
+                new PointList())) {
+            GHResponse rsp = new GHResponse();
+            rsp.getHints().putObject("visited_nodes.sum", 123);
+            ResponsePath path = new ResponsePath().setPoints(points).setWaypoints(points.isEmpty() ? points : points.copy(0, 1))
+                    .setDistance(123.4567).setTime(1234).setRouteWeight(12.3456789).setAscend(2).setDescend(1);
+            path.setDescription(List.of("desc"));
+            path.setFare(new BigDecimal("1.5"));
+            InstructionList instructions = new InstructionList(new Translation() {
+                @Override
+                public String tr(String key, Object... params) {
+                    return key;
+                }
+
+                @Override
+                public Map<String, String> asMap() {
+                    return Collections.emptyMap();
+                }
+
+                @Override
+                public Locale getLocale() {
+                    return Locale.US;
+                }
+
+                @Override
+                public String getLanguage() {
+                    return "en";
+                }
+            });
+            instructions.add(new Instruction(Instruction.CONTINUE_ON_STREET, "main street", points));
+            path.setInstructions(instructions);
+            PathDetail detail = new PathDetail(50.0);
+            detail.setFirst(0);
+            detail.setLast(Math.max(0, points.size() - 1));
+            path.addPathDetails(Map.of("max_speed", List.of(detail)));
+            rsp.add(path);
+
+            ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(List.of("GraphHopper"), 12, null);
+            for (boolean pointsEncoded : new boolean[]{true, false}) {
+                for (boolean calcPoints : new boolean[]{true, false}) {
+                    String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, info,
+                            true, calcPoints, points.is3D(), pointsEncoded, 1e5));
+                    StringWriter writer = new StringWriter();
+                    try (JsonGenerator gen = objectMapper.createGenerator(writer)) {
+                        ResponsePathSerializer.writeJson(gen, rsp, info, true, calcPoints, points.is3D(), pointsEncoded, 1e5);
+                    }
+                    assertEquals(expected, writer.toString());
+                }
+            }
+        }
+    }
 }
@@ -18,7 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
@@ -44,9 +46,32 @@ import jakarta.inject.Singleton;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
+
+import java.util.concurrent.ExecutorService;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
+    /**
+     * Every request uses the GraphHopper instance that was current when the request started, even if the graph is
+     * reloaded in the meantime, see {@link GraphHopperManaged#reload(String)}.
+     */
+    static class GraphHopperFactory implements Factory<GraphHopper> {
+
+        @Inject
+        GraphHopperManaged graphHopperManaged;
+
+        @Override
+        public GraphHopper provide() {
+            return graphHopperManaged.acquire();
+        }
+
+        @Override
+        public void dispose(GraphHopper instance) {
+            graphHopperManaged.release(instance);
+        }
+    }
+
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
         @Inject
@@ -275,13 +300,38 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final MVTTileCache mvtTileCache = new MVTTileCache(graphHopperManaged,
+                configuration.getGraphHopperConfiguration().getLong("mvt.cache.max_bytes", 64_000_000),
+                configuration.getGraphHopperConfiguration().getInt("mvt.prerender.max_zoom", 0));
+        // the tiles are pre-rendered after the graph was loaded
+        environment.lifecycle().manage(mvtTileCache);
+        graphHopperManaged.addReloadListener(mvtTileCache::reload);
+        environment.metrics().register("mvt.cache.hits", (Gauge<Long>) mvtTileCache::getHits);
+        environment.metrics().register("mvt.cache.misses", (Gauge<Long>) mvtTileCache::getMisses);
+        environment.metrics().register("mvt.cache.hit_rate", (Gauge<Double>) mvtTileCache::getHitRate);
+        environment.metrics().register("mvt.cache.bytes", (Gauge<Long>) mvtTileCache::getCachedBytes);
+        environment.metrics().register("mvt.encode.mean_millis", (Gauge<Double>) mvtTileCache::getMeanEncodeMillis);
+        // the traces of all map matching batches are matched by this pool
+        int mapMatchingBatchThreads = configuration.getGraphHopperConfiguration().getInt("map_matching.batch.threads", 1);
+        if (mapMatchingBatchThreads < 1)
+            throw new IllegalArgumentException("map_matching.batch.threads must be at least 1, was: " + mapMatchingBatchThreads);
+        final ExecutorService mapMatchingBatchExecutor = environment.lifecycle().executorService("map-matching-batch-%d").
+                minThreads(mapMatchingBatchThreads).maxThreads(mapMatchingBatchThreads).build();
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
-                bind(graphHopper).to(GraphHopper.class);
+                bind(graphHopperManaged).to(GraphHopperManaged.class);
+                bindFactory(GraphHopperFactory.class).to(GraphHopper.class).in(RequestScoped.class);
+                if (graphHopper instanceof GraphHopperGtfs)
+                    bind((GraphHopperGtfs) graphHopper).to(GraphHopperGtfs.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bind(mvtTileCache).to(MVTTileCache.class);
+                bind(new RouteMetrics(environment.metrics(), graphHopper.getProfiles())).to(RouteMetrics.class);
+                bind(new MapMatchingMetrics(environment.metrics())).to(MapMatchingMetrics.class);
+                bind(mapMatchingBatchExecutor).named("mapMatchingBatchExecutor").to(ExecutorService.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
@@ -298,6 +348,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
 
@@ -328,9 +379,10 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
-        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
+        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged));
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
+        environment.admin().addTask(new GraphReloadTask(graphHopperManaged));
 
         if (configuration.gtfsrealtime().getFeeds().isEmpty()) {
             environment.jersey().register(new AbstractBinder() {
@@ -18,45 +18,224 @@
 
 package com.graphhopper.http;
 
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
 import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.StopWatch;
 import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Manages the GraphHopper instance of the server. The graph can be replaced at runtime via {@link #reload(String)}:
+ * requests get their instance via {@link #acquire()} and the replaced instance is closed once all requests that
+ * still use it called {@link #release(GraphHopper)}.
+ */
 public class GraphHopperManaged implements Managed {
 
     private final static Logger logger = LoggerFactory.getLogger(GraphHopperManaged.class);
-    private final GraphHopper graphHopper;
+    private final GraphHopperConfig configuration;
+    private final Map<GraphHopper, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final List<Consumer<GraphHopper>> reloadListeners = new CopyOnWriteArrayList<>();
+    private final Object reloadLock = new Object();
+    private volatile Snapshot current;
 
     public GraphHopperManaged(GraphHopperConfig configuration) {
+        this.configuration = configuration;
+        current = new Snapshot(createGraphHopper(configuration));
+    }
+
+    private static GraphHopper createGraphHopper(GraphHopperConfig configuration) {
+        GraphHopper graphHopper;
         if (configuration.has("gtfs.file")) {
             graphHopper = new GraphHopperGtfs(configuration);
         } else {
             graphHopper = new GraphHopper();
         }
         graphHopper.init(configuration);
+        return graphHopper;
     }
 
     @Override
     public void start() {
+        GraphHopper graphHopper = getGraphHopper();
         graphHopper.importOrLoad();
         logger.info("loaded graph at:{}, data_reader_file:{}, encoded values:{}, {} bytes for edge flags, {}",
                 graphHopper.getGraphHopperLocation(), graphHopper.getOSMFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
                 graphHopper.getEncodingManager().getBytesForFlags(),
                 graphHopper.getBaseGraph().toDetailsString());
+        // the server does not accept requests before all managed objects are started, so the first requests and the
+        // health check only see the warmed up graph
+        warmUp(graphHopper);
     }
 
+    /**
+     * @return the current GraphHopper instance. Code that uses the instance for longer than a single call should use
+     * {@link #acquire()} instead, because the instance is closed after it was replaced by {@link #reload(String)}.
+     */
     public GraphHopper getGraphHopper() {
-        return graphHopper;
+        return current.graphHopper;
+    }
+
+    /**
+     * Returns the current GraphHopper instance and makes sure it is not closed before {@link #release(GraphHopper)}
+     * was called for it, even if it is replaced in the meantime.
+     */
+    public GraphHopper acquire() {
+        while (true) {
+            Snapshot snapshot = current;
+            snapshot.leases.incrementAndGet();
+            // the snapshot might have been replaced (and closed) before we incremented the counter
+            if (snapshot == current)
+                return snapshot.graphHopper;
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Like {@link #acquire()}, but for the given instance, which does not need to be the current one, e.g. for work
+     * that is started by a reload listener.
+     *
+     * @return false if the instance was replaced already, in this case it must not be used and released
+     */
+    public boolean tryAcquire(GraphHopper graphHopper) {
+        Snapshot snapshot = snapshots.get(graphHopper);
+        if (snapshot == null)
+            return false;
+        snapshot.leases.incrementAndGet();
+        // the snapshot might have been retired (and closed) before we incremented the counter
+        if (!snapshot.retired)
+            return true;
+        snapshot.release();
+        return false;
+    }
+
+    public void release(GraphHopper graphHopper) {
+        Snapshot snapshot = snapshots.get(graphHopper);
+        if (snapshot == null)
+            throw new IllegalArgumentException("GraphHopper instance was not acquired or is already closed");
+        snapshot.release();
+    }
+
+    /**
+     * The listener is called with the new GraphHopper instance after it was loaded by {@link #reload(String)}, but
+     * before the requests are routed to it.
+     */
+    public void addReloadListener(Consumer<GraphHopper> listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * Loads the graph from the specified folder, warms it up and then routes all new requests to it. The previous
+     * instance is closed as soon as the requests that still use it are finished. The graph must have been imported
+     * before (e.g. via the import command) with the same profiles and it must not be written to while it is used.
+     */
+    public GraphHopper reload(String graphLocation) {
+        if (getGraphHopper() instanceof GraphHopperGtfs)
+            throw new IllegalStateException("Reloading the graph is not supported together with gtfs.file");
+        synchronized (reloadLock) {
+            StopWatch sw = new StopWatch().start();
+            GraphHopperConfig config = new GraphHopperConfig(configuration);
+            config.putObject("graph.location", graphLocation);
+            GraphHopper graphHopper = createGraphHopper(config);
+            // the snapshot is registered before the listeners are called, so they can lease the new instance
+            Snapshot next = new Snapshot(graphHopper);
+            try {
+                if (!graphHopper.load())
+                    throw new IllegalArgumentException("There is no graph to load at " + graphLocation);
+                warmUp(graphHopper);
+                for (Consumer<GraphHopper> listener : reloadListeners)
+                    listener.accept(graphHopper);
+            } catch (RuntimeException ex) {
+                next.retire();
+                throw ex;
+            }
+            Snapshot previous = current;
+            current = next;
+            previous.retire();
+            logger.info("reloaded graph at:{}, took: {}s, {}", graphHopper.getGraphHopperLocation(),
+                    sw.stop().getSeconds(), graphHopper.getBaseGraph().toDetailsString());
+            return graphHopper;
+        }
+    }
+
+    /**
+     * Calculates random routes for every profile, so the first requests after the start or a reload do not need to
+     * wait until the used parts of the graph are loaded from disk and the JIT compiler has done its work. To load the
+     * memory mapped files entirely use graph.dataaccess.mmap.preload.* instead.
+     */
+    private void warmUp(GraphHopper graphHopper) {
+        int queries = configuration.getInt("graph.warm_up.queries", 0);
+        BaseGraph graph = graphHopper.getBaseGraph();
+        if (queries <= 0 || graph.getNodes() == 0)
+            return;
+        StopWatch sw = new StopWatch().start();
+        NodeAccess na = graph.getNodeAccess();
+        Random rnd = new Random(123);
+        int found = 0;
+        for (Profile profile : graphHopper.getProfiles()) {
+            for (int i = 0; i < queries; i++) {
+                int from = rnd.nextInt(graph.getNodes());
+                int to = rnd.nextInt(graph.getNodes());
+                GHResponse rsp = graphHopper.route(new GHRequest(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to)).
+                        setProfile(profile.getName()));
+                if (!rsp.hasErrors())
+                    found++;
+            }
+        }
+        logger.info("warm-up with {} queries per profile finished, found routes: {}, took: {}s", queries, found,
+                sw.stop().getSeconds());
     }
 
     @Override
     public void stop() {
-        graphHopper.close();
+        for (Snapshot snapshot : snapshots.values())
+            snapshot.close();
     }
 
+    private class Snapshot {
+        final GraphHopper graphHopper;
+        final AtomicInteger leases = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile boolean retired;
+
+        Snapshot(GraphHopper graphHopper) {
+            this.graphHopper = graphHopper;
+            snapshots.put(graphHopper, this);
+        }
+
+        void release() {
+            if (leases.decrementAndGet() == 0 && retired)
+                close();
+        }
 
+        void retire() {
+            retired = true;
+            if (leases.get() == 0)
+                close();
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true))
+                return;
+            snapshots.remove(graphHopper);
+            graphHopper.close();
+            logger.info("closed graph at:{}", graphHopper.getGraphHopperLocation());
+        }
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the graph of the running server without a restart, e.g. after a new import was written into a different
+ * folder: POST /tasks/reload-graph?graph.location=new-graph-cache on the admin port.
+ */
+public class GraphReloadTask extends Task {
+
+    private final GraphHopperManaged graphHopperManaged;
+
+    public GraphReloadTask(GraphHopperManaged graphHopperManaged) {
+        super("reload-graph");
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        List<String> locations = parameters.get("graph.location");
+        if (locations == null || locations.size() != 1)
+            throw new IllegalArgumentException("Specify the folder of the new graph via the graph.location parameter");
+        GraphHopper graphHopper = graphHopperManaged.reload(locations.get(0));
+        output.println("reloaded graph at " + graphHopper.getGraphHopperLocation() + ", "
+                + graphHopper.getBaseGraph().toDetailsString());
+    }
+}
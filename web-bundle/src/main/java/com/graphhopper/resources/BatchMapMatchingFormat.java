@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.matching.BatchMapMatching;
+import com.graphhopper.matching.EdgeMatch;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The formats of the batch map matching, see {@link MapMatchingResource#matchBatch}. The traces are read lazily, so
+ * the input can be much larger than the memory.
+ * <ul>
+ * <li>JSON lines: one trace per line like {"id":"trip1","points":[[lon,lat],[lon,lat],...]}</li>
+ * <li>CSV: one observation per line like trip1,lat,lon with an optional header. All consecutive lines with the same
+ * id form a trace.</li>
+ * </ul>
+ * Every result is written as a single line of JSON.
+ */
+public final class BatchMapMatchingFormat {
+
+    private BatchMapMatchingFormat() {
+    }
+
+    public static Iterator<BatchMapMatching.Trace> readJsonLines(ObjectMapper objectMapper, InputStream in) throws IOException {
+        MappingIterator<JsonNode> iter = objectMapper.readerFor(JsonNode.class).readValues(in);
+        return new Iterator<>() {
+            int count;
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public BatchMapMatching.Trace next() {
+                JsonNode json = iter.next();
+                String id = json.has("id") ? json.get("id").asText() : String.valueOf(count);
+                count++;
+                JsonNode points = json.get("points");
+                if (points == null || !points.isArray())
+                    throw new IllegalArgumentException("Trace " + id + " needs a points array");
+                List<Observation> observations = new ArrayList<>(points.size());
+                for (JsonNode point : points) {
+                    if (point.size() < 2)
+                        throw new IllegalArgumentException("Trace " + id + " contains a point without lon and lat: " + point);
+                    observations.add(new Observation(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble())));
+                }
+                return new BatchMapMatching.Trace(id, observations);
+            }
+        };
+    }
+
+    public static Iterator<BatchMapMatching.Trace> readCsv(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, Helper.UTF_CS));
+        return new Iterator<>() {
+            int lineNumber;
+            String[] nextRow = readRow(true);
+
+            @Override
+            public boolean hasNext() {
+                return nextRow != null;
+            }
+
+            @Override
+            public BatchMapMatching.Trace next() {
+                if (nextRow == null)
+                    throw new NoSuchElementException();
+                String id = nextRow[0];
+                List<Observation> observations = new ArrayList<>();
+                while (nextRow != null && nextRow[0].equals(id)) {
+                    observations.add(new Observation(new GHPoint(parseDouble(nextRow[1]), parseDouble(nextRow[2]))));
+                    nextRow = readRow(false);
+                }
+                return new BatchMapMatching.Trace(id, observations);
+            }
+
+            private String[] readRow(boolean first) {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                        lineNumber++;
+                        if (line == null)
+                            return null;
+                    } while (line.isBlank());
+                    String[] row = line.split(",");
+                    if (row.length < 3)
+                        throw new IllegalArgumentException("Line " + lineNumber + " needs id, lat and lon: " + line);
+                    row[0] = row[0].trim();
+                    // skip the header
+                    if (first && !isNumber(row[1]))
+                        return readRow(false);
+                    return row;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private double parseDouble(String value) {
+                try {
+                    return Double.parseDouble(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid coordinate in line " + lineNumber + ": " + value);
+                }
+            }
+        };
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static ObjectNode toJson(ObjectMapper objectMapper, BatchMapMatching.Result result, boolean calcPoints) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("id", result.trace.id);
+        json.put("observations", result.trace.observations.size());
+        json.put("took", Helper.round(result.nanos / 1.e6, 3));
+        if (result.hasError()) {
+            json.put("message", result.error);
+            return json;
+        }
+        MatchResult matchResult = result.matchResult;
+        json.put("distance", Helper.round(matchResult.getMatchLength(), 3));
+        json.put("time", matchResult.getMatchMillis());
+        json.put("original_distance", Helper.round(matchResult.getGpxEntriesLength(), 3));
+        ArrayNode traversalKeys = json.putArray("traversal_keys");
+        for (EdgeMatch edgeMatch : matchResult.getEdgeMatches())
+            traversalKeys.add(edgeMatch.getEdgeState().getEdgeKey());
+        if (calcPoints)
+            json.put("points", ResponsePathSerializer.encodePolyline(matchResult.getMergedPath().calcPoints(), false, 1e5));
+        return json;
+    }
+}
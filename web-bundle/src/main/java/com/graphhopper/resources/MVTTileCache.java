@@ -0,0 +1,427 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.lifecycle.Managed;
+import no.ecc.vectortile.VectorTileEncoder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.util.AffineTransformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Creates the vector tiles for the {@link MVTResource} and keeps the most recently used ones in memory. The cache is
+ * bounded by the total number of bytes of the cached tiles. Optionally, the tiles of the lower zoom levels (without
+ * render_all) are rendered into the graph folder once after the graph was imported or loaded, because they contain
+ * many edges and are the most expensive ones to create. The pre-rendering runs in the background, until a zoom level
+ * is finished its tiles are created on demand.
+ * <p>
+ * The graph can be replaced at runtime, so every tile is created while holding a lease on the GraphHopper instance,
+ * see {@link GraphHopperManaged#acquire()}.
+ */
+public class MVTTileCache implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileCache.class);
+    // for lower zoom levels we return empty tiles
+    static final int MIN_ZOOM = 10;
+    private static final Tile EMPTY_TILE = new Tile(new VectorTileEncoder().encode());
+
+    private final GraphHopperManaged graphHopperManaged;
+    // the latest instance, its tiles are pre-rendered and the pre-rendering of older instances is cancelled
+    private volatile GraphHopper latestGraphHopper;
+    private final long maxBytes;
+    private final int prerenderMaxZoom;
+    private final LinkedHashMap<String, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    // the instance the cached tiles were created for
+    private GraphHopper tilesGraphHopper;
+    private long cachedBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final ExecutorService prerenderExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mvt-prerender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param maxBytes         the maximum number of bytes of the tiles kept in memory, use 0 to disable the cache
+     * @param prerenderMaxZoom the tiles up to this zoom level are stored on disk, use 0 to disable the pre-rendering
+     */
+    public MVTTileCache(GraphHopperManaged graphHopperManaged, long maxBytes, int prerenderMaxZoom) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("mvt.cache.max_bytes must not be negative, was: " + maxBytes);
+        if (prerenderMaxZoom > 16)
+            throw new IllegalArgumentException("mvt.prerender.max_zoom must not be larger than 16, was: " + prerenderMaxZoom);
+        this.graphHopperManaged = graphHopperManaged;
+        this.maxBytes = maxBytes;
+        this.prerenderMaxZoom = prerenderMaxZoom;
+    }
+
+    @Override
+    public void start() {
+        latestGraphHopper = graphHopperManaged.getGraphHopper();
+        schedulePrerender(latestGraphHopper);
+    }
+
+    @Override
+    public void stop() {
+        prerenderExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts pre-rendering the tiles of the given graph in the background. This is called when the graph is reloaded,
+     * see {@link GraphHopperManaged#reload(String)}. The cached tiles of the previous graph are dropped once the first
+     * tile of the new graph is created.
+     */
+    public void reload(GraphHopper graphHopper) {
+        latestGraphHopper = graphHopper;
+        schedulePrerender(graphHopper);
+    }
+
+    public Tile getTile(int z, int x, int y, boolean renderAll) {
+        if (z < MIN_ZOOM)
+            return EMPTY_TILE;
+        int n = 1 << Math.min(z, 30);
+        if (x < 0 || y < 0 || x >= n || y >= n)
+            throw new IllegalArgumentException("Tile " + z + "/" + x + "/" + y + " does not exist");
+
+        GraphHopper graphHopper = graphHopperManaged.acquire();
+        try {
+            return getTile(graphHopper, z, x, y, renderAll);
+        } finally {
+            graphHopperManaged.release(graphHopper);
+        }
+    }
+
+    private Tile getTile(GraphHopper graphHopper, int z, int x, int y, boolean renderAll) {
+        String key = z + "/" + x + "/" + y + (renderAll ? "/all" : "");
+        Tile tile = null;
+        synchronized (tiles) {
+            if (tilesGraphHopper == graphHopper)
+                tile = tiles.get(key);
+        }
+        if (tile != null) {
+            hits.increment();
+            return tile;
+        }
+
+        if (!renderAll && z <= prerenderMaxZoom && getZoomDir(graphHopper, z).exists()) {
+            hits.increment();
+            tile = readTile(graphHopper, z, x, y);
+        } else {
+            misses.increment();
+            StopWatch sw = new StopWatch().start();
+            tile = new Tile(encodeTile(graphHopper, z, x, y, renderAll));
+            encodeNanos.add(sw.stop().getNanos());
+            logger.debug("took: " + sw.getMillis() + "ms, tile: " + key);
+        }
+        // do not cache tiles of a graph that was replaced in the meantime
+        if (graphHopper == graphHopperManaged.getGraphHopper())
+            put(graphHopper, key, tile);
+        return tile;
+    }
+
+    private void put(GraphHopper graphHopper, String key, Tile tile) {
+        if (tile.getSize() > maxBytes)
+            return;
+        synchronized (tiles) {
+            if (tilesGraphHopper != graphHopper) {
+                tiles.clear();
+                cachedBytes = 0;
+                tilesGraphHopper = graphHopper;
+            }
+            Tile old = tiles.put(key, tile);
+            if (old != null)
+                cachedBytes -= old.getSize();
+            cachedBytes += tile.getSize();
+            Iterator<Tile> iter = tiles.values().iterator();
+            while (cachedBytes > maxBytes) {
+                cachedBytes -= iter.next().getSize();
+                iter.remove();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the average time in milliseconds needed to create a tile that was not cached
+     */
+    public double getMeanEncodeMillis() {
+        long count = misses.sum();
+        return count == 0 ? 0 : encodeNanos.sum() / 1e6 / count;
+    }
+
+    public long getCachedBytes() {
+        synchronized (tiles) {
+            return cachedBytes;
+        }
+    }
+
+    private File getZoomDir(GraphHopper graphHopper, int z) {
+        return new File(graphHopper.getGraphHopperLocation(), "mvt/" + z);
+    }
+
+    private File getTileFile(File zoomDir, int x, int y) {
+        return new File(zoomDir, x + "/" + y + ".mvt");
+    }
+
+    private Tile readTile(GraphHopper graphHopper, int z, int x, int y) {
+        File file = getTileFile(getZoomDir(graphHopper, z), x, y);
+        // tiles without any edges are not stored
+        if (!file.exists())
+            return EMPTY_TILE;
+        try {
+            return new Tile(Files.readAllBytes(file.toPath()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void schedulePrerender(GraphHopper graphHopper) {
+        if (prerenderMaxZoom < MIN_ZOOM)
+            return;
+        prerenderExecutor.submit(() -> {
+            // the graph was replaced and closed before we started
+            if (!graphHopperManaged.tryAcquire(graphHopper))
+                return;
+            try {
+                for (int z = MIN_ZOOM; z <= prerenderMaxZoom; z++) {
+                    if (!getZoomDir(graphHopper, z).exists() && !prerender(graphHopper, z))
+                        return;
+                }
+            } catch (RuntimeException ex) {
+                logger.error("pre-rendering the vector tiles failed, they are created on demand instead", ex);
+            } finally {
+                graphHopperManaged.release(graphHopper);
+            }
+        });
+    }
+
+    /**
+     * @return false if the pre-rendering was cancelled, because the server is stopped or the graph was replaced
+     */
+    private boolean prerender(GraphHopper graphHopper, int z) {
+        StopWatch sw = new StopWatch().start();
+        BBox bounds = graphHopper.getBaseGraph().getBounds();
+        int n = 1 << z;
+        int minX = lon2x(bounds.minLon, n), maxX = lon2x(bounds.maxLon, n);
+        int minY = lat2y(bounds.maxLat, n), maxY = lat2y(bounds.minLat, n);
+        // we render into a temporary folder first, so an existing zoom folder always contains all tiles
+        File tmpDir = new File(graphHopper.getGraphHopperLocation(), "mvt/" + z + "_tmp");
+        Helper.removeDir(tmpDir);
+        int count = 0;
+        try {
+            for (int x = minX; x <= maxX; x++) {
+                if (Thread.currentThread().isInterrupted() || graphHopper != latestGraphHopper) {
+                    Helper.removeDir(tmpDir);
+                    logger.info("cancelled pre-rendering the vector tiles for zoom " + z);
+                    return false;
+                }
+                for (int y = minY; y <= maxY; y++) {
+                    byte[] bytes = encodeTile(graphHopper, z, x, y, false);
+                    if (Arrays.equals(bytes, EMPTY_TILE.getBytes()))
+                        continue;
+                    File file = getTileFile(tmpDir, x, y);
+                    file.getParentFile().mkdirs();
+                    Files.write(file.toPath(), bytes);
+                    count++;
+                }
+            }
+            tmpDir.mkdirs();
+            Files.move(tmpDir.toPath(), getZoomDir(graphHopper, z).toPath());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        logger.info("pre-rendered " + count + " vector tiles for zoom " + z + ", took: " + sw.stop().getSeconds() + "s");
+        return true;
+    }
+
+    static int lon2x(double lon, int n) {
+        int x = (int) Math.floor((lon + 180) / 360 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    static int lat2y(double lat, int n) {
+        double latRad = Math.toRadians(lat);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    static Coordinate num2deg(int xInfo, int yInfo, int zoom) {
+        // inverse web mercator projection
+        double n = Math.pow(2, zoom);
+        double lonDeg = xInfo / n * 360.0 - 180.0;
+        // unfortunately latitude numbers goes from north to south
+        double latRad = Math.atan(Math.sinh(Math.PI * (1 - 2 * yInfo / n)));
+        double latDeg = Math.toDegrees(latRad);
+        return new Coordinate(lonDeg, latDeg);
+    }
+
+    private byte[] encodeTile(GraphHopper graphHopper, int zInfo, int xInfo, int yInfo, boolean renderAll) {
+        Coordinate nw = num2deg(xInfo, yInfo, zInfo);
+        Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
+        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        final NodeAccess na = graphHopper.getBaseGraph().getNodeAccess();
+        BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
+        if (!bbox.isValid())
+            throw new IllegalStateException("Invalid bbox " + bbox);
+
+        final GeometryFactory geometryFactory = new GeometryFactory();
+        EncodingManager encodingManager = graphHopper.getEncodingManager();
+        if (!encodingManager.hasEncodedValue(RoadClass.KEY))
+            throw new IllegalStateException("You need to configure GraphHopper to store road_class, e.g. graph.encoded_values: road_class,max_speed,... ");
+
+        final EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+
+        // 256x256 pixels per MVT. here we transform from the global coordinate system to the local one of the tile.
+        AffineTransformation affineTransformation = new AffineTransformation();
+        affineTransformation.translate(-nw.x, -se.y);
+        affineTransformation.scale(
+                256.0 / (se.x - nw.x),
+                -256.0 / (nw.y - se.y)
+        );
+        affineTransformation.translate(0, 256);
+
+        // if performance of the vector tile encoding becomes an issue it might be worth to get rid of the simplification
+        // and clipping in the no.ecc code? https://github.com/graphhopper/graphhopper/commit/0f96c2deddb24efa97109e35e0c05f1c91221f59#r90830001
+        VectorTileEncoder vectorTileEncoder = new VectorTileEncoder();
+        locationIndex.query(bbox, edgeId -> {
+            EdgeIteratorState edge = graphHopper.getBaseGraph().getEdgeIteratorStateForKey(edgeId * 2);
+            LineString lineString;
+            if (renderAll) {
+                PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
+                lineString = pl.toLineString(false);
+            } else {
+                RoadClass rc = edge.get(roadClassEnc);
+                if (zInfo >= 14) {
+                    PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
+                    lineString = pl.toLineString(false);
+                } else if (rc == RoadClass.MOTORWAY
+                        || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                        || zInfo > 11 && (rc == RoadClass.SECONDARY)
+                        || zInfo > 12) {
+                    double lat = na.getLat(edge.getBaseNode());
+                    double lon = na.getLon(edge.getBaseNode());
+                    double toLat = na.getLat(edge.getAdjNode());
+                    double toLon = na.getLon(edge.getAdjNode());
+                    lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
+                } else {
+                    // skip edge for certain zoom
+                    return;
+                }
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<String, KVStorage.KValue> e : edge.getKeyValues().entrySet()) {
+                map.put(e.getKey(), e.getValue().toString());
+            }
+            map.put("edge_id", edge.getEdge());
+            map.put("edge_key", edge.getEdgeKey());
+            map.put("base_node", edge.getBaseNode());
+            map.put("adj_node", edge.getAdjNode());
+            map.put("distance", edge.getDistance());
+            encodingManager.getEncodedValues().forEach(ev -> {
+                if (ev instanceof EnumEncodedValue)
+                    map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString() + (ev.isStoreTwoDirections() ? " | " + edge.getReverse((EnumEncodedValue) ev).toString() : ""));
+                else if (ev instanceof DecimalEncodedValue)
+                    map.put(ev.getName(), edge.get((DecimalEncodedValue) ev) + (ev.isStoreTwoDirections() ? " | " + edge.getReverse((DecimalEncodedValue) ev) : ""));
+                else if (ev instanceof BooleanEncodedValue)
+                    map.put(ev.getName(), edge.get((BooleanEncodedValue) ev) + (ev.isStoreTwoDirections() ? " | " + edge.getReverse((BooleanEncodedValue) ev) : ""));
+                else if (ev instanceof StringEncodedValue)
+                    map.put(ev.getName(), edge.get((StringEncodedValue) ev) + (ev.isStoreTwoDirections() ? " | " + edge.getReverse((StringEncodedValue) ev) : ""));
+                else if (ev instanceof IntEncodedValue)
+                    map.put(ev.getName(), edge.get((IntEncodedValue) ev) + (ev.isStoreTwoDirections() ? " | " + edge.getReverse((IntEncodedValue) ev) : ""));
+            });
+            lineString.setUserData(map);
+
+            Geometry g = affineTransformation.transform(lineString);
+            vectorTileEncoder.addFeature("roads", map, g, edge.getEdge());
+        });
+        return vectorTileEncoder.encode();
+    }
+
+    public static class Tile {
+        private final byte[] bytes;
+        private final String etag;
+
+        Tile(byte[] bytes) {
+            this.bytes = bytes;
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            this.etag = Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(bytes.length);
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * @return the approximate number of bytes needed to keep this tile in the cache, including some overhead for
+         * the map entry, so even empty tiles count
+         */
+        long getSize() {
+            return bytes.length + 100;
+        }
+    }
+}
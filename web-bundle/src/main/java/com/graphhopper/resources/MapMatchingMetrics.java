@@ -0,0 +1,49 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.matching.BatchMapMatching;
+
+/**
+ * Records the throughput of the batch map matching: the rate of matched traces, observations and failed traces as
+ * meters and the time per trace in microseconds as histogram, all named map_matching.batch.*
+ */
+public class MapMatchingMetrics {
+    private final Meter traces;
+    private final Meter observations;
+    private final Meter errors;
+    private final Histogram traceMicros;
+
+    public MapMatchingMetrics(MetricRegistry registry) {
+        traces = registry.meter("map_matching.batch.traces");
+        observations = registry.meter("map_matching.batch.observations");
+        errors = registry.meter("map_matching.batch.errors");
+        traceMicros = registry.histogram("map_matching.batch.trace_micros");
+    }
+
+    public void record(BatchMapMatching.Result result) {
+        traces.mark();
+        observations.mark(result.trace.observations.size());
+        if (result.hasError())
+            errors.mark();
+        traceMicros.update(result.nanos / 1000);
+    }
+}
@@ -17,7 +17,9 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -34,17 +36,25 @@ import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.matching.*;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
@@ -69,16 +79,22 @@ public class MapMatchingResource {
     private final ProfileResolver profileResolver;
     private final TranslationMap trMap;
     private final MapMatchingRouterFactory mapMatchingRouterFactory;
+    private final ExecutorService batchExecutor;
+    private final MapMatchingMetrics metrics;
     private final ObjectMapper objectMapper = Jackson.newObjectMapper();
     private final String osmDate;
 
     @Inject
-    public MapMatchingResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap, MapMatchingRouterFactory mapMatchingRouterFactory) {
+    public MapMatchingResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, TranslationMap trMap,
+                               MapMatchingRouterFactory mapMatchingRouterFactory, @Named("mapMatchingBatchExecutor") ExecutorService batchExecutor,
+                               MapMatchingMetrics metrics) {
         this.config = config;
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.trMap = trMap;
         this.mapMatchingRouterFactory = mapMatchingRouterFactory;
+        this.batchExecutor = batchExecutor;
+        this.metrics = metrics;
         this.osmDate = graphHopper.getProperties().getAll().get("datareader.data.date");
     }
 
@@ -114,20 +130,9 @@ public class MapMatchingResource {
 
         StopWatch sw = new StopWatch().start();
 
-        PMap hints = new PMap();
-        RouteResource.initHints(hints, uriInfo.getQueryParameters());
-
-        // resolve profile and remove legacy vehicle/weighting parameters
-        // we need to explicitly disable CH here because map matching does not use it
-        PMap profileResolverHints = new PMap(hints);
-        profileResolverHints.putObject("profile", profile);
-        profileResolverHints.putObject(Parameters.CH.DISABLE, true);
-        profile = profileResolver.resolveProfile(profileResolverHints);
-        hints.putObject("profile", profile);
-        removeLegacyParameters(hints);
-
-        MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), mapMatchingRouterFactory.createMapMatchingRouter(hints));
-        matching.setMeasurementErrorSigma(gpsAccuracy);
+        PMap hints = createHints(uriInfo, profile);
+        profile = hints.getString("profile", "");
+        MapMatching matching = createMapMatching(hints, gpsAccuracy);
 
         List<Observation> measurements = GpxConversions.getEntries(gpx.trk.get(0));
         MatchResult matchResult = matching.match(measurements);
@@ -193,6 +198,164 @@ public class MapMatchingResource {
         }
     }
 
+    /**
+     * Matches a stream of observations while they arrive, e.g. from a live GPS feed. The request body is a sequence of
+     * JSON objects with lat and lon fields, usually one per line. The response is chunked and contains one JSON line
+     * for every edge match as soon as it is stable, see {@link OnlineMapMatching}. If an observation cannot be matched,
+     * e.g. after a gap in the trace, a line with a message field and the index of the observation is written and the
+     * matching continues with a new path. Malformed input ends the response with a line that only has a message field.
+     */
+    @POST
+    @jakarta.ws.rs.Path("stream")
+    @Consumes({"application/x-ndjson", MediaType.APPLICATION_JSON})
+    @Produces("application/x-ndjson")
+    public Response matchStream(
+            InputStream body,
+            @Context UriInfo uriInfo,
+            @QueryParam("profile") String profile,
+            @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy,
+            @QueryParam("window_size") @DefaultValue("20") int windowSize,
+            @QueryParam("lag") @DefaultValue("5") int lag) {
+        PMap hints = createHints(uriInfo, profile);
+        OnlineMapMatching matching = new OnlineMapMatching(createMapMatching(hints, gpsAccuracy), windowSize, lag);
+        StreamingOutput out = output -> {
+            StopWatch sw = new StopWatch().start();
+            int observations = 0;
+            int edgeMatches = 0;
+            int errors = 0;
+            try (MappingIterator<JsonNode> iter = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+                while (iter.hasNext()) {
+                    JsonNode point = iter.next();
+                    if (!point.has("lat") || !point.has("lon"))
+                        throw new IllegalArgumentException("Observation " + observations + " needs lat and lon");
+                    Observation observation = new Observation(new GHPoint(point.get("lat").asDouble(), point.get("lon").asDouble()));
+                    try {
+                        edgeMatches += writeEdgeMatches(output, matching.add(observation));
+                    } catch (IllegalArgumentException ex) {
+                        // the sequence is broken, but the next observations start a new path and can be matched again
+                        errors++;
+                        writeLine(output, objectMapper.createObjectNode().put("message", ex.getMessage()).put("observation", observations));
+                    }
+                    observations++;
+                }
+                edgeMatches += writeEdgeMatches(output, matching.finish());
+            } catch (IllegalArgumentException | JsonProcessingException ex) {
+                writeLine(output, objectMapper.createObjectNode().put("message", ex.getMessage()));
+            }
+            logger.info(objectMapper.createObjectNode()
+                    .put("duration", sw.stop().getNanos())
+                    .put("profile", hints.getString("profile", ""))
+                    .put("observations", observations)
+                    .put("edge_matches", edgeMatches)
+                    .put("errors", errors).toString());
+        };
+        return Response.ok(out).type("application/x-ndjson").build();
+    }
+
+    /**
+     * Matches many traces at once, e.g. for nightly jobs. The traces are read while they are matched, as JSON lines or
+     * CSV, see {@link BatchMapMatchingFormat}. They are matched in parallel by the map_matching.batch.threads threads
+     * that are shared by all batches. The response contains one JSON line per trace, in the order of the request,
+     * and a last line with the number of traces and the throughput.
+     */
+    @POST
+    @jakarta.ws.rs.Path("batch")
+    @Consumes({"application/x-ndjson", MediaType.APPLICATION_JSON, "text/csv"})
+    @Produces("application/x-ndjson")
+    public Response matchBatch(
+            InputStream body,
+            @HeaderParam("Content-Type") String contentType,
+            @Context UriInfo uriInfo,
+            @QueryParam("profile") String profile,
+            @QueryParam(CALC_POINTS) @DefaultValue("true") boolean calcPoints,
+            @QueryParam("gps_accuracy") @DefaultValue("10") double gpsAccuracy) {
+        PMap hints = createHints(uriInfo, profile);
+        // the router can be shared, but every trace needs its own MapMatching
+        MapMatching.Router router = mapMatchingRouterFactory.createMapMatchingRouter(hints);
+        int threads = config.getInt("map_matching.batch.threads", 1);
+        BatchMapMatching batchMapMatching = new BatchMapMatching(() -> createMapMatching(router, gpsAccuracy), batchExecutor, 2 * threads);
+        boolean csv = contentType != null && contentType.startsWith("text/csv");
+        StreamingOutput out = output -> {
+            StopWatch sw = new StopWatch().start();
+            int[] counts = new int[3];
+            try {
+                Iterator<BatchMapMatching.Trace> traces = csv ? BatchMapMatchingFormat.readCsv(body) : BatchMapMatchingFormat.readJsonLines(objectMapper, body);
+                batchMapMatching.match(traces, result -> {
+                    metrics.record(result);
+                    counts[0]++;
+                    counts[1] += result.trace.observations.size();
+                    if (result.hasError())
+                        counts[2]++;
+                    try {
+                        writeLine(output, BatchMapMatchingFormat.toJson(objectMapper, result, calcPoints));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IllegalArgumentException | JsonProcessingException ex) {
+                writeLine(output, objectMapper.createObjectNode().put("message", ex.getMessage()));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            double seconds = sw.stop().getSeconds();
+            ObjectNode info = objectMapper.createObjectNode()
+                    .put("traces", counts[0])
+                    .put("observations", counts[1])
+                    .put("errors", counts[2])
+                    .put("took", Math.round(seconds * 1000))
+                    .put("traces_per_second", Helper.round(counts[0] / Math.max(seconds, 1.e-9), 3));
+            writeLine(output, objectMapper.createObjectNode().set("info", info));
+            logger.info(info.put("profile", hints.getString("profile", "")).put("threads", threads).toString());
+        };
+        return Response.ok(out).type("application/x-ndjson").build();
+    }
+
+    private int writeEdgeMatches(OutputStream output, List<EdgeMatch> edgeMatches) throws IOException {
+        for (EdgeMatch edgeMatch : edgeMatches) {
+            EdgeIteratorState edge = edgeMatch.getEdgeState();
+            writeLine(output, objectMapper.createObjectNode()
+                    .put("edge_id", edge.getEdge())
+                    .put("edge_key", edge.getEdgeKey())
+                    .put("base_node", edge.getBaseNode())
+                    .put("adj_node", edge.getAdjNode())
+                    .put("distance", Helper.round(edge.getDistance(), 3))
+                    .put("observations", edgeMatch.getStates().size()));
+        }
+        // send the edge matches to the client right away, the stream might go on for a long time
+        if (!edgeMatches.isEmpty())
+            output.flush();
+        return edgeMatches.size();
+    }
+
+    private void writeLine(OutputStream output, JsonNode node) throws IOException {
+        output.write(objectMapper.writeValueAsBytes(node));
+        output.write('\n');
+    }
+
+    private PMap createHints(UriInfo uriInfo, String profile) {
+        PMap hints = new PMap();
+        RouteResource.initHints(hints, uriInfo.getQueryParameters());
+
+        // resolve profile and remove legacy vehicle/weighting parameters
+        // we need to explicitly disable CH here because map matching does not use it
+        PMap profileResolverHints = new PMap(hints);
+        profileResolverHints.putObject("profile", profile);
+        profileResolverHints.putObject(Parameters.CH.DISABLE, true);
+        hints.putObject("profile", profileResolver.resolveProfile(profileResolverHints));
+        removeLegacyParameters(hints);
+        return hints;
+    }
+
+    private MapMatching createMapMatching(PMap hints, double gpsAccuracy) {
+        return createMapMatching(mapMatchingRouterFactory.createMapMatchingRouter(hints), gpsAccuracy);
+    }
+
+    private MapMatching createMapMatching(MapMatching.Router router, double gpsAccuracy) {
+        MapMatching matching = new MapMatching(graphHopper.getBaseGraph(), (LocationIndexTree) graphHopper.getLocationIndex(), router);
+        matching.setMeasurementErrorSigma(gpsAccuracy);
+        return matching;
+    }
+
     public static JsonNode convertToTree(MatchResult result, boolean elevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
         ObjectNode root = JsonNodeFactory.instance.objectNode();
         ObjectNode diary = root.putObject("diary");
@@ -0,0 +1,265 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.routing.MatrixCalculator;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.*;
+
+/**
+ * Calculates many-to-many matrices of travel times, distances and weights. This uses a bucket based algorithm on top
+ * of the CH preparation (see {@link MatrixCalculator}) and therefore only works for profiles with a node-based CH
+ * preparation. The request and response format is the one used by the GraphHopper Directions API client
+ * (see GHMatrixSyncRequester in the client-hc module).
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    public static class MatrixRequest {
+        @JsonProperty("points")
+        public List<GHPoint> points;
+        @JsonProperty("from_points")
+        public List<GHPoint> fromPoints;
+        @JsonProperty("to_points")
+        public List<GHPoint> toPoints;
+        @JsonProperty("profile")
+        public String profile;
+        @JsonProperty("out_arrays")
+        public List<String> outArrays = List.of("weights");
+        @JsonProperty("fail_fast")
+        public boolean failFast = true;
+        @JsonProperty("snap_preventions")
+        public List<String> snapPreventions;
+    }
+
+    private final GraphHopperConfig config;
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final int maxLocations;
+    private final List<String> snapPreventionsDefault;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.config = config;
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.maxLocations = config.getInt("routing.matrix.max_locations", 1000);
+        this.snapPreventionsDefault = Arrays.stream(config.getString("routing.snap_preventions_default", "")
+                .split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull MatrixRequest request) {
+        StopWatch sw = new StopWatch().start();
+        List<GHPoint> fromPoints, toPoints;
+        if (request.points != null) {
+            if (request.fromPoints != null || request.toPoints != null)
+                throw new IllegalArgumentException("Either specify 'points' or 'from_points' and 'to_points', but not both");
+            fromPoints = toPoints = request.points;
+        } else {
+            if (request.fromPoints == null || request.toPoints == null)
+                throw new IllegalArgumentException("If 'points' is not specified you have to specify both 'from_points' and 'to_points'");
+            fromPoints = request.fromPoints;
+            toPoints = request.toPoints;
+        }
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("At least one from_point and one to_point has to be specified");
+        if (fromPoints.size() > maxLocations || toPoints.size() > maxLocations)
+            throw new IllegalArgumentException("The number of from_points and to_points must not exceed " + maxLocations
+                    + ", but was: " + fromPoints.size() + " and " + toPoints.size());
+        // out_arrays: null is treated like a missing field
+        List<String> outArrays = request.outArrays == null ? List.of("weights") : request.outArrays;
+        boolean withTimes = outArrays.contains("times");
+        boolean withDistances = outArrays.contains("distances");
+        boolean withWeights = outArrays.contains("weights");
+        if (!withTimes && !withDistances && !withWeights)
+            throw new IllegalArgumentException("'out_arrays' must contain at least one of 'weights', 'times' or 'distances'");
+
+        PMap profileResolverHints = new PMap();
+        profileResolverHints.putObject("profile", request.profile);
+        String profileName = profileResolver.resolveProfile(profileResolverHints);
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
+                    "\nThe matrix calculation requires CH, available CH profiles: " + graphHopper.getCHGraphs().keySet());
+
+        EncodingManager em = graphHopper.getEncodingManager();
+        BooleanEncodedValue inSubnetworkEnc = em.getBooleanEncodedValue(Subnetwork.key(profileName));
+        EdgeFilter snapFilter = new DefaultSnapFilter(chGraph.getWeighting(), inSubnetworkEnc);
+        List<String> snapPreventions = request.snapPreventions == null ? snapPreventionsDefault : request.snapPreventions;
+        EdgeFilter strictSnapFilter = snapPreventions.isEmpty() ? snapFilter : new SnapPreventionEdgeFilter(snapFilter,
+                em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class), em.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class),
+                snapPreventions);
+        List<Snap> fromSnaps = lookup(fromPoints, snapFilter, strictSnapFilter);
+        List<Snap> toSnaps = fromPoints == toPoints ? fromSnaps : lookup(toPoints, snapFilter, strictSnapFilter);
+        List<Integer> invalidFromPoints = getInvalidPoints(fromSnaps);
+        List<Integer> invalidToPoints = getInvalidPoints(toSnaps);
+        if (request.failFast && (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty())) {
+            List<Throwable> errors = new ArrayList<>();
+            if (!invalidFromPoints.isEmpty())
+                errors.add(new PointNotFoundException("Cannot find from_points: " + join(invalidFromPoints), invalidFromPoints.get(0)));
+            if (!invalidToPoints.isEmpty())
+                errors.add(new PointNotFoundException("Cannot find to_points: " + join(invalidToPoints), invalidToPoints.get(0)));
+            throw new MultiException(errors);
+        }
+
+        List<Snap> validSnaps = new ArrayList<>();
+        for (Snap snap : fromSnaps)
+            if (snap.isValid()) validSnaps.add(snap);
+        if (toSnaps != fromSnaps)
+            for (Snap snap : toSnaps)
+                if (snap.isValid()) validSnaps.add(snap);
+        QueryGraph queryGraph = QueryGraph.create(graphHopper.getBaseGraph(), validSnaps);
+        MatrixCalculator matrixCalculator = new MatrixCalculator(new QueryRoutingCHGraph(chGraph, queryGraph)).
+                setCalcTimes(withTimes).
+                setCalcDistances(withDistances);
+        MatrixCalculator.Result result = matrixCalculator.calcMatrix(getNodes(fromSnaps), getNodes(toSnaps));
+
+        // the pairs of points that could not be found are not disconnected pairs, they are reported as invalid points
+        List<int[]> disconnectedPairs = new ArrayList<>();
+        for (int i = 0; i < fromSnaps.size(); i++)
+            for (int j = 0; j < toSnaps.size(); j++)
+                if (!result.isConnected(i, j) && fromSnaps.get(i).isValid() && toSnaps.get(j).isValid())
+                    disconnectedPairs.add(new int[]{i, j});
+        if (request.failFast && !disconnectedPairs.isEmpty())
+            throw new ConnectionNotFoundException("Connection between locations not found", Map.of("point_pairs", disconnectedPairs));
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (withWeights)
+            putMatrix(json.putArray("weights"), result, (i, j) -> Math.round(result.weights[i][j] * 1000) / 1000.0);
+        if (withTimes)
+            putMatrix(json.putArray("times"), result, (i, j) -> Math.round(result.times[i][j] / 1000.0));
+        if (withDistances)
+            putMatrix(json.putArray("distances"), result, (i, j) -> Math.round(result.distances[i][j]));
+        if (!disconnectedPairs.isEmpty() || !invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+            ArrayNode hints = json.putArray("hints");
+            if (!disconnectedPairs.isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "There were " + disconnectedPairs.size() + " connections that could not be found, see point_pairs for details");
+                hint.put("details", ConnectionNotFoundException.class.getName());
+                ArrayNode pointPairs = hint.putArray("point_pairs");
+                for (int[] pair : disconnectedPairs)
+                    pointPairs.addArray().add(pair[0]).add(pair[1]);
+            }
+            if (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "There were " + invalidFromPoints.size() + " from_points and " + invalidToPoints.size()
+                        + " to_points that could not be found, see invalid_from/to_points for details");
+                hint.put("details", PointNotFoundException.class.getName());
+                invalidFromPoints.forEach(hint.putArray("invalid_from_points")::add);
+                invalidToPoints.forEach(hint.putArray("invalid_to_points")::add);
+            }
+        }
+        double took = sw.stop().getMillisDouble();
+        ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", config.getCopyrights());
+        info.put("took", Math.round(took));
+        info.put("visited_nodes", result.visitedNodes);
+        logger.info(fromSnaps.size() + "x" + toSnaps.size() + ", took: " + String.format("%.1f", took) + "ms, profile: "
+                + profileName + ", visited_nodes: " + result.visitedNodes + ", disconnected: " + disconnectedPairs.size());
+        return Response.ok(json).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    private List<Snap> lookup(List<GHPoint> points, EdgeFilter snapFilter, EdgeFilter strictSnapFilter) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (GHPoint point : points) {
+            if (point == null)
+                throw new IllegalArgumentException("Point " + snaps.size() + " is null");
+            Snap snap = locationIndex.findClosest(point.lat, point.lon, strictSnapFilter);
+            if (!snap.isValid() && strictSnapFilter != snapFilter)
+                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+            snaps.add(snap);
+        }
+        return snaps;
+    }
+
+    private static List<Integer> getInvalidPoints(List<Snap> snaps) {
+        List<Integer> invalidPoints = new ArrayList<>();
+        for (int i = 0; i < snaps.size(); i++)
+            if (!snaps.get(i).isValid())
+                invalidPoints.add(i);
+        return invalidPoints;
+    }
+
+    private static int[] getNodes(List<Snap> snaps) {
+        // note that the query graph is already created, so the closest nodes of the snaps are the virtual nodes
+        return snaps.stream().mapToInt(s -> s.isValid() ? s.getClosestNode() : -1).toArray();
+    }
+
+    private static String join(List<Integer> indices) {
+        StringJoiner joiner = new StringJoiner(", ");
+        indices.forEach(i -> joiner.add(String.valueOf(i)));
+        return joiner.toString();
+    }
+
+    private interface CellValue {
+        Number get(int source, int target);
+    }
+
+    private static void putMatrix(ArrayNode array, MatrixCalculator.Result result, CellValue value) {
+        for (int i = 0; i < result.weights.length; i++) {
+            ArrayNode row = array.addArray();
+            for (int j = 0; j < result.weights[i].length; j++) {
+                if (!result.isConnected(i, j))
+                    row.addNull();
+                else if (value.get(i, j) instanceof Double d)
+                    row.add(d);
+                else
+                    row.add(value.get(i, j).longValue());
+            }
+        }
+    }
+}
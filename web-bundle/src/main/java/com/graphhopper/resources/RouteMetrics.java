@@ -0,0 +1,66 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.graphhopper.util.Parameters.Algorithms.*;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Records the latency of successful route requests in histograms, one for the whole request and one for every stage
+ * of the route calculation, see {@link GHResponse#getTimings()}. There is a separate set of histograms for every
+ * profile and algorithm, e.g. route.car.default.search, and all values are in microseconds. Algorithms and profiles
+ * that are not known are recorded as 'other' so the number of histograms does not depend on the requests.
+ */
+public class RouteMetrics {
+    private static final String OTHER = "other";
+    private static final Set<String> ALGORITHMS = Set.of(DIJKSTRA_BI, DIJKSTRA, ASTAR, ASTAR_BI, ALT_ROUTE, ROUND_TRIP);
+    private final MetricRegistry registry;
+    private final Set<String> profiles;
+
+    public RouteMetrics(MetricRegistry registry, List<Profile> profiles) {
+        this.registry = registry;
+        this.profiles = profiles.stream().map(Profile::getName).collect(toSet());
+    }
+
+    public void record(GHRequest request, GHResponse response, double tookMillis) {
+        if (response.hasErrors())
+            return;
+        String profile = profiles.contains(request.getProfile()) ? request.getProfile() : OTHER;
+        String algorithm = getAlgorithmName(request.getAlgorithm());
+        registry.histogram(MetricRegistry.name("route", profile, algorithm, "total")).update(Math.round(tookMillis * 1000));
+        for (Map.Entry<String, Long> timing : response.getTimings().entrySet())
+            registry.histogram(MetricRegistry.name("route", profile, algorithm, timing.getKey())).update(timing.getValue() / 1000);
+    }
+
+    private static String getAlgorithmName(String algorithm) {
+        if (Helper.isEmpty(algorithm))
+            return "default";
+        algorithm = Helper.toLowerCase(algorithm);
+        return ALGORITHMS.contains(algorithm) ? algorithm : OTHER;
+    }
+}
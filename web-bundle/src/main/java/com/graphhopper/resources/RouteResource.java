@@ -17,6 +17,9 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
@@ -39,9 +42,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static com.graphhopper.util.Parameters.Details.PATH_DETAILS;
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -59,6 +60,11 @@ public class RouteResource {
 
     private static final Logger logger = LoggerFactory.getLogger(RouteResource.class);
 
+    public static class BatchRequest {
+        @JsonProperty("requests")
+        public List<GHRequest> requests;
+    }
+
     private final GraphHopperConfig config;
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
@@ -66,10 +72,14 @@ public class RouteResource {
     private final Boolean hasElevation;
     private final String osmDate;
     private final List<String> snapPreventionsDefault;
+    private final ObjectMapper objectMapper;
+    private final RouteMetrics routeMetrics;
 
     @Inject
-    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation, ObjectMapper objectMapper, RouteMetrics routeMetrics) {
         this.config = config;
+        this.routeMetrics = routeMetrics;
+        this.objectMapper = objectMapper;
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.ghRequestTransformer = ghRequestTransformer;
@@ -154,6 +164,7 @@ public class RouteResource {
         GHResponse ghResponse = graphHopper.route(request);
 
         double took = sw.stop().getMillisDouble();
+        routeMetrics.record(request, ghResponse, took);
         String logStr = (httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")) + " " + points + ", took: " + String.format("%.1f", took) + "ms, algo: " + algoStr + ", profile: " + profileName;
 
         if (ghResponse.hasErrors()) {
@@ -174,7 +185,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+                    Response.ok(jsonOutput(ghResponse, Math.round(took), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
                             header("X-GH-Took", "" + Math.round(took)).
                             type(MediaType.APPLICATION_JSON).
                             build();
@@ -185,21 +196,8 @@ public class RouteResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
-        if (!request.hasSnapPreventions())
-            request.setSnapPreventions(snapPreventionsDefault);
-
         StopWatch sw = new StopWatch().start();
-        request = ghRequestTransformer.transformRequest(request);
-
-        if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
-            // throw a dedicated exception here, otherwise a missing profile is still caught in Router
-            throw new IllegalArgumentException("The 'profile' parameter is required when you use the `custom_model` parameter");
-
-        PMap profileResolverHints = new PMap(request.getHints());
-        profileResolverHints.putObject("profile", request.getProfile());
-        profileResolverHints.putObject("has_curbsides", !request.getCurbsides().isEmpty());
-        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
-        removeLegacyParameters(request.getHints());
+        request = prepareRequest(request);
 
         GHResponse ghResponse = graphHopper.route(request);
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
@@ -209,6 +207,7 @@ public class RouteResource {
         double pointsEncodedMultiplier = request.getHints().getDouble("points_encoded_multiplier", 1e5);
 
         double took = sw.stop().getMillisDouble();
+        routeMetrics.record(request, ghResponse, took);
         String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
         String logStr = infoStr + " " + request.getPoints().size() + ", took: "
                 + String.format("%.1f", took) + " ms, algo: " + request.getAlgorithm() + ", profile: " + request.getProfile()
@@ -223,13 +222,117 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), Math.round(took), osmDate), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
+            return Response.ok(jsonOutput(ghResponse, Math.round(took), instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier)).
                     header("X-GH-Took", "" + Math.round(took)).
                     type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
 
+    /**
+     * Calculates the routes for several requests at once, see {@link GraphHopper#routeBatch}. The response contains
+     * one entry for every request, either the usual route response or the errors of this request. The time spent on
+     * each request is returned in its info.took field.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPostBatch(@NotNull BatchRequest batchRequest, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        if (batchRequest.requests == null || batchRequest.requests.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one request");
+
+        List<GHRequest> requests = new ArrayList<>(batchRequest.requests.size());
+        GHResponse[] ghResponses = new GHResponse[batchRequest.requests.size()];
+        for (int i = 0; i < ghResponses.length; i++) {
+            try {
+                if (batchRequest.requests.get(i) == null)
+                    throw new IllegalArgumentException("Request " + i + " is null");
+                requests.add(prepareRequest(batchRequest.requests.get(i)));
+            } catch (IllegalArgumentException ex) {
+                requests.add(null);
+                ghResponses[i] = new GHResponse().addError(ex);
+            }
+        }
+        List<GHRequest> validRequests = requests.stream().filter(Objects::nonNull).toList();
+        Iterator<GHResponse> iter = graphHopper.routeBatch(validRequests).iterator();
+        for (int i = 0; i < ghResponses.length; i++) {
+            if (ghResponses[i] == null) {
+                ghResponses[i] = iter.next();
+                routeMetrics.record(requests.get(i), ghResponses[i], ghResponses[i].getHints().getDouble("took", 0));
+            }
+        }
+
+        int errors = 0;
+        for (GHResponse ghResponse : ghResponses)
+            if (ghResponse.hasErrors())
+                errors++;
+        double took = sw.stop().getMillisDouble();
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " batch: " + ghResponses.length + ", errors: " + errors + ", took: " + String.format("%.1f", took) + " ms");
+        StreamingOutput out = output -> {
+            try (JsonGenerator gen = objectMapper.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("responses");
+                for (int i = 0; i < ghResponses.length; i++) {
+                    GHResponse ghResponse = ghResponses[i];
+                    if (ghResponse.hasErrors()) {
+                        gen.writeObject(new MultiException(ghResponse.getErrors()));
+                        continue;
+                    }
+                    PMap hints = requests.get(i).getHints();
+                    long requestTook = Math.round(ghResponse.getHints().getDouble("took", 0));
+                    ResponsePathSerializer.writeJson(gen, ghResponse, new ResponsePathSerializer.Info(config.getCopyrights(), requestTook, osmDate),
+                            hints.getBool(INSTRUCTIONS, true), hints.getBool(CALC_POINTS, true), hints.getBool("elevation", false),
+                            hints.getBool("points_encoded", true), hints.getDouble("points_encoded_multiplier", 1e5));
+                }
+                gen.writeEndArray();
+                gen.writeObjectFieldStart("info");
+                gen.writeObjectField("copyrights", config.getCopyrights());
+                gen.writeNumberField("took", Math.round(took));
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+        };
+        return Response.ok(out).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    /**
+     * Writes the JSON response directly to the output stream instead of building a JSON tree first, which matters
+     * for long routes with many points and path details.
+     */
+    private StreamingOutput jsonOutput(GHResponse ghResponse, long took, boolean instructions, boolean calcPoints,
+                                       boolean enableElevation, boolean pointsEncoded, double pointsEncodedMultiplier) {
+        ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(config.getCopyrights(), took, osmDate);
+        return output -> {
+            try (JsonGenerator gen = objectMapper.createGenerator(output)) {
+                ResponsePathSerializer.writeJson(gen, ghResponse, info, instructions, calcPoints, enableElevation, pointsEncoded, pointsEncodedMultiplier);
+            }
+        };
+    }
+
+    private GHRequest prepareRequest(GHRequest request) {
+        if (!request.hasSnapPreventions())
+            request.setSnapPreventions(snapPreventionsDefault);
+
+        request = ghRequestTransformer.transformRequest(request);
+
+        if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
+            // throw a dedicated exception here, otherwise a missing profile is still caught in Router
+            throw new IllegalArgumentException("The 'profile' parameter is required when you use the `custom_model` parameter");
+
+        PMap profileResolverHints = new PMap(request.getHints());
+        profileResolverHints.putObject("profile", request.getProfile());
+        profileResolverHints.putObject("has_curbsides", !request.getCurbsides().isEmpty());
+        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
+        removeLegacyParameters(request.getHints());
+        return request;
+    }
+
     public static void removeLegacyParameters(PMap hints) {
         // these parameters should only be used to resolve the profile, but should not be passed to GraphHopper
         hints.remove("weighting");
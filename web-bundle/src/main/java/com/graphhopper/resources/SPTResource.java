@@ -136,8 +136,13 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
+                // send the header before the search starts, the lines are then written as the search proceeds
+                writer.flush();
                 shortestPathTree.search(snap.getClosestNode(), l -> {
                     IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                    // the same edge is needed for all edge columns, so we look it up only once
+                    EdgeIteratorState edge = null;
+                    boolean edgeFetched = false;
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -183,10 +188,11 @@ public class SPTResource {
                                 continue;
                         }
 
-                        if (!EdgeIterator.Edge.isValid(label.edgeId))
-                            continue;
-
-                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
+                        if (!edgeFetched) {
+                            edgeFetched = true;
+                            if (EdgeIterator.Edge.isValid(label.edgeId))
+                                edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
+                        }
                         if (edge == null)
                             continue;
 
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.matching.BatchMapMatching;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchMapMatchingFormatTest {
+
+    @Test
+    public void testCsv() {
+        List<BatchMapMatching.Trace> traces = toList(BatchMapMatchingFormat.readCsv(stream(
+                "id,lat,lon\na,51.1,12.1\na,51.2,12.2\n\nb,51.3,12.3\na,51.4,12.4\n")));
+        assertEquals(3, traces.size());
+        assertEquals("a", traces.get(0).id);
+        assertEquals(2, traces.get(0).observations.size());
+        assertEquals(51.2, traces.get(0).observations.get(1).getPoint().lat, 1.e-6);
+        assertEquals(12.2, traces.get(0).observations.get(1).getPoint().lon, 1.e-6);
+        assertEquals("b", traces.get(1).id);
+        assertEquals(1, traces.get(1).observations.size());
+        // only consecutive lines form a trace
+        assertEquals("a", traces.get(2).id);
+        assertEquals(51.4, traces.get(2).observations.get(0).getPoint().lat, 1.e-6);
+
+        // without header
+        assertEquals(1, toList(BatchMapMatchingFormat.readCsv(stream("a,51.1,12.1\n"))).size());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> toList(BatchMapMatchingFormat.readCsv(stream("a,51.1,12.1\na,51.2\n"))));
+        assertTrue(ex.getMessage().contains("Line 2"), ex.getMessage());
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        List<BatchMapMatching.Trace> traces = toList(BatchMapMatchingFormat.readJsonLines(Jackson.newObjectMapper(), stream(
+                "{\"id\":\"a\",\"points\":[[12.1,51.1],[12.2,51.2]]}\n{\"points\":[[12.3,51.3]]}\n")));
+        assertEquals(2, traces.size());
+        assertEquals("a", traces.get(0).id);
+        assertEquals(51.2, traces.get(0).observations.get(1).getPoint().lat, 1.e-6);
+        assertEquals(12.2, traces.get(0).observations.get(1).getPoint().lon, 1.e-6);
+        // traces without id are numbered
+        assertEquals("1", traces.get(1).id);
+
+        Iterator<BatchMapMatching.Trace> iter = BatchMapMatchingFormat.readJsonLines(Jackson.newObjectMapper(), stream("{\"id\":\"a\"}"));
+        assertThrows(IllegalArgumentException.class, iter::next);
+    }
+
+    private static InputStream stream(String string) {
+        return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<BatchMapMatching.Trace> toList(Iterator<BatchMapMatching.Trace> iter) {
+        List<BatchMapMatching.Trace> list = new ArrayList<>();
+        iter.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.config.Profile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RouteMetricsTest {
+
+    @Test
+    public void testHistogramNames() {
+        MetricRegistry registry = new MetricRegistry();
+        RouteMetrics metrics = new RouteMetrics(registry, List.of(new Profile("car")));
+        metrics.record(new GHRequest().setProfile("car"), new GHResponse(), 1);
+        metrics.record(new GHRequest().setProfile("car").setAlgorithm("astarbi"), new GHResponse(), 1);
+        metrics.record(new GHRequest().setProfile("car").setAlgorithm("abc"), new GHResponse(), 1);
+        metrics.record(new GHRequest().setProfile("xyz").setAlgorithm("dijkstra"), new GHResponse(), 1);
+        // failed requests are not recorded
+        metrics.record(new GHRequest().setProfile("car"), new GHResponse().addError(new IllegalArgumentException()), 1);
+
+        assertEquals(Set.of("route.car.default.total", "route.car.astarbi.total", "route.car.other.total", "route.other.dijkstra.total"),
+                registry.getHistograms().keySet());
+        assertEquals(1, registry.histogram("route.car.default.total").getCount());
+        assertEquals(1, registry.histogram("route.car.other.total").getCount());
+        assertEquals(1, registry.histogram("route.car.astarbi.total").getCount());
+    }
+}
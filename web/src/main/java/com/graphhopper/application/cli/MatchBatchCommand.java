@@ -0,0 +1,201 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.matching.BatchMapMatching;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.resources.BatchMapMatchingFormat;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import io.dropwizard.core.cli.ConfiguredCommand;
+import io.dropwizard.core.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Argument;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Matches many traces in parallel and writes one JSON line per trace, see {@link BatchMapMatchingFormat}. The input
+ * files can be GPX files with one track, CSV files (*.csv) or JSON lines files with many traces each.
+ */
+public class MatchBatchCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public MatchBatchCommand() {
+        super("match-batch", "map-match many traces in parallel");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("input")
+                .type(File.class)
+                .required(true)
+                .nargs("+")
+                .help("GPX, CSV or JSON lines files");
+        subparser.addArgument("--file")
+                .required(true)
+                .help("application configuration file");
+        subparser.addArgument("--profile")
+                .type(String.class)
+                .required(true)
+                .help("profile to use for map-matching (must be configured in configuration file)");
+        subparser.addArgument("--gps_accuracy")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(40);
+        subparser.addArgument("--transition_probability_beta")
+                .type(Double.class)
+                .required(false)
+                .setDefault(2.0);
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(Runtime.getRuntime().availableProcessors());
+        subparser.addArgument("--points")
+                .type(Boolean.class)
+                .required(false)
+                .setDefault(true)
+                .help("include the encoded geometry of the matched route");
+        subparser.addArgument("--output")
+                .type(File.class)
+                .required(false)
+                .help("the JSON lines file for the results, by default they are written to the standard output");
+    }
+
+    @Override
+    protected Argument addFileArgument(Subparser subparser) {
+        // Never called, the configuration file is a named argument like for the match command
+        throw new RuntimeException();
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) throws Exception {
+        GraphHopper hopper = new GraphHopper().init(configuration.getGraphHopperConfiguration());
+        hopper.importOrLoad();
+
+        // the router, the location index and the landmarks are shared by all traces
+        MapMatching.Router router = MapMatching.routerFromGraphHopper(hopper, new PMap().putObject("profile", args.get("profile")));
+        int threads = args.getInt("threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        BatchMapMatching batchMapMatching = new BatchMapMatching(() -> {
+            MapMatching mapMatching = new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), router);
+            mapMatching.setTransitionProbabilityBeta(args.getDouble("transition_probability_beta"));
+            mapMatching.setMeasurementErrorSigma(args.getInt("gps_accuracy"));
+            return mapMatching;
+        }, executor, 2 * threads);
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        boolean points = args.getBoolean("points");
+        File outputFile = args.get("output");
+        StopWatch sw = new StopWatch().start();
+        long[] counts = new long[3];
+        try (TraceIterator traces = new TraceIterator(args.getList("input"));
+             Writer writer = new BufferedWriter(outputFile == null ? new OutputStreamWriter(System.out) : new FileWriter(outputFile))) {
+            batchMapMatching.match(traces, result -> {
+                counts[0]++;
+                counts[1] += result.trace.observations.size();
+                if (result.hasError())
+                    counts[2]++;
+                try {
+                    writer.write(objectMapper.writeValueAsString(BatchMapMatchingFormat.toJson(objectMapper, result, points)));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+            hopper.close();
+        }
+        double seconds = sw.stop().getSeconds();
+        System.err.println("traces: " + counts[0] + ", observations: " + counts[1] + ", errors: " + counts[2]
+                + ", threads: " + threads + ", took: " + String.format("%.1f", seconds) + "s"
+                + ", traces/s: " + String.format("%.1f", counts[0] / seconds)
+                + ", observations/s: " + String.format("%.1f", counts[1] / seconds));
+    }
+
+    /**
+     * Reads the traces of all files, one file after the other
+     */
+    private static class TraceIterator implements Iterator<BatchMapMatching.Trace>, Closeable {
+        private final Iterator<File> files;
+        private final XmlMapper xmlMapper = new XmlMapper();
+        private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+        private Iterator<BatchMapMatching.Trace> current = Collections.emptyIterator();
+        private InputStream currentStream;
+
+        TraceIterator(List<File> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!current.hasNext() && files.hasNext()) {
+                    close();
+                    current = open(files.next());
+                }
+                return current.hasNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public BatchMapMatching.Trace next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        private Iterator<BatchMapMatching.Trace> open(File file) throws IOException {
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".gpx")) {
+                Gpx gpx = xmlMapper.readValue(file, Gpx.class);
+                if (gpx.trk == null || gpx.trk.size() != 1)
+                    throw new IllegalArgumentException("GPX file " + file + " must contain exactly one track");
+                return List.of(new BatchMapMatching.Trace(file.getName(), GpxConversions.getEntries(gpx.trk.get(0)))).iterator();
+            }
+            currentStream = new BufferedInputStream(new FileInputStream(file));
+            return name.endsWith(".csv")
+                    ? BatchMapMatchingFormat.readCsv(currentStream)
+                    : BatchMapMatchingFormat.readJsonLines(objectMapper, currentStream);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (currentStream != null)
+                currentStream.close();
+            currentStream = null;
+        }
+    }
+}
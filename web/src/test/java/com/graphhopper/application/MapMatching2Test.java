@@ -22,21 +22,36 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.BatchMapMatching;
 import com.graphhopper.matching.EdgeMatch;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.matching.OnlineMapMatching;
 import com.graphhopper.matching.State;
+import com.graphhopper.routing.Path;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.graphhopper.application.MapMatchingTest.fetchStreets;
 import static org.junit.jupiter.api.Assertions.*;
@@ -127,6 +142,203 @@ public class MapMatching2Test {
         assertEquals(0, mr.getMatchMillis(), 50);
     }
 
+    @Test
+    public void testOneToManyTransitions() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        hopper.importOrLoad();
+
+        PMap hints = new PMap().putObject("profile", "my_profile");
+        MapMatching.Router router = MapMatching.routerFromGraphHopper(hopper, hints);
+        // this router only implements the method that calculates one path per candidate pair
+        MapMatching.Router pairwiseRouter = new MapMatching.Router() {
+            @Override
+            public EdgeFilter getSnapFilter() {
+                return router.getSnapFilter();
+            }
+
+            @Override
+            public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges) {
+                return router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+            }
+
+            @Override
+            public Weighting getWeighting() {
+                return router.getWeighting();
+            }
+        };
+        for (String file : List.of("/issue-13.gpx", "/issue-127.gpx")) {
+            Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream(file), Gpx.class);
+            MatchResult expected = new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), pairwiseRouter).
+                    match(GpxConversions.getEntries(gpx.trk.get(0)));
+            MatchResult actual = new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), router).
+                    match(GpxConversions.getEntries(gpx.trk.get(0)));
+            assertEquals(expected.getEdgeMatches().stream().map(e -> e.getEdgeState().getEdgeKey()).toList(),
+                    actual.getEdgeMatches().stream().map(e -> e.getEdgeState().getEdgeKey()).toList(), file);
+            assertEquals(expected.getMatchLength(), actual.getMatchLength(), 1.e-6, file);
+            assertEquals(expected.getMatchMillis(), actual.getMatchMillis(), file);
+        }
+    }
+
+    @Test
+    public void testOnlineMapMatching() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        hopper.importOrLoad();
+
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        List<Observation> observations = GpxConversions.getEntries(gpx.trk.get(0));
+        MatchResult mr = mapMatching.match(observations);
+
+        AtomicInteger snapped = new AtomicInteger();
+        MapMatching.Router router = MapMatching.routerFromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        MapMatching countingMapMatching = new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), router) {
+            @Override
+            public List<Snap> findCandidateSnaps(double queryLat, double queryLon) {
+                snapped.incrementAndGet();
+                return super.findCandidateSnaps(queryLat, queryLon);
+            }
+        };
+        OnlineMapMatching onlineMapMatching = new OnlineMapMatching(countingMapMatching, 8, 3);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        int updates = 0;
+        for (Observation observation : GpxConversions.getEntries(gpx.trk.get(0))) {
+            List<EdgeMatch> stable = onlineMapMatching.add(observation);
+            if (!stable.isEmpty())
+                updates++;
+            edgeMatches.addAll(stable);
+        }
+        edgeMatches.addAll(onlineMapMatching.finish());
+        // the edge matches are returned while the observations arrive, not only at the end
+        assertTrue(updates > 1, "updates: " + updates);
+        // the observations are matched several times, but they are only snapped once
+        assertTrue(snapped.get() <= observations.size(), "snapped: " + snapped.get());
+
+        int edgeCount = hopper.getBaseGraph().getAllEdges().length();
+        for (int i = 0; i < edgeMatches.size(); i++) {
+            assertTrue(edgeMatches.get(i).getEdgeState().getEdge() < edgeCount);
+            validateEdgeMatch(edgeMatches.get(i));
+            // the edge matches of the different windows form a connected path
+            if (i > 0)
+                assertEquals(edgeMatches.get(i - 1).getEdgeState().getAdjNode(), edgeMatches.get(i).getEdgeState().getBaseNode());
+        }
+        assertEquals(mr.getEdgeMatches().stream().map(e -> e.getEdgeState().getEdgeKey()).toList(),
+                edgeMatches.stream().map(e -> e.getEdgeState().getEdgeKey()).toList());
+    }
+
+    @Test
+    public void testBatchMapMatching() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        hopper.importOrLoad();
+
+        MapMatching.Router router = MapMatching.routerFromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        List<BatchMapMatching.Trace> traces = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String file = i % 2 == 0 ? "/issue-13.gpx" : "/issue-127.gpx";
+            Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream(file), Gpx.class);
+            traces.add(new BatchMapMatching.Trace(file + i, GpxConversions.getEntries(gpx.trk.get(0))));
+        }
+        // this trace is far away from the map
+        traces.add(new BatchMapMatching.Trace("broken", List.of(new Observation(new GHPoint(0, 0)), new Observation(new GHPoint(0.1, 0.1)))));
+
+        Supplier<MapMatching> supplier = () -> new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), router);
+        List<BatchMapMatching.Result> expected = new ArrayList<>();
+        new BatchMapMatching(supplier, null, 1).match(traces.iterator(), expected::add);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<BatchMapMatching.Result> actual = new ArrayList<>();
+            new BatchMapMatching(supplier, executor, 3).match(traces.iterator(), actual::add);
+            assertEquals(traces.size(), actual.size());
+            for (int i = 0; i < traces.size(); i++) {
+                // the results come in the order of the traces
+                assertSame(traces.get(i), actual.get(i).trace);
+                assertEquals(expected.get(i).hasError(), actual.get(i).hasError());
+                if (!actual.get(i).hasError())
+                    assertEquals(expected.get(i).matchResult.getEdgeMatches().stream().map(e -> e.getEdgeState().getEdgeKey()).toList(),
+                            actual.get(i).matchResult.getEdgeMatches().stream().map(e -> e.getEdgeState().getEdgeKey()).toList());
+            }
+            assertFalse(actual.get(0).hasError());
+            assertTrue(actual.get(traces.size() - 1).hasError());
+
+            // if the consumer fails, e.g. because the client went away, we still wait for the running traces
+            AtomicInteger running = new AtomicInteger();
+            Supplier<MapMatching> countingSupplier = () -> new MapMatching(hopper.getBaseGraph(), (LocationIndexTree) hopper.getLocationIndex(), router) {
+                @Override
+                public MatchResult match(List<Observation> observations) {
+                    running.incrementAndGet();
+                    try {
+                        return super.match(observations);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+            };
+            assertThrows(IllegalStateException.class, () -> new BatchMapMatching(countingSupplier, executor, 6).match(traces.iterator(), result -> {
+                throw new IllegalStateException("client went away");
+            }));
+            assertEquals(0, running.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOnlineMapMatchingWithGap() throws IOException {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setEncodedValuesString("car_access, car_average_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("my_profile", "car"));
+        hopper.importOrLoad();
+
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        List<Observation> observations = new ArrayList<>(GpxConversions.getEntries(gpx.trk.get(0)));
+        // an observation far away from all roads breaks the sequence
+        int gap = 10;
+        observations.add(gap, new Observation(new GHPoint(0, 0)));
+
+        OnlineMapMatching onlineMapMatching = new OnlineMapMatching(mapMatching, 4, 1);
+        List<EdgeMatch> edgeMatchesAfterGap = new ArrayList<>();
+        int failures = 0;
+        for (int i = 0; i < observations.size(); i++) {
+            try {
+                List<EdgeMatch> stable = onlineMapMatching.add(observations.get(i));
+                if (i > gap)
+                    edgeMatchesAfterGap.addAll(stable);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Sequence is broken"), e.getMessage());
+                failures++;
+            }
+        }
+        // the observations before the failure are dropped, so we do not fail for every following observation
+        assertTrue(failures >= 1 && failures <= 2, "failures: " + failures);
+        assertFalse(edgeMatchesAfterGap.isEmpty());
+        edgeMatchesAfterGap.addAll(onlineMapMatching.finish());
+        for (int i = 1; i < edgeMatchesAfterGap.size(); i++)
+            assertEquals(edgeMatchesAfterGap.get(i - 1).getEdgeState().getAdjNode(), edgeMatchesAfterGap.get(i).getEdgeState().getBaseNode());
+    }
+
+    @Test
+    public void testOnlineMapMatchingInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new OnlineMapMatching(null, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new OnlineMapMatching(null, 5, 4));
+    }
+
     private void validateEdgeMatch(EdgeMatch edgeMatch) {
         for (State state : edgeMatch.getStates()) {
             if (state.getSnap().getSnappedPosition() == Snap.Position.TOWER) {
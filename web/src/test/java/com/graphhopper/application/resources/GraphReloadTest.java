@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class GraphReloadTest {
+    private static final String andorraDir = "./target/graph-reload-andorra-gh/";
+    private static final String monacoDir = "./target/graph-reload-monaco-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", andorraDir).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.warm_up.queries", 10).
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(andorraDir));
+        Helper.removeDir(new File(monacoDir));
+    }
+
+    @Test
+    public void testReload() {
+        assertEquals(200, route("42.554851,1.536198", "42.510071,1.548128").getStatus());
+        assertEquals(400, route("43.730729,7.42135", "43.727697,7.419199").getStatus());
+
+        // the new graph has to be imported before, we use the same configuration except for the OSM file
+        GraphHopperConfig config = new GraphHopperConfig(app.getConfiguration().getGraphHopperConfiguration()).
+                putObject("datareader.file", "../core/files/monaco.osm.gz").
+                putObject("graph.location", monacoDir);
+        new GraphHopper().init(config).importAndClose();
+
+        Response response = reload(monacoDir);
+        assertEquals(200, response.getStatus());
+        assertTrue(response.readEntity(String.class).startsWith("reloaded graph at"));
+
+        Response routeResponse = route("43.730729,7.42135", "43.727697,7.419199");
+        assertEquals(200, routeResponse.getStatus());
+        JsonNode path = routeResponse.readEntity(JsonNode.class).get("paths").get(0);
+        assertTrue(path.get("distance").asDouble() > 0);
+        assertEquals(400, route("42.554851,1.536198", "42.510071,1.548128").getStatus());
+        JsonNode info = clientTarget(app, "/info").request().get(JsonNode.class);
+        assertEquals(7.4, info.get("bbox").get(0).asDouble(), 0.1);
+    }
+
+    @Test
+    public void testReloadMissingGraph() {
+        assertEquals(500, reload("./target/graph-reload-does-not-exist/").getStatus());
+        assertEquals(200, clientTarget(app, "/health").request().get().getStatus());
+    }
+
+    private static Response route(String from, String to) {
+        return clientTarget(app, "/route?profile=car&point=" + from + "&point=" + to).request().get();
+    }
+
+    private static Response reload(String graphLocation) {
+        return app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/reload-graph").
+                queryParam("graph.location", graphLocation).request().post(Entity.text(""));
+    }
+}
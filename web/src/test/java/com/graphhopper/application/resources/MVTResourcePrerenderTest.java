@@ -0,0 +1,102 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.codahale.metrics.Gauge;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import no.ecc.vectortile.VectorTileDecoder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static com.graphhopper.application.resources.MVTResourceTest.readInputStream;
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MVTResourcePrerenderTest {
+    private static final String DIR = "./target/andorra-mvt-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        // the tiles are rendered after the app was started, so we need to clean up before
+        cleanUp();
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.encoded_values", "road_class,road_environment,max_speed,surface").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                putObject("mvt.prerender.max_zoom", 11).
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        return config;
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testPrerenderedTiles() throws IOException, InterruptedException {
+        // the tiles are rendered in the background, zoom 11 is the last one
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!new File(DIR, "mvt/11").exists() && System.currentTimeMillis() < deadline)
+            Thread.sleep(100);
+        // there are no motorways in Andorra, so all tiles of zoom 10 are empty and not stored
+        assertTrue(new File(DIR, "mvt/10").exists());
+        assertFalse(new File(DIR, "mvt/10/516/378.mvt").exists());
+        assertTrue(new File(DIR, "mvt/11/1032/756.mvt").exists());
+        assertFalse(new File(DIR, "mvt/12").exists());
+
+        InputStream is = clientTarget(app, "/mvt/11/1032/756.mvt").request().get(InputStream.class);
+        List<VectorTileDecoder.Feature> features = new VectorTileDecoder().decode(readInputStream(is)).asList();
+        assertFalse(features.isEmpty());
+        // at zoom 11 only the larger roads are rendered
+        for (VectorTileDecoder.Feature feature : features)
+            assertTrue(List.of("trunk", "primary").contains((String) feature.getAttributes().get("road_class")),
+                    "unexpected road class: " + feature.getAttributes().get("road_class"));
+
+        // tiles without edges are not stored, but still returned
+        is = clientTarget(app, "/mvt/11/0/0.mvt").request().get(InputStream.class);
+        assertTrue(new VectorTileDecoder().decode(readInputStream(is)).asList().isEmpty());
+
+        // pre-rendered tiles are not encoded at all
+        assertEquals(2L, getGauge("mvt.cache.hits"));
+        assertEquals(0L, getGauge("mvt.cache.misses"));
+        clientTarget(app, "/mvt/11/1032/756.mvt").request().get(InputStream.class).close();
+        assertEquals(3L, getGauge("mvt.cache.hits"));
+    }
+
+    private static Object getGauge(String name) {
+        Gauge<?> gauge = app.getEnvironment().metrics().getGauges().get(name);
+        return gauge.getValue();
+    }
+}
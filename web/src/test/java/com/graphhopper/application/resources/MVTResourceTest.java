@@ -24,6 +24,8 @@ import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
 import io.dropwizard.testing.junit5.DropwizardAppExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
 import no.ecc.vectortile.VectorTileDecoder;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -42,7 +44,7 @@ import java.util.Map;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
 import static com.graphhopper.util.Parameters.Details.STREET_NAME;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -96,7 +98,23 @@ public class MVTResourceTest {
         assertEquals("primary", feature.getAttributes().get("road_class"));
     }
 
-    private static byte[] readInputStream(InputStream is) throws IOException {
+    @Test
+    public void testConditionalGet() {
+        Response response = clientTarget(app, "/mvt/15/16522/12102.mvt").request().get();
+        assertEquals(200, response.getStatus());
+        EntityTag etag = response.getEntityTag();
+        assertNotNull(etag);
+
+        response = clientTarget(app, "/mvt/15/16522/12102.mvt").request().header("If-None-Match", etag.toString()).get();
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getEntityTag());
+
+        response = clientTarget(app, "/mvt/15/16528/12099.mvt").request().header("If-None-Match", etag.toString()).get();
+        assertEquals(200, response.getStatus());
+        assertNotEquals(etag, response.getEntityTag());
+    }
+
+    static byte[] readInputStream(InputStream is) throws IOException {
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
         int nRead;
         byte[] data = new byte[16384];
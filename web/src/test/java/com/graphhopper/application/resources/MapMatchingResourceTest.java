@@ -20,9 +20,15 @@ package com.graphhopper.application.resources;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializerHelper;
+import com.graphhopper.matching.Observation;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.testing.junit5.DropwizardAppExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.junit.jupiter.api.AfterAll;
@@ -36,7 +42,10 @@ import org.locationtech.jts.io.WKTReader;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
 import static org.junit.jupiter.api.Assertions.*;
@@ -84,6 +93,116 @@ public class MapMatchingResourceTest {
         assertEquals(812, json.get("map_matching").get("distance").asDouble(), 1);
     }
 
+    @Test
+    public void testStream() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/tour2-with-loop.gpx"), Gpx.class);
+        StringBuilder body = new StringBuilder();
+        for (Observation observation : GpxConversions.getEntries(gpx.trk.get(0)))
+            body.append("{\"lat\":").append(observation.getPoint().lat).append(",\"lon\":").append(observation.getPoint().lon).append("}\n");
+        String response = clientTarget(app, "/match/stream?profile=fast_car&window_size=5&lag=2")
+                .request()
+                .post(Entity.entity(body.toString(), "application/x-ndjson"), String.class);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : response.split("\n"))
+            lines.add(Jackson.newObjectMapper().readTree(line));
+        assertFalse(lines.isEmpty());
+        for (int i = 0; i < lines.size(); i++) {
+            assertFalse(lines.get(i).has("message"), lines.get(i).toString());
+            if (i > 0)
+                assertEquals(lines.get(i - 1).get("adj_node").asInt(), lines.get(i).get("base_node").asInt());
+        }
+
+        // the streamed edges are the same as the ones of the whole trace
+        JsonNode json = clientTarget(app, "/match?profile=fast_car&traversal_keys=true")
+                .request()
+                .post(Entity.xml(getClass().getResourceAsStream("/tour2-with-loop.gpx")), JsonNode.class);
+        List<Integer> expected = new ArrayList<>();
+        json.get("traversal_keys").forEach(k -> expected.add(k.asInt()));
+        assertEquals(expected, lines.stream().map(l -> l.get("edge_key").asInt()).toList());
+    }
+
+    @Test
+    public void testStreamWithGap() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/tour2-with-loop.gpx"), Gpx.class);
+        List<Observation> observations = new ArrayList<>(GpxConversions.getEntries(gpx.trk.get(0)));
+        // an observation far away from all roads breaks the sequence in the middle of the stream
+        int gap = observations.size() / 2;
+        observations.add(gap, new Observation(new GHPoint(0, 0)));
+        StringBuilder body = new StringBuilder();
+        for (Observation observation : observations)
+            body.append("{\"lat\":").append(observation.getPoint().lat).append(",\"lon\":").append(observation.getPoint().lon).append("}\n");
+        String response = clientTarget(app, "/match/stream?profile=fast_car&window_size=4&lag=1")
+                .request()
+                .post(Entity.entity(body.toString(), "application/x-ndjson"), String.class);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : response.split("\n"))
+            lines.add(Jackson.newObjectMapper().readTree(line));
+        int firstError = -1;
+        for (int i = 0; i < lines.size(); i++)
+            if (lines.get(i).has("message")) {
+                assertTrue(lines.get(i).get("message").asText().startsWith("Sequence is broken"), lines.get(i).toString());
+                assertTrue(lines.get(i).get("observation").asInt() >= gap, lines.get(i).toString());
+                if (firstError < 0)
+                    firstError = i;
+            }
+        assertTrue(firstError > 0, response);
+        // the stream goes on after the error and the observations after the gap are matched as well
+        assertTrue(lines.get(lines.size() - 1).has("edge_key"), response);
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/tour2-with-loop.gpx"), Gpx.class);
+        List<Observation> observations = GpxConversions.getEntries(gpx.trk.get(0));
+        StringBuilder jsonLines = new StringBuilder();
+        StringBuilder csv = new StringBuilder("id,lat,lon\n");
+        for (String id : List.of("first", "second")) {
+            jsonLines.append("{\"id\":\"").append(id).append("\",\"points\":[");
+            for (int i = 0; i < observations.size(); i++) {
+                GHPoint point = observations.get(i).getPoint();
+                jsonLines.append(i == 0 ? "" : ",").append("[").append(point.lon).append(",").append(point.lat).append("]");
+                csv.append(id).append(",").append(point.lat).append(",").append(point.lon).append("\n");
+            }
+            jsonLines.append("]}\n");
+        }
+        // a trace that cannot be matched does not stop the batch
+        jsonLines.append("{\"id\":\"broken\",\"points\":[[0,0],[0.1,0.1]]}\n");
+
+        for (Entity<String> entity : List.of(Entity.entity(jsonLines.toString(), "application/x-ndjson"), Entity.entity(csv.toString(), "text/csv"))) {
+            String response = clientTarget(app, "/match/batch?profile=fast_car")
+                    .request()
+                    .post(entity, String.class);
+            List<JsonNode> lines = new ArrayList<>();
+            for (String line : response.split("\n"))
+                lines.add(Jackson.newObjectMapper().readTree(line));
+            boolean withBroken = entity.getMediaType().toString().equals("application/x-ndjson");
+            assertEquals(withBroken ? 4 : 3, lines.size(), response);
+            assertEquals("first", lines.get(0).get("id").asText());
+            assertEquals("second", lines.get(1).get("id").asText());
+            for (int i = 0; i < 2; i++) {
+                assertEquals(observations.size(), lines.get(i).get("observations").asInt());
+                assertEquals(812, lines.get(i).get("distance").asDouble(), 1);
+                assertFalse(lines.get(i).get("traversal_keys").isEmpty());
+                assertTrue(lines.get(i).has("points"));
+            }
+            if (withBroken) {
+                assertEquals("broken", lines.get(2).get("id").asText());
+                assertTrue(lines.get(2).has("message"));
+            }
+            JsonNode info = lines.get(lines.size() - 1).get("info");
+            assertEquals(withBroken ? 3 : 2, info.get("traces").asInt());
+            assertEquals(withBroken ? 1 : 0, info.get("errors").asInt());
+        }
+    }
+
+    @Test
+    public void testStreamInvalidObservation() {
+        String response = clientTarget(app, "/match/stream?profile=fast_car")
+                .request()
+                .post(Entity.entity("{\"lat\":51.34365,\"lon\":12.3607}\n{\"lat\":51.34365}\n", "application/x-ndjson"), String.class);
+        assertTrue(response.contains("Observation 1 needs lat and lon"), response);
+    }
+
     @Test
     public void testBike() throws ParseException {
         WKTReader wktReader = new WKTReader();
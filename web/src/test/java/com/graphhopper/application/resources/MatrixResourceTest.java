@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.encoded_values", "car_access, car_average_speed").
+                setProfiles(List.of(TestProfiles.accessAndSpeed("my_car", "car"))).
+                setCHProfiles(List.of(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testMatrixIsConsistentWithRoute() {
+        String[] points = {"[1.536198,42.554851]", "[1.548128,42.510071]", "[1.521916,42.509305]"};
+        String jsonStr = "{\"points\": [" + String.join(",", points) + "], \"profile\": \"my_car\", \"out_arrays\": [\"weights\", \"times\", \"distances\"]}";
+        JsonNode json = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr), JsonNode.class);
+        assertEquals(3, json.get("distances").size());
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(3, json.get("distances").get(i).size());
+            for (int j = 0; j < points.length; j++) {
+                String routeStr = "{\"points\": [" + points[i] + "," + points[j] + "], \"profile\": \"my_car\", \"calc_points\": false, \"instructions\": false}";
+                JsonNode path = clientTarget(app, "/route").request().post(Entity.json(routeStr), JsonNode.class).get("paths").get(0);
+                assertEquals(path.get("distance").asDouble(), json.get("distances").get(i).get(j).asDouble(), 1, "distance " + i + "->" + j);
+                assertEquals(path.get("time").asLong() / 1000.0, json.get("times").get(i).get(j).asDouble(), 1, "time " + i + "->" + j);
+                assertEquals(path.get("weight").asDouble(), json.get("weights").get(i).get(j).asDouble(), 1.e-2, "weight " + i + "->" + j);
+            }
+        }
+        assertTrue(json.get("info").get("visited_nodes").asInt() > 0);
+        assertFalse(json.has("hints"));
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        String jsonStr = "{\"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128,42.510071],[1.521916,42.509305]], \"profile\": \"my_car\"}";
+        JsonNode json = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr), JsonNode.class);
+        // only weights are returned by default
+        assertFalse(json.has("times"));
+        assertFalse(json.has("distances"));
+        assertEquals(1, json.get("weights").size());
+        assertEquals(2, json.get("weights").get(0).size());
+
+        jsonStr = "{\"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128,42.510071]], \"profile\": \"my_car\", \"out_arrays\": null}";
+        json = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr), JsonNode.class);
+        assertEquals(1, json.get("weights").size());
+        assertFalse(json.has("times"));
+    }
+
+    @Test
+    public void testPointNotFound() {
+        // the second point is outside of Andorra
+        String jsonStr = "{\"points\": [[1.536198,42.554851],[1.0,42.0]], \"profile\": \"my_car\"}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals("Cannot find from_points: 1", json.get("message").asText());
+
+        jsonStr = "{\"points\": [[1.536198,42.554851],[1.0,42.0]], \"profile\": \"my_car\", \"fail_fast\": false}";
+        json = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr), JsonNode.class);
+        JsonNode weights = json.get("weights");
+        assertEquals(0, weights.get(0).get(0).asDouble());
+        assertTrue(weights.get(0).get(1).isNull());
+        assertTrue(weights.get(1).get(0).isNull());
+        assertTrue(weights.get(1).get(1).isNull());
+        // the pairs with the invalid point are not reported as disconnected again
+        JsonNode hints = json.get("hints");
+        assertEquals(1, hints.size());
+        assertEquals("[1]", hints.get(0).get("invalid_from_points").toString());
+        assertEquals("[1]", hints.get(0).get("invalid_to_points").toString());
+    }
+
+    @Test
+    public void testMissingCH() {
+        String jsonStr = "{\"points\": [[1.536198,42.554851],[1.548128,42.510071]], \"profile\": \"unknown\"}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+    }
+}
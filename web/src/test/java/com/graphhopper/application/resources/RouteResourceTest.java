@@ -148,6 +148,58 @@ public class RouteResourceTest {
         assertFalse(json.get("info").has("errors"));
     }
 
+    @Test
+    public void testBatchPostQuery() {
+        String jsonStr = "{ \"requests\": [" +
+                "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                "{ \"profile\": \"unknown\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }," +
+                "{ \"profile\": \"foot\", \"points\": [[1.548128, 42.510071], [1.536198,42.554851]], \"ch.disable\": true }," +
+                "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"instructions\": false }" +
+                "] }";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("info").has("took"));
+        JsonNode responses = json.get("responses");
+        assertEquals(4, responses.size());
+
+        double distance = responses.get(0).at("/paths/0/distance").asDouble();
+        assertTrue(distance > 9000, "distance wasn't correct:" + distance);
+        assertTrue(distance < 9500, "distance wasn't correct:" + distance);
+        assertTrue(responses.get(0).at("/info/took").isNumber());
+        assertTrue(responses.get(0).at("/paths/0").has("instructions"));
+
+        assertTrue(responses.get(1).get("message").asText().contains("unknown"),
+                responses.get(1).toString());
+
+        distance = responses.get(2).at("/paths/0/distance").asDouble();
+        assertTrue(distance > 7000, "distance wasn't correct:" + distance);
+
+        assertEquals(responses.get(0).at("/paths/0/distance").asDouble(), responses.get(3).at("/paths/0/distance").asDouble(), 1.e-3);
+        assertFalse(responses.get(3).at("/paths/0").has("instructions"));
+
+        response = clientTarget(app, "/route/batch").request().post(Entity.json("{ \"requests\": [] }"));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testTimings() {
+        JsonNode json = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128").
+                request().get(JsonNode.class);
+        assertFalse(json.get("hints").has("timings"));
+
+        json = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128&timings=true").
+                request().get(JsonNode.class);
+        JsonNode timings = json.at("/hints/timings");
+        assertTrue(timings.get("snap").isNumber(), json.toString());
+        assertTrue(timings.get("search").asDouble() > 0, json.toString());
+        assertTrue(timings.has("instructions"), json.toString());
+
+        // every successful request is recorded in the histograms of its profile and algorithm
+        assertTrue(app.getEnvironment().metrics().histogram("route.my_car.default.total").getCount() >= 2);
+        assertTrue(app.getEnvironment().metrics().histogram("route.my_car.default.search").getCount() >= 2);
+    }
+
     @Test
     public void testBasicNavigationQuery() {
         JsonNode json = clientTarget(app, "/navigate/directions/v5/gh/driving/1.537174,42.507145;1.539116,42.511368?" +